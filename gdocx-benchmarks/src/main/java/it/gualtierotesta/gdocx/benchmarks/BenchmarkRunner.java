@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run all the benchmarks with the GC profiler, so the allocation rate per operation (gc.alloc.rate.norm) is
+ * reported next to the times. Results are saved in JSON format in jmh-result.json, to be compared between
+ * releases.
+ * <p>
+ * Usage: {@code java -jar target/benchmarks.jar [JMH options]}, for ex. {@code java -jar target/benchmarks.jar
+ * GTblBenchmark -p rows=1000}
+ *
+ * @author gualtiero
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // Static class
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result("jmh-result.json")
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GP;
+import it.gualtierotesta.gdocx.GTbl;
+import it.gualtierotesta.gdocx.GTc;
+import it.gualtierotesta.gdocx.GTr;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.STBorder;
+
+/**
+ * Sample contents shared by the benchmarks, similar to a report: formatted cells with shading and borders
+ *
+ * @author gualtiero
+ */
+final class Documents {
+
+    private static final long CELL_WIDTH = 1000L;
+
+    private Documents() {
+        // Static class
+    }
+
+    static GP heading() {
+        return GP.create().text("Report").font("Arial", 14L).bold();
+    }
+
+    static GTbl emptyTable(final int columns) {
+        final long[] grid = new long[columns];
+        for (int i = 0; i < columns; i++) {
+            grid[i] = CELL_WIDTH;
+        }
+        return GTbl.create().borders(4L, STBorder.SINGLE, "000000", null).widthAuto().grid(grid);
+    }
+
+    static GTr row(final int row, final int columns) {
+        final GTr tr = GTr.create();
+        for (int c = 0; c < columns; c++) {
+            final GTc tc = GTc.create().width(CELL_WIDTH, "dxa")
+                .add(GP.create().text("R" + row + "C" + c).font("Arial", 8L));
+            if (0 == row % 2) {
+                tc.shd("auto", "EEEEEE");
+            }
+            tr.add(tc);
+        }
+        return tr;
+    }
+
+    static GTbl table(final int rows, final int columns) {
+        final GTbl tbl = emptyTable(columns);
+        for (int r = 0; r < rows; r++) {
+            tbl.add(row(r, columns));
+        }
+        return tbl;
+    }
+
+    static WordprocessingMLPackage document(final GTbl table) throws Docx4JException {
+        return document(WordprocessingMLPackage.createPackage(), table);
+    }
+
+    static WordprocessingMLPackage document(final WordprocessingMLPackage pkg, final GTbl table) {
+        final MainDocumentPart mdp = pkg.getMainDocumentPart();
+        mdp.getContent().add(heading());
+        mdp.getContent().add(table);
+        return pkg;
+    }
+}
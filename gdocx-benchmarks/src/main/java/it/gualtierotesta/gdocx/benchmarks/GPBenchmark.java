@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GP;
+import java.util.concurrent.TimeUnit;
+import org.docx4j.wml.JcEnumeration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paragraph builder and serialization benchmarks.
+ * <p>
+ * {@link #xml(Fresh)} serializes a paragraph built before every call, as the XML of an element is cached until it is
+ * changed; {@link #xmlCached()} calls xml() again on the same paragraph and measures the cache hits.
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GPBenchmark {
+
+    private GP paragraph;
+
+    @Setup
+    public void setUp() {
+        paragraph = build();
+    }
+
+    @Benchmark
+    public GP create() {
+        return GP.create().text("Hello, world");
+    }
+
+    @Benchmark
+    public GP createFormatted() {
+        return build();
+    }
+
+    @Benchmark
+    public String xml(final Fresh fresh) {
+        return fresh.paragraph.xml();
+    }
+
+    @Benchmark
+    public String xmlCached() {
+        return paragraph.xml();
+    }
+
+    private static GP build() {
+        return GP.create().text("Hello, world").font("Arial", 10L).bold().color("FF0000")
+            .align(JcEnumeration.CENTER);
+    }
+
+    /**
+     * Paragraph built before every invocation, so that its XML is not cached
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+
+        private GP paragraph;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            paragraph = build();
+        }
+    }
+}
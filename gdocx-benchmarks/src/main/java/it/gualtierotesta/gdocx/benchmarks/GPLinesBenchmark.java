@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GP;
+import it.gualtierotesta.gdocx.GSerializer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.Text;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi-line paragraph (address block) benchmarks.
+ * <p>
+ * Run with {@code -prof gc}: gc.alloc.rate.norm is the memory allocated per paragraph. The auxiliary counters give
+ * the runs and the compact XML chars of every paragraph written (divide by the number of operations).
+ * <p>
+ * The legacy* benchmarks build the layout of the previous GP.text versions, one run per line and a run holding only
+ * the br between two lines, for comparison with the single run layout.
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GPLinesBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int lines;
+
+    private String[] text;
+    private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+
+    private GP paragraph;
+    private GP legacyParagraph;
+
+    @Setup
+    public void setUp() {
+        text = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            text[i] = "Address line " + i;
+        }
+        paragraph = GP.create().text(text).bold();
+        legacyParagraph = legacy(text);
+    }
+
+    @Benchmark
+    public GP build() {
+        return GP.create().text(text).bold();
+    }
+
+    @Benchmark
+    public GP legacyBuild() {
+        return legacy(text);
+    }
+
+    @Benchmark
+    public String write(final Sizes sizes) throws IOException {
+        return write(paragraph, sizes);
+    }
+
+    @Benchmark
+    public String legacyWrite(final Sizes sizes) throws IOException {
+        return write(legacyParagraph, sizes);
+    }
+
+    private static String write(final GP gp, final Sizes sizes) throws IOException {
+        final StringWriter sw = new StringWriter();
+        GSerializer.write(gp, sw);
+        final String xml = sw.toString();
+        sizes.runs += gp.getContent().size();
+        sizes.xmlChars += xml.length();
+        return xml;
+    }
+
+    /**
+     * @return bold paragraph with a run for every line and a br run between two lines, all sharing the same rPr
+     */
+    private static GP legacy(final String[] lines) {
+        final GP gp = GP.create().text(lines[0]).bold();
+        final RPr rPr = ((R) gp.getContent().get(0)).getRPr();
+        for (int i = 1; i < lines.length; i++) {
+            final R runBr = FACTORY.createR();
+            runBr.getContent().add(FACTORY.createBr());
+            gp.getContent().add(runBr);
+            final Text t = FACTORY.createText();
+            t.setValue(lines[i]);
+            final R run = FACTORY.createR();
+            run.getContent().add(t);
+            run.setRPr(rPr);
+            gp.getContent().add(run);
+        }
+        return gp;
+    }
+
+    /**
+     * Sizes of the written paragraphs
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        public long runs;
+        public long xmlChars;
+    }
+}
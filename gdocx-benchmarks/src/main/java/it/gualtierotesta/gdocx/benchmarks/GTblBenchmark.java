@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GTbl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Table builder and serialization benchmarks (rows x columns tables).
+ * <p>
+ * {@link #xml(Fresh)} serializes a table built before every call, as the XML of an element is cached until it is
+ * changed; {@link #xmlCached()} calls xml() again on the same table and measures the cache hits (tables with an XML
+ * longer than 256K chars, like 1000 x 20, are not cached and serialized at every call).
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GTblBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    @Param({"5", "20"})
+    private int columns;
+
+    private GTbl table;
+
+    @Setup
+    public void setUp() {
+        table = Documents.table(rows, columns);
+    }
+
+    @Benchmark
+    public GTbl build() {
+        return Documents.table(rows, columns);
+    }
+
+    @Benchmark
+    public String xml(final Fresh fresh) {
+        return fresh.table.xml();
+    }
+
+    @Benchmark
+    public String xmlCached() {
+        return table.xml();
+    }
+
+    /**
+     * Table built before every invocation, so that its XML is not cached
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+
+        private GTbl table;
+
+        @Setup(Level.Invocation)
+        public void setUp(final GTblBenchmark benchmark) {
+            table = Documents.table(benchmark.rows, benchmark.columns);
+        }
+    }
+}
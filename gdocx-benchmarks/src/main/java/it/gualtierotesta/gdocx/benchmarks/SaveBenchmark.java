@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GDocxSaver;
+import it.gualtierotesta.gdocx.GDocxWriter;
+import it.gualtierotesta.gdocx.GPackagePool;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full document save benchmarks: a heading paragraph and a table with the given number of rows (10 columns)
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveBenchmark {
+
+    private static final int COLUMNS = 10;
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private WordprocessingMLPackage pkg;
+    private GPackagePool pool;
+
+    @Setup
+    public void setUp() throws Docx4JException {
+        pkg = Documents.document(Documents.table(rows, COLUMNS));
+        pool = GPackagePool.create();
+    }
+
+    @Benchmark
+    public byte[] save() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pkg.save(baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] parallelSave() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GDocxSaver.create().save(pkg, baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] parallelSaveBestSpeed() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GDocxSaver.create().level(Deflater.BEST_SPEED).save(pkg, baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] parallelSaveStored() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GDocxSaver.create().stored().save(pkg, baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] buildAndSave() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Documents.document(Documents.table(rows, COLUMNS)).save(baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pooledBuildAndSave() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Documents.document(pool.newPackage(), Documents.table(rows, COLUMNS)).save(baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] streamingWriter() throws Docx4JException, IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final GDocxWriter writer = GDocxWriter.create(baos);
+        writer.add(Documents.heading());
+        writer.startTable(Documents.emptyTable(COLUMNS));
+        for (int i = 0; i < rows; i++) {
+            writer.addRow(Documents.row(i, COLUMNS));
+        }
+        writer.endTable();
+        writer.close();
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import it.gualtierotesta.gdocx.GP;
+import it.gualtierotesta.gdocx.GSerializer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.jaxb.NamespacePrefixMapperUtils;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization throughput with 1, 8 and 32 threads.
+ * <ul>
+ * <li>pooled* and jaxb* compare two serializers: the gdocx serializer writes the paragraph by hand and marshals only
+ * its pPr (the spacing property is not handled by the gdocx serializer) with the per thread pooled marshaller,
+ * {@code XmlUtils.marshaltoString} marshals the whole paragraph with a new marshaller for every call</li>
+ * <li>pooledMarshal* and newMarshaller* run the same marshal of the pPr fragment, through the pooled marshaller of
+ * the gdocx serializer and with a new marshaller for every call: the difference is the cost of the marshaller
+ * creation</li>
+ * </ul>
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationThreadsBenchmark {
+
+    private GP paragraph;
+    private JAXBElement<PPr> pPr;
+
+    @Setup
+    public void setUp() {
+        paragraph = Documents.heading();
+        final PPrBase.Spacing spacing = Context.getWmlObjectFactory().createPPrBaseSpacing();
+        spacing.setAfter(BigInteger.TEN);
+        paragraph.getPPr().setSpacing(spacing);
+        pPr = new JAXBElement<PPr>(new QName(Namespaces.NS_WORD12, "pPr"), PPr.class, paragraph.getPPr());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String pooled1() {
+        return GSerializer.xml(paragraph);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String pooled8() {
+        return GSerializer.xml(paragraph);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String pooled32() {
+        return GSerializer.xml(paragraph);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String jaxb1() {
+        return XmlUtils.marshaltoString(paragraph, false, true);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String jaxb8() {
+        return XmlUtils.marshaltoString(paragraph, false, true);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String jaxb32() {
+        return XmlUtils.marshaltoString(paragraph, false, true);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String pooledMarshal1() throws IOException {
+        return pooledMarshal();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String pooledMarshal8() throws IOException {
+        return pooledMarshal();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String pooledMarshal32() throws IOException {
+        return pooledMarshal();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String newMarshaller1() throws JAXBException {
+        return newMarshaller();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String newMarshaller8() throws JAXBException {
+        return newMarshaller();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String newMarshaller32() throws JAXBException {
+        return newMarshaller();
+    }
+
+    private String pooledMarshal() throws IOException {
+        final StringWriter sw = new StringWriter(256);
+        GSerializer.write(pPr, sw);
+        return sw.toString();
+    }
+
+    private String newMarshaller() throws JAXBException {
+        // same settings as the pooled fragment marshaller
+        final Marshaller marshaller = Context.jc.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        NamespacePrefixMapperUtils.setProperty(marshaller, NamespacePrefixMapperUtils.getPrefixMapper());
+        final StringWriter sw = new StringWriter(256);
+        marshaller.marshal(pPr, sw);
+        return sw.toString();
+    }
+}
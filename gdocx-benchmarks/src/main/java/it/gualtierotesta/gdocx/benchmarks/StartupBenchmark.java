@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold start benchmark: time to the first saved document (a heading paragraph and a 10x10 table) of a new JVM.
+ * <p>
+ * Every fork measures one save only, so the JAXB context creation and the class loading are included. Compare with
+ * the class data sharing archive of the appcds profile:
+ * <pre>
+ * java -jar target/benchmarks.jar StartupBenchmark -jvmArgsAppend -XX:SharedArchiveFile=target/benchmarks.jsa
+ * </pre>
+ *
+ * @author gualtiero
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    private static final int SIZE = 10;
+
+    @Benchmark
+    public byte[] firstDocument() throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Documents.document(Documents.table(SIZE, SIZE)).save(baos);
+        return baos.toByteArray();
+    }
+}
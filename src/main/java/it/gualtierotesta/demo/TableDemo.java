@@ -17,15 +17,19 @@
  */
 package it.gualtierotesta.demo;
 
+import it.gualtierotesta.gdocx.GColumn;
 import it.gualtierotesta.gdocx.GP;
 import it.gualtierotesta.gdocx.GTbl;
 import it.gualtierotesta.gdocx.GTc;
 import it.gualtierotesta.gdocx.GTr;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import org.docx4j.XmlUtils;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.JcEnumeration;
 import org.docx4j.wml.STBorder;
 
 /**
@@ -47,6 +51,8 @@ public class TableDemo {
 
         createSecondTable(mdp);
 
+        createThirdTable(mdp);
+
         // Dump document XML on console
         System.out.println(XmlUtils.marshaltoString(mdp.getContents(), true, true));
 
@@ -79,6 +85,23 @@ public class TableDemo {
         pMdp.getContents().getBody().getContent().add(tab);
     }
 
+    private static void createThirdTable(final MainDocumentPart pMdp) throws Docx4JException {
+        final GP para1 = GP.create().text("Table created from row values with column templates");
+        pMdp.getContents().getBody().getContent().add(para1);
+
+        final GColumn[] columns = {
+            GColumn.create(GTc.create().width(1500L, "dxa"), GP.create().bold()),
+            GColumn.create(GTc.create().width(3000L, "dxa").shd("auto", "EEEEEE")),
+            GColumn.create(GTc.create().width(1500L, "dxa"), GP.create().align(JcEnumeration.RIGHT))
+        };
+        final List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 1; i <= 10; i++) {
+            rows.add(new Object[]{"R" + i, "Description " + i, i * 100});
+        }
+        final GTbl tab = GTbl.fromRows(columns, rows).borders(4L, STBorder.SINGLE, "000000", null);
+        pMdp.getContents().getBody().getContent().add(tab);
+    }
+
     private static void createRowsAndCells(final GTbl pTab) {
         final GTr row1
                 = GTr.create().add(GTc.create().add(GP.create().text("R1C1"))).add(GTc.create().add(GP.create().text("R1C2")))
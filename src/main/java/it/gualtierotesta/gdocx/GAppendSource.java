@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Enumeration;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+
+/**
+ * Existing docx read by a {@link GDocxWriter} in append mode.
+ * <p>
+ * The parts other than the main document are copied as raw zip entries (still compressed, with their CRC). The main
+ * document is copied as text, tag by tag, and split where the new elements go: before the section properties of the
+ * body, or before the body end if the body has no section properties. Only the current tag and the body section
+ * properties are held in memory, so the cost of an append grows with the document size but its memory does not.
+ *
+ * @author gualtiero
+ */
+final class GAppendSource implements Closeable {
+
+    private static final String RELS_ENTRY = "_rels/.rels";
+    private static final String OFFICE_DOCUMENT = "/officeDocument";
+    private static final String DEFAULT_DOCUMENT_ENTRY = "word/document.xml";
+    private static final String ENCODING = "UTF-8";
+
+    private final ZipFile zipFile;
+    private final String documentEntry;
+    private final StringBuilder pending = new StringBuilder();
+    private Reader reader;
+    private GXmlTokenizer tokenizer;
+
+    /**
+     * Constructor
+     *
+     * @param file docx file
+     * @throws Docx4JException if the file is not a valid docx
+     */
+    GAppendSource(@Nonnull final File file) throws Docx4JException {
+        try {
+            zipFile = new ZipFile(file);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening " + file, e);
+        }
+        try {
+            documentEntry = documentEntry(zipFile);
+            if (null == zipFile.getEntry(documentEntry)) {
+                throw new Docx4JException("Main document part not found in " + file);
+            }
+        } catch (final Docx4JException e) {
+            ZipFile.closeQuietly(zipFile);
+            throw e;
+        }
+    }
+
+    /**
+     * @return name of the zip entry of the main document
+     */
+    @Nonnull
+    String getDocumentEntry() {
+        return documentEntry;
+    }
+
+    /**
+     * Copy all the entries but the main document, without decompressing them
+     *
+     * @param zos destination
+     * @throws IOException if an entry cannot be read or written
+     */
+    void copyParts(@Nonnull final ZipArchiveOutputStream zos) throws IOException {
+        final Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+        while (entries.hasMoreElements()) {
+            final ZipArchiveEntry entry = entries.nextElement();
+            if (!documentEntry.equals(entry.getName())) {
+                final InputStream raw = zipFile.getRawInputStream(entry);
+                try {
+                    zos.addRawArchiveEntry(new ZipArchiveEntry(entry), raw);
+                } finally {
+                    raw.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the main document up to the insertion point of the new elements
+     *
+     * @param writer destination
+     * @return the namespace declarations in scope at the insertion point
+     * @throws IOException if the document cannot be read or is not valid
+     */
+    @Nonnull
+    Map<String, String> copyHead(@Nonnull final Writer writer) throws IOException {
+        reader = new InputStreamReader(zipFile.getInputStream(zipFile.getEntry(documentEntry)), ENCODING);
+        tokenizer = new GXmlTokenizer(reader);
+        final StringBuilder token = tokenizer.token();
+
+        // before the body: copy the tokens and collect the start tags, which declare the namespaces
+        final StringBuilder startTags = new StringBuilder();
+        String body = null;
+        String sectPr = null;
+        int depth = 0;
+        int kind = tokenizer.next();
+        while (null == body || !GXmlTokenizer.isStart(kind) || !body.equals(tokenizer.name())) {
+            if (GXmlTokenizer.EOF == kind) {
+                throw new IOException("Body not found in the main document");
+            }
+            if (GXmlTokenizer.isStart(kind)) {
+                startTags.append(token);
+                final String prefix = prefix(GSerializer.namespaces(startTags.toString()));
+                if (null != prefix) {
+                    body = prefix + "body";
+                    sectPr = prefix + "sectPr";
+                }
+            }
+            writer.write(token.toString());
+            depth += depth(kind);
+            kind = tokenizer.next();
+        }
+        startTags.append(token);
+        final Map<String, String> scope = GSerializer.namespaces(startTags.toString());
+        if (GXmlTokenizer.EMPTY == kind) {
+            // empty body: the start tag is written, the end tag goes in the tail
+            writer.write(token.substring(0, token.length() - 2) + ">");
+            pending.append("</").append(body).append('>');
+            return scope;
+        }
+        writer.write(token.toString());
+        final int bodyDepth = depth + 1;
+        depth = bodyDepth;
+
+        // in the body: the last section properties of the body and what follows them are kept in pending
+        boolean inSectPr = false;
+        kind = tokenizer.next();
+        while (GXmlTokenizer.EOF != kind) {
+            if (inSectPr) {
+                pending.append(token);
+                inSectPr = GXmlTokenizer.END != kind || depth - 1 != bodyDepth;
+            } else if (GXmlTokenizer.END == kind && depth == bodyDepth) {
+                pending.append(token);
+                return scope;
+            } else if (GXmlTokenizer.isStart(kind) && depth == bodyDepth) {
+                // a body element after the section properties: they were not the last one
+                writer.write(pending.toString());
+                pending.setLength(0);
+                if (sectPr.equals(tokenizer.name())) {
+                    pending.append(token);
+                    inSectPr = GXmlTokenizer.START == kind;
+                } else {
+                    writer.write(token.toString());
+                }
+            } else if (0 < pending.length()) {
+                pending.append(token);
+            } else {
+                writer.write(token.toString());
+            }
+            depth += depth(kind);
+            kind = tokenizer.next();
+        }
+        throw new IOException("Body end not found in the main document");
+    }
+
+    /**
+     * Copy the rest of the main document (section properties of the body, body end and document end)
+     *
+     * @param writer destination
+     * @throws IOException if the document cannot be read
+     */
+    void copyTail(@Nonnull final Writer writer) throws IOException {
+        writer.write(pending.toString());
+        pending.setLength(0);
+        tokenizer.copyRest(writer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (null != reader) {
+                reader.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * @param kind token kind
+     * @return change of the element depth after the token
+     */
+    static int depth(final int kind) {
+        return GXmlTokenizer.START == kind ? 1 : GXmlTokenizer.END == kind ? -1 : 0;
+    }
+
+    /**
+     * @return the prefix (with colon, empty for the default namespace) of the WordprocessingML namespace
+     */
+    @CheckForNull
+    static String prefix(@Nonnull final Map<String, String> scope) {
+        for (final Map.Entry<String, String> declaration : scope.entrySet()) {
+            if (GSerializer.W_NS.equals(declaration.getValue())) {
+                return declaration.getKey() + ':';
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the main document entry, from the package relationships
+     */
+    @Nonnull
+    static String documentEntry(final ZipFile zipFile) throws Docx4JException {
+        final ZipArchiveEntry rels = zipFile.getEntry(RELS_ENTRY);
+        if (null == rels) {
+            return DEFAULT_DOCUMENT_ENTRY;
+        }
+        try {
+            final InputStream is = zipFile.getInputStream(rels);
+            try {
+                final XMLInputFactory factory = XMLInputFactory.newInstance();
+                factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+                factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+                final XMLStreamReader xsr = factory.createXMLStreamReader(is);
+                while (xsr.hasNext()) {
+                    if (XMLStreamConstants.START_ELEMENT == xsr.next() && "Relationship".equals(xsr.getLocalName())
+                        && String.valueOf(xsr.getAttributeValue(null, "Type")).endsWith(OFFICE_DOCUMENT)) {
+                        final String target = xsr.getAttributeValue(null, "Target");
+                        return target.startsWith("/") ? target.substring(1) : target;
+                    }
+                }
+                return DEFAULT_DOCUMENT_ENTRY;
+            } finally {
+                is.close();
+            }
+        } catch (final IOException e) {
+            throw new Docx4JException("Error reading the package relationships", e);
+        } catch (final XMLStreamException e) {
+            throw new Docx4JException("Error reading the package relationships", e);
+        }
+    }
+}
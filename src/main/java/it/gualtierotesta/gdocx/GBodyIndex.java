@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * Positions (in bytes) of the top level elements of the body of a main document part, found by
+ * {@link GXmlTokenizer}: the document can then be written again copying the bytes of the unchanged elements.
+ * <p>
+ * The body section properties are not a body element: they have their own position.
+ *
+ * @author gualtiero
+ */
+final class GBodyIndex {
+
+    private static final String ENCODING = "UTF-8";
+    private static final int INITIAL_ELEMENTS = 64;
+
+    private final Map<String, String> scope;
+    private final long headEnd;
+    private final String headSuffix;
+    private final long tailStart;
+    private final String tailPrefix;
+    private final long sectPrStart;
+    private final long sectPrEnd;
+    private final List<String> names;
+    private final long[] starts;
+    private final long[] ends;
+
+    /**
+     * Constructor
+     */
+    private GBodyIndex(final Map<String, String> pScope, final long lHeadEnd, final String sHeadSuffix,
+        final long lTailStart, final String sTailPrefix, final long lSectPrStart, final long lSectPrEnd,
+        final List<String> pNames, final long[] aStarts, final long[] aEnds) {
+        scope = pScope;
+        headEnd = lHeadEnd;
+        headSuffix = sHeadSuffix;
+        tailStart = lTailStart;
+        tailPrefix = sTailPrefix;
+        sectPrStart = lSectPrStart;
+        sectPrEnd = lSectPrEnd;
+        names = pNames;
+        starts = aStarts;
+        ends = aEnds;
+    }
+
+    /**
+     * Read the positions of the body elements of a main document part
+     *
+     * @param is main document part (UTF-8, not closed)
+     * @return the positions of the body elements
+     * @throws IOException if the part cannot be read or has no body
+     */
+    @Nonnull
+    static GBodyIndex read(@Nonnull final InputStream is) throws IOException {
+        final GXmlTokenizer tokenizer = new GXmlTokenizer(new InputStreamReader(is, ENCODING));
+        final StringBuilder token = tokenizer.token();
+
+        // before the body: the start tags declare the namespaces
+        final StringBuilder startTags = new StringBuilder();
+        String body = null;
+        String sectPr = null;
+        int depth = 0;
+        int kind = tokenizer.next();
+        while (null == body || !GXmlTokenizer.isStart(kind) || !body.equals(tokenizer.name())) {
+            if (GXmlTokenizer.EOF == kind) {
+                throw new IOException("Body not found in the main document");
+            }
+            if (GXmlTokenizer.isStart(kind)) {
+                startTags.append(token);
+                final String prefix = GAppendSource.prefix(GSerializer.namespaces(startTags.toString()));
+                if (null != prefix) {
+                    body = prefix + "body";
+                    sectPr = prefix + "sectPr";
+                }
+            }
+            depth += GAppendSource.depth(kind);
+            kind = tokenizer.next();
+        }
+        startTags.append(token);
+        final Map<String, String> scope = GSerializer.namespaces(startTags.toString());
+        final List<String> names = new ArrayList<String>();
+        if (GXmlTokenizer.EMPTY == kind) {
+            // empty body: written again as start and end tags
+            return new GBodyIndex(scope, tokenizer.tokenOffset(), token.substring(0, token.length() - 2) + ">",
+                tokenizer.offset(), "</" + body + ">", -1L, -1L, names, new long[0], new long[0]);
+        }
+        final long headEnd = tokenizer.offset();
+        final int bodyDepth = depth + 1;
+        depth = bodyDepth;
+
+        long[] starts = new long[INITIAL_ELEMENTS];
+        long[] ends = new long[INITIAL_ELEMENTS];
+        long sectPrStart = -1L;
+        long sectPrEnd = -1L;
+        long start = -1L;
+        String name = null;
+        kind = tokenizer.next();
+        while (GXmlTokenizer.EOF != kind) {
+            if (GXmlTokenizer.END == kind && depth == bodyDepth) {
+                return new GBodyIndex(scope, headEnd, "", tokenizer.tokenOffset(), "", sectPrStart, sectPrEnd,
+                    names, starts, ends);
+            }
+            if (GXmlTokenizer.isStart(kind) && depth == bodyDepth) {
+                start = tokenizer.tokenOffset();
+                name = tokenizer.name();
+            }
+            depth += GAppendSource.depth(kind);
+            if (null != name && depth == bodyDepth && GXmlTokenizer.TEXT != kind && GXmlTokenizer.OTHER != kind) {
+                // end of a body element
+                if (sectPr.equals(name)) {
+                    sectPrStart = start;
+                    sectPrEnd = tokenizer.offset();
+                } else {
+                    final int index = names.size();
+                    if (index == starts.length) {
+                        starts = Arrays.copyOf(starts, 2 * index);
+                        ends = Arrays.copyOf(ends, 2 * index);
+                    }
+                    starts[index] = start;
+                    ends[index] = tokenizer.offset();
+                    names.add(localName(name));
+                }
+                name = null;
+            }
+            kind = tokenizer.next();
+        }
+        throw new IOException("Body end not found in the main document");
+    }
+
+    /**
+     * @return namespace declarations in scope in the body
+     */
+    @Nonnull
+    Map<String, String> getScope() {
+        return scope;
+    }
+
+    /**
+     * @return number of body elements (section properties excluded)
+     */
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * @param index element index
+     * @return local name of the element
+     */
+    @Nonnull
+    String name(final int index) {
+        return names.get(index);
+    }
+
+    /**
+     * @param index element index
+     * @return position of the element start tag
+     */
+    long start(final int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index element index
+     * @return position after the element end tag
+     */
+    long end(final int index) {
+        return ends[index];
+    }
+
+    /**
+     * @return position after the body start tag, where the body elements can be written
+     */
+    long getHeadEnd() {
+        return headEnd;
+    }
+
+    /**
+     * @return text to be written after the head (the body start tag, if the body was an empty element)
+     */
+    @Nonnull
+    String getHeadSuffix() {
+        return headSuffix;
+    }
+
+    /**
+     * @return position of the body end tag
+     */
+    long getTailStart() {
+        return tailStart;
+    }
+
+    /**
+     * @return text to be written before the tail (the body end tag, if the body was an empty element)
+     */
+    @Nonnull
+    String getTailPrefix() {
+        return tailPrefix;
+    }
+
+    /**
+     * @return position of the body section properties, -1 if not found
+     */
+    long getSectPrStart() {
+        return sectPrStart;
+    }
+
+    /**
+     * @return position after the body section properties, -1 if not found
+     */
+    long getSectPrEnd() {
+        return sectPrEnd;
+    }
+
+    private static String localName(final String qName) {
+        return qName.substring(qName.indexOf(':') + 1);
+    }
+}
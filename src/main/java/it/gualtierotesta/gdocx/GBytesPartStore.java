@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.parts.CustomXmlDataStoragePart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.XmlPart;
+
+/**
+ * Part store of a package of a {@link GPackagePool}: the parts are read from the serialized skeleton, shared by all
+ * the packages of the pool and never changed.
+ * <p>
+ * The docx4j save writes to the source store of a package: the writes go to a new docx4j ZipPartStore, which reads
+ * the parts not loaded from this store.
+ *
+ * @author gualtiero
+ */
+final class GBytesPartStore implements PartStore {
+
+    private final Map<String, byte[]> entries;
+    private ZipPartStore target;
+
+    /**
+     * Constructor
+     *
+     * @param pEntries content of the parts, by zip entry name (read only)
+     */
+    GBytesPartStore(@Nonnull final Map<String, byte[]> pEntries) {
+        entries = pEntries;
+    }
+
+    @Override
+    public InputStream loadPart(final String sPartName) throws Docx4JException {
+        final byte[] bytes = entries.get(sPartName);
+        return null == bytes ? null : new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public long getPartSize(final String sPartName) throws Docx4JException {
+        final byte[] bytes = entries.get(sPartName);
+        return null == bytes ? -1L : bytes.length;
+    }
+
+    @Override
+    public void setOutputStream(final OutputStream pOutputStream) throws Docx4JException {
+        target = new ZipPartStore();
+        target.setSourcePartStore(this);
+        target.setOutputStream(pOutputStream);
+    }
+
+    @Override
+    public void setSourcePartStore(final PartStore pSourcePartStore) {
+        // the parts not loaded are always read from this store
+    }
+
+    @Override
+    public void saveContentTypes(final ContentTypeManager ctm) throws Docx4JException {
+        target().saveContentTypes(ctm);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void saveJaxbXmlPart(final JaxbXmlPart part) throws Docx4JException {
+        target().saveJaxbXmlPart(part);
+    }
+
+    @Override
+    public void saveCustomXmlDataStoragePart(final CustomXmlDataStoragePart part) throws Docx4JException {
+        target().saveCustomXmlDataStoragePart(part);
+    }
+
+    @Override
+    public void saveXmlPart(final XmlPart part) throws Docx4JException {
+        target().saveXmlPart(part);
+    }
+
+    @Override
+    public void saveBinaryPart(final Part part) throws Docx4JException {
+        target().saveBinaryPart(part);
+    }
+
+    @Override
+    public void finishSave() throws Docx4JException {
+        try {
+            target().finishSave();
+        } finally {
+            target = null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        // the entries are shared by the packages of the pool
+        target = null;
+    }
+
+    private ZipPartStore target() throws Docx4JException {
+        if (null == target) {
+            throw new Docx4JException("Output stream not set");
+        }
+        return target;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.TcPr;
+
+/**
+ * Column template for {@link GTbl#fromRows(GColumn[], Iterable)}: cell and paragraph formatting defined once and
+ * shared by all the cells of the column.
+ * <p>
+ * The formatting is taken from a template cell and a template paragraph (their contents are ignored):
+ * <pre>
+ * GColumn.create(GTc.create().width(2000L, "dxa").shd("auto", "EEEEEE"), GP.create().font("Arial", 8L).bold());
+ * </pre>
+ * The properties objects are shared, not copied: changing the template after the table creation changes all the
+ * cells of the column.
+ *
+ * @author gualtiero
+ */
+public final class GColumn {
+
+    private final TcPr tcPr;
+    private final PPr pPr;
+    private final RPr rPr;
+
+    /**
+     * Constructor
+     */
+    private GColumn(final TcPr pTcPr, final PPr pPPr, final RPr pRPr) {
+        tcPr = pTcPr;
+        pPr = pPPr;
+        rPr = pRPr;
+    }
+
+    /**
+     * Static factory for a column with cell formatting only
+     *
+     * @param cell template cell
+     * @return new GColumn instance
+     */
+    @Nonnull
+    public static GColumn create(@Nonnull final GTc cell) {
+
+        Validate.notNull(cell, "Template cell not valid");
+
+        return new GColumn(cell.getTcPr(), null, null);
+    }
+
+    /**
+     * Static factory for a column with cell and paragraph formatting
+     *
+     * @param cell      template cell
+     * @param paragraph template paragraph (alignment and font)
+     * @return new GColumn instance
+     */
+    @Nonnull
+    public static GColumn create(@Nonnull final GTc cell, @Nonnull final GP paragraph) {
+
+        Validate.notNull(cell, "Template cell not valid");
+        Validate.notNull(paragraph, "Template paragraph not valid");
+
+        return new GColumn(cell.getTcPr(), paragraph.getPPr(), paragraph.runProperties());
+    }
+
+    @Nonnull
+    TcPr getTcPr() {
+        return tcPr;
+    }
+
+    @CheckForNull
+    PPr getPPr() {
+        return pPr;
+    }
+
+    @CheckForNull
+    RPr getRPr() {
+        return rPr;
+    }
+}
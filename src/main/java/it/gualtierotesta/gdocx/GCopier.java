@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.ParaRPr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.RPrAbstract;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.TblBorders;
+import org.docx4j.wml.TblGrid;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblPr;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.TcPr;
+import org.docx4j.wml.TcPrInner;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.docx4j.wml.TrPr;
+import org.jvnet.jaxb2_commons.ppp.Child;
+
+/**
+ * Structural copy of paragraphs, runs, tables, rows and cells, used by the copy() methods of the G* classes.
+ * <p>
+ * Elements, content lists and property containers (pPr, rPr, tblPr, tcPr, borders,...) are duplicated. The
+ * property values (fonts, colors, sizes, borders, widths,...) are shared only if they are read only GFactory
+ * instances; the others (for ex. unmarshalled ones) are duplicated field by field, so a change of a copy never
+ * reaches its source. Objects shared in the source (for ex. the rPr of the runs of a GP) are shared in the copy
+ * too. Objects not known by the gdocx serializer are copied with a JAXB round trip
+ * ({@link GJaxbPool#deepCopy(Object)}).
+ * <p>
+ * An instance is used for a single copy operation.
+ *
+ * @author gualtiero
+ */
+final class GCopier {
+
+    private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private static final ConcurrentMap<Class<?>, Field[]> VALUE_FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+    private static final Field[] NOT_SIMPLE = new Field[0];
+
+    private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+    /**
+     * Copy a content element
+     *
+     * @param obj element to be copied (for ex. GP, R, Text, JAXBElement of Tbl)
+     * @return the copy
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Nonnull
+    Object element(@Nonnull final Object obj) {
+        final Class<?> clazz = obj.getClass();
+        if (obj instanceof GP) {
+            return ((GP) obj).copy(this);
+        } else if (obj instanceof GTbl) {
+            return ((GTbl) obj).copy(this);
+        } else if (obj instanceof GTr) {
+            return ((GTr) obj).copy(this);
+        } else if (obj instanceof GTc) {
+            return ((GTc) obj).copy(this);
+        } else if (P.class == clazz) {
+            return p((P) obj, FACTORY.createP());
+        } else if (R.class == clazz) {
+            return r((R) obj);
+        } else if (Text.class == clazz) {
+            final Text text = FACTORY.createText();
+            text.setValue(((Text) obj).getValue());
+            text.setSpace(((Text) obj).getSpace());
+            return text;
+        } else if (Br.class == clazz) {
+            final Br br = FACTORY.createBr();
+            br.setType(((Br) obj).getType());
+            br.setClear(((Br) obj).getClear());
+            return br;
+        } else if (Tbl.class == clazz) {
+            return tbl((Tbl) obj, FACTORY.createTbl());
+        } else if (Tr.class == clazz) {
+            return tr((Tr) obj, FACTORY.createTr());
+        } else if (Tc.class == clazz) {
+            return tc((Tc) obj, FACTORY.createTc());
+        } else if (obj instanceof JAXBElement) {
+            final JAXBElement element = (JAXBElement) obj;
+            final Object value = element.getValue();
+            if (value instanceof P || value instanceof R || value instanceof Text || value instanceof Br
+                || value instanceof Tbl || value instanceof Tr || value instanceof Tc) {
+                return new JAXBElement(element.getName(), element.getDeclaredType(), element.getScope(),
+                    element(value));
+            }
+        }
+        return GJaxbPool.deepCopy(obj);
+    }
+
+    /**
+     * Copy paragraph attributes, properties and content
+     *
+     * @param src source paragraph
+     * @param dst destination paragraph
+     * @return the destination paragraph
+     */
+    @Nonnull
+    <T extends P> T p(@Nonnull final P src, @Nonnull final T dst) {
+        dst.setRsidRPr(src.getRsidRPr());
+        dst.setRsidR(src.getRsidR());
+        dst.setRsidDel(src.getRsidDel());
+        dst.setRsidP(src.getRsidP());
+        dst.setRsidRDefault(src.getRsidRDefault());
+        dst.setParaId(src.getParaId());
+        dst.setTextId(src.getTextId());
+        dst.setPPr(pPr(src.getPPr()));
+        content(src, dst);
+        return dst;
+    }
+
+    /**
+     * Copy table properties, grid and content
+     *
+     * @param src source table
+     * @param dst destination table
+     * @return the destination table
+     */
+    @Nonnull
+    <T extends Tbl> T tbl(@Nonnull final Tbl src, @Nonnull final T dst) {
+        dst.setTblPr(tblPr(src.getTblPr()));
+        dst.setTblGrid(tblGrid(src.getTblGrid()));
+        content(src, dst);
+        return dst;
+    }
+
+    /**
+     * Copy row attributes, properties and content
+     *
+     * @param src source row
+     * @param dst destination row
+     * @return the destination row
+     */
+    @Nonnull
+    <T extends Tr> T tr(@Nonnull final Tr src, @Nonnull final T dst) {
+        dst.setRsidRPr(src.getRsidRPr());
+        dst.setRsidR(src.getRsidR());
+        dst.setRsidDel(src.getRsidDel());
+        dst.setRsidTr(src.getRsidTr());
+        dst.setParaId(src.getParaId());
+        dst.setTextId(src.getTextId());
+        dst.setTblPrEx(null == src.getTblPrEx() ? null : GJaxbPool.deepCopy(src.getTblPrEx()));
+        dst.setTrPr(trPr(src.getTrPr()));
+        content(src, dst);
+        return dst;
+    }
+
+    /**
+     * Copy cell properties and content
+     *
+     * @param src source cell
+     * @param dst destination cell
+     * @return the destination cell
+     */
+    @Nonnull
+    <T extends Tc> T tc(@Nonnull final Tc src, @Nonnull final T dst) {
+        dst.setTcPr(tcPr(src.getTcPr()));
+        content(src, dst);
+        return dst;
+    }
+
+    /**
+     * Copy run properties
+     *
+     * @param src source properties (can be null)
+     * @return the copy or null
+     */
+    @CheckForNull
+    RPr rPr(@CheckForNull final RPr src) {
+        if (null == src) {
+            return null;
+        }
+        RPr dst = (RPr) copies.get(src);
+        if (null == dst) {
+            if (RPr.class == src.getClass() && GSerializer.isKnown(src)) {
+                dst = FACTORY.createRPr();
+                rPrContent(src, dst);
+            } else {
+                dst = GJaxbPool.deepCopy(src);
+            }
+            copies.put(src, dst);
+        }
+        return dst;
+    }
+
+    private R r(final R src) {
+        final R dst = FACTORY.createR();
+        dst.setRsidRPr(src.getRsidRPr());
+        dst.setRsidDel(src.getRsidDel());
+        dst.setRsidR(src.getRsidR());
+        dst.setRPr(rPr(src.getRPr()));
+        content(src, dst);
+        return dst;
+    }
+
+    /**
+     * Copy the content of a container; the copied elements whose parent is the source get the destination as parent
+     */
+    private void content(final ContentAccessor src, final ContentAccessor dst) {
+        final List<Object> content = dst.getContent();
+        if (content instanceof ArrayList) {
+            ((ArrayList<Object>) content).ensureCapacity(src.getContent().size());
+        }
+        for (final Object obj : src.getContent()) {
+            final Object copy = element(obj);
+            final Object value = XmlUtils.unwrap(obj);
+            final Object copied = XmlUtils.unwrap(copy);
+            if (value instanceof Child && copied instanceof Child && src == ((Child) value).getParent()) {
+                ((Child) copied).setParent(dst);
+            }
+            content.add(copy);
+        }
+    }
+
+    private PPr pPr(final PPr src) {
+        if (null == src) {
+            return null;
+        }
+        PPr dst = (PPr) copies.get(src);
+        if (null == dst) {
+            if (PPr.class == src.getClass() && GSerializer.isKnown(src)) {
+                dst = FACTORY.createPPr();
+                dst.setPStyle(value(src.getPStyle()));
+                dst.setJc(value(src.getJc()));
+                dst.setRPr(paraRPr(src.getRPr()));
+            } else {
+                dst = GJaxbPool.deepCopy(src);
+            }
+            copies.put(src, dst);
+        }
+        return dst;
+    }
+
+    private ParaRPr paraRPr(final ParaRPr src) {
+        if (null == src) {
+            return null;
+        }
+        final ParaRPr dst;
+        if (ParaRPr.class == src.getClass() && GSerializer.isKnown(src)) {
+            dst = FACTORY.createParaRPr();
+            rPrContent(src, dst);
+        } else {
+            dst = GJaxbPool.deepCopy(src);
+        }
+        return dst;
+    }
+
+    private void rPrContent(final RPrAbstract src, final RPrAbstract dst) {
+        dst.setRStyle(value(src.getRStyle()));
+        dst.setRFonts(value(src.getRFonts()));
+        dst.setB(value(src.getB()));
+        dst.setI(value(src.getI()));
+        dst.setColor(value(src.getColor()));
+        dst.setSz(value(src.getSz()));
+        dst.setSzCs(value(src.getSzCs()));
+    }
+
+    private TblPr tblPr(final TblPr src) {
+        if (null == src) {
+            return null;
+        }
+        TblPr dst = (TblPr) copies.get(src);
+        if (null == dst) {
+            if (TblPr.class == src.getClass() && GSerializer.isKnown(src)) {
+                dst = FACTORY.createTblPr();
+                dst.setTblW(value(src.getTblW()));
+                dst.setJc(value(src.getJc()));
+                dst.setTblLayout(value(src.getTblLayout()));
+                dst.setTblLook(value(src.getTblLook()));
+                final TblBorders borders = src.getTblBorders();
+                if (null != borders) {
+                    final TblBorders bordersCopy = FACTORY.createTblBorders();
+                    bordersCopy.setTop(value(borders.getTop()));
+                    bordersCopy.setLeft(value(borders.getLeft()));
+                    bordersCopy.setBottom(value(borders.getBottom()));
+                    bordersCopy.setRight(value(borders.getRight()));
+                    bordersCopy.setInsideH(value(borders.getInsideH()));
+                    bordersCopy.setInsideV(value(borders.getInsideV()));
+                    dst.setTblBorders(bordersCopy);
+                }
+            } else {
+                dst = GJaxbPool.deepCopy(src);
+            }
+            copies.put(src, dst);
+        }
+        return dst;
+    }
+
+    private TblGrid tblGrid(final TblGrid src) {
+        if (null == src) {
+            return null;
+        }
+        final TblGrid dst;
+        if (TblGrid.class == src.getClass() && null == src.getTblGridChange()) {
+            dst = FACTORY.createTblGrid();
+            final List<TblGridCol> gridCols = dst.getGridCol();
+            for (final TblGridCol gridCol : src.getGridCol()) {
+                gridCols.add(value(gridCol));
+            }
+        } else {
+            dst = GJaxbPool.deepCopy(src);
+        }
+        return dst;
+    }
+
+    private TrPr trPr(final TrPr src) {
+        if (null == src) {
+            return null;
+        }
+        TrPr dst = (TrPr) copies.get(src);
+        if (null == dst) {
+            if (TrPr.class == src.getClass() && GSerializer.isKnown(src)) {
+                dst = FACTORY.createTrPr();
+                final List<JAXBElement<?>> properties = dst.getCnfStyleOrDivIdOrGridBefore();
+                for (final JAXBElement<?> property : src.getCnfStyleOrDivIdOrGridBefore()) {
+                    properties.add(value(property));
+                }
+            } else {
+                dst = GJaxbPool.deepCopy(src);
+            }
+            copies.put(src, dst);
+        }
+        return dst;
+    }
+
+    private TcPr tcPr(final TcPr src) {
+        if (null == src) {
+            return null;
+        }
+        TcPr dst = (TcPr) copies.get(src);
+        if (null == dst) {
+            if (TcPr.class == src.getClass() && GSerializer.isKnown(src)) {
+                dst = FACTORY.createTcPr();
+                dst.setTcW(value(src.getTcW()));
+                dst.setGridSpan(value(src.getGridSpan()));
+                dst.setVMerge(value(src.getVMerge()));
+                dst.setShd(value(src.getShd()));
+                dst.setVAlign(value(src.getVAlign()));
+                final TcPrInner.TcBorders borders = src.getTcBorders();
+                if (null != borders) {
+                    final TcPrInner.TcBorders bordersCopy = FACTORY.createTcPrInnerTcBorders();
+                    bordersCopy.setTop(value(borders.getTop()));
+                    bordersCopy.setLeft(value(borders.getLeft()));
+                    bordersCopy.setBottom(value(borders.getBottom()));
+                    bordersCopy.setRight(value(borders.getRight()));
+                    bordersCopy.setInsideH(value(borders.getInsideH()));
+                    bordersCopy.setInsideV(value(borders.getInsideV()));
+                    bordersCopy.setTl2Br(value(borders.getTl2Br()));
+                    bordersCopy.setTr2Bl(value(borders.getTr2Bl()));
+                    dst.setTcBorders(bordersCopy);
+                }
+            } else {
+                dst = GJaxbPool.deepCopy(src);
+            }
+            copies.put(src, dst);
+        }
+        return dst;
+    }
+
+    /**
+     * Copy a property value
+     *
+     * @param src value (can be null), for ex. a border or a JAXBElement of a row height
+     * @return the same value if read only, else a copy
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> T value(final T src) {
+        if (null == src || src instanceof GFrozen.Value) {
+            return src;
+        }
+        Object dst = copies.get(src);
+        if (null == dst) {
+            if (src instanceof JAXBElement) {
+                final JAXBElement element = (JAXBElement) src;
+                dst = new JAXBElement(element.getName(), element.getDeclaredType(), element.getScope(),
+                    value(element.getValue()));
+            } else {
+                dst = duplicate(src);
+            }
+            copies.put(src, dst);
+        }
+        return (T) dst;
+    }
+
+    /**
+     * @return a new instance with the same field values, or a JAXB copy if a field is not a simple value
+     */
+    private static Object duplicate(final Object src) {
+        final Field[] fields = valueFields(src.getClass());
+        if (NOT_SIMPLE != fields) {
+            try {
+                final Object dst = src.getClass().getDeclaredConstructor().newInstance();
+                for (final Field field : fields) {
+                    field.set(dst, field.get(src));
+                }
+                return dst;
+            } catch (final NoSuchMethodException e) {
+                // no default constructor
+            } catch (final InstantiationException e) {
+                // abstract class
+            } catch (final InvocationTargetException e) {
+                // constructor failed
+            } catch (final IllegalAccessException e) {
+                // not accessible
+            }
+        }
+        return GJaxbPool.deepCopy(src);
+    }
+
+    /**
+     * @return the instance fields of a value class (parent excluded), NOT_SIMPLE if one of them is not an immutable
+     * value
+     */
+    private static Field[] valueFields(final Class<?> type) {
+        Field[] fields = VALUE_FIELDS.get(type);
+        if (null == fields) {
+            final List<Field> list = new ArrayList<Field>();
+            for (Class<?> clazz = type; Object.class != clazz && NOT_SIMPLE != fields; clazz = clazz.getSuperclass()) {
+                for (final Field field : clazz.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || "parent".equals(field.getName())) {
+                        continue;
+                    }
+                    final Class<?> fieldType = field.getType();
+                    if (!fieldType.isPrimitive() && String.class != fieldType && Boolean.class != fieldType
+                        && !fieldType.isEnum() && !Number.class.isAssignableFrom(fieldType)) {
+                        fields = NOT_SIMPLE;
+                        break;
+                    }
+                    field.setAccessible(true);
+                    list.add(field);
+                }
+            }
+            if (null == fields) {
+                fields = list.toArray(new Field[list.size()]);
+            }
+            VALUE_FIELDS.putIfAbsent(type, fields);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+
+/**
+ * Parallel document assembler.
+ * <p>
+ * The sections are built concurrently and their contents are merged in the order the sections have been added:
+ * <pre>
+ * GDocumentAssembler assembler = GDocumentAssembler.create();
+ * for (final Customer customer : customers) {
+ *     assembler.add(new GSection() {
+ *         public void build(List&lt;Object&gt; content) {
+ *             content.add(GP.create().text(customer.getName()).bold());
+ *             content.add(customerTable(customer));
+ *         }
+ *     });
+ * }
+ * assembler.assemble(wordMLPackage.getMainDocumentPart());
+ * </pre>
+ * By default a pool with a thread for each available processor is created for every assembly; an executor (for
+ * ex. a ForkJoinPool) can be given with {@link #executor(ExecutorService)}. The thread safety rules of the
+ * builders are described in the package documentation. A GDocumentAssembler instance is not thread safe.
+ *
+ * @author gualtiero
+ */
+public final class GDocumentAssembler {
+
+    private final List<GSection> sections = new ArrayList<GSection>();
+    private ExecutorService executor;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructor
+     */
+    private GDocumentAssembler() {
+    }
+
+    /**
+     * Static factory
+     *
+     * @return new GDocumentAssembler instance
+     */
+    @Nonnull
+    public static GDocumentAssembler create() {
+        return new GDocumentAssembler();
+    }
+
+    /**
+     * Add a section
+     *
+     * @param section section builder
+     * @return same GDocumentAssembler instance
+     */
+    @Nonnull
+    public GDocumentAssembler add(@Nonnull final GSection section) {
+
+        Validate.notNull(section, "Section not valid");
+
+        sections.add(section);
+        return this;
+    }
+
+    /**
+     * Set the number of threads of the default pool (default: number of available processors)
+     *
+     * @param iThreads number of threads (at least 1)
+     * @return same GDocumentAssembler instance
+     */
+    @Nonnull
+    public GDocumentAssembler parallelism(final int iThreads) {
+
+        Validate.isTrue(0 < iThreads, "Parallelism value not valid");
+
+        parallelism = iThreads;
+        return this;
+    }
+
+    /**
+     * Use the given executor instead of the default pool. The executor is not shut down by the assembler.
+     *
+     * @param pExecutor executor running the sections
+     * @return same GDocumentAssembler instance
+     */
+    @Nonnull
+    public GDocumentAssembler executor(@Nonnull final ExecutorService pExecutor) {
+
+        Validate.notNull(pExecutor, "Executor not valid");
+
+        executor = pExecutor;
+        return this;
+    }
+
+    /**
+     * Build all the sections
+     *
+     * @return the contents of the sections, in order
+     * @throws Docx4JException if a section cannot be built (the other sections are cancelled)
+     */
+    @Nonnull
+    public List<Object> build() throws Docx4JException {
+
+        final ExecutorService service = null == executor ? Executors.newFixedThreadPool(parallelism) : executor;
+        final List<Future<List<Object>>> futures = new ArrayList<Future<List<Object>>>(sections.size());
+        try {
+            for (final GSection section : sections) {
+                futures.add(service.submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() throws Exception {
+                        final List<Object> content = new ArrayList<Object>();
+                        section.build(content);
+                        return content;
+                    }
+                }));
+            }
+            final List<Object> result = new ArrayList<Object>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.addAll(futures.get(i).get());
+                } catch (final ExecutionException e) {
+                    throw new Docx4JException("Error building section " + i, e.getCause());
+                }
+            }
+            return result;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Docx4JException("Document assembly interrupted", e);
+        } finally {
+            for (final Future<List<Object>> future : futures) {
+                future.cancel(true);
+            }
+            if (null == executor) {
+                service.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Build all the sections and add their contents, in order, to the main document part
+     *
+     * @param mdp destination main document part
+     * @throws Docx4JException if a section cannot be built (nothing is added to the document)
+     */
+    public void assemble(@Nonnull final MainDocumentPart mdp) throws Docx4JException {
+
+        Validate.notNull(mdp, "Main document part not valid");
+
+        mdp.getContent().addAll(build());
+    }
+}
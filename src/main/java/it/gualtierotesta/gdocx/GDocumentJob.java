@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.Nonnull;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+
+/**
+ * Builder of a whole document, run by {@link GDocumentRenderer} which then saves it.
+ *
+ * @author gualtiero
+ */
+public interface GDocumentJob {
+
+    /**
+     * Build the document
+     *
+     * @return the document to be saved
+     * @throws Exception if the document cannot be built
+     */
+    @Nonnull
+    WordprocessingMLPackage build() throws Exception;
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+
+/**
+ * Executor of document jobs (build and save of a whole document), for services rendering one document per request.
+ * <p>
+ * On a JVM with virtual threads (Java 21+) every job runs on its own virtual thread, so the blocking save I/O does
+ * not hold a platform thread; on older JVMs the jobs run on a pool with {@link #maxDocuments(int)} threads. In both
+ * cases at most maxDocuments jobs are building or saving at the same time (so at most maxDocuments packages are in
+ * memory); the others wait for a permit.
+ * <p>
+ * A job with a deadline fails with a TimeoutException if the permit is not obtained or the document is not built
+ * before the deadline (a build in progress is not interrupted, its document is discarded). The queue and render
+ * times are collected in {@link #metrics()}.
+ * <pre>
+ * GDocumentRenderer renderer = GDocumentRenderer.create().maxDocuments(16).deadline(30, TimeUnit.SECONDS);
+ * Future&lt;Void&gt; done = renderer.submit(job, responseStream);
+ * </pre>
+ * The configuration methods must be called before the first submit.
+ *
+ * @author gualtiero
+ */
+public final class GDocumentRenderer {
+
+    private int maxDocuments = 2 * Runtime.getRuntime().availableProcessors();
+    private long deadlineNanos;
+    private GDocxSaver saver;
+    private ExecutorService executor;
+    private boolean ownExecutor;
+    private boolean virtual;
+    private Semaphore permits;
+    private final GRenderMetrics metrics = new GRenderMetrics();
+
+    /**
+     * Constructor
+     */
+    private GDocumentRenderer() {
+    }
+
+    /**
+     * Static factory
+     *
+     * @return new GDocumentRenderer instance
+     */
+    @Nonnull
+    public static GDocumentRenderer create() {
+        return new GDocumentRenderer();
+    }
+
+    /**
+     * Set the maximum number of documents built or saved at the same time (default: twice the available processors)
+     *
+     * @param iDocuments maximum number of documents (at least 1)
+     * @return same GDocumentRenderer instance
+     */
+    @Nonnull
+    public GDocumentRenderer maxDocuments(final int iDocuments) {
+
+        Validate.isTrue(0 < iDocuments, "Maximum number of documents not valid");
+        checkNotStarted();
+
+        maxDocuments = iDocuments;
+        return this;
+    }
+
+    /**
+     * Set the deadline of every job, measured from its submission (default: no deadline)
+     *
+     * @param lTime deadline (greater than zero)
+     * @param unit  time unit
+     * @return same GDocumentRenderer instance
+     */
+    @Nonnull
+    public GDocumentRenderer deadline(final long lTime, @Nonnull final TimeUnit unit) {
+
+        Validate.isTrue(0L < lTime, "Deadline not valid");
+        Validate.notNull(unit, "Time unit not valid");
+        checkNotStarted();
+
+        deadlineNanos = unit.toNanos(lTime);
+        return this;
+    }
+
+    /**
+     * Save the documents with the given saver instead of the docx4j save. The saver must not be changed while the
+     * renderer is used.
+     *
+     * @param pSaver saver (for ex. {@code GDocxSaver.create().level(Deflater.BEST_SPEED)})
+     * @return same GDocumentRenderer instance
+     */
+    @Nonnull
+    public GDocumentRenderer saver(@Nonnull final GDocxSaver pSaver) {
+
+        Validate.notNull(pSaver, "Saver not valid");
+        checkNotStarted();
+
+        saver = pSaver;
+        return this;
+    }
+
+    /**
+     * Run the jobs with the given executor instead of virtual threads or the default pool. The executor is not shut
+     * down by the renderer.
+     *
+     * @param pExecutor executor running the jobs
+     * @return same GDocumentRenderer instance
+     */
+    @Nonnull
+    public GDocumentRenderer executor(@Nonnull final ExecutorService pExecutor) {
+
+        Validate.notNull(pExecutor, "Executor not valid");
+        checkNotStarted();
+
+        executor = pExecutor;
+        return this;
+    }
+
+    /**
+     * Submit a job: the document is built and saved to the stream by another thread
+     *
+     * @param job document builder
+     * @param os  destination stream (not closed)
+     * @return the result of the job: an ExecutionException gives the build or save error, or a TimeoutException if
+     * the deadline expired
+     */
+    @Nonnull
+    public Future<Void> submit(@Nonnull final GDocumentJob job, @Nonnull final OutputStream os) {
+
+        Validate.notNull(job, "Job not valid");
+        Validate.notNull(os, "Output stream not valid");
+
+        final long submitted = System.nanoTime();
+        final ExecutorService service = start();
+        metrics.submitted();
+        return service.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                render(job, os, submitted);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return true if the jobs run on virtual threads (known after the first submit)
+     */
+    public synchronized boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the counters and times of the jobs
+     */
+    @Nonnull
+    public GRenderMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Shut down the default executor (or the virtual thread executor) after the submitted jobs
+     */
+    public synchronized void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private void render(final GDocumentJob job, final OutputStream os, final long submitted) throws Exception {
+        if (!acquire(submitted)) {
+            metrics.timedOut();
+            throw new TimeoutException("Document job deadline expired before start");
+        }
+        final long start = System.nanoTime();
+        metrics.started(start - submitted);
+        boolean success = false;
+        try {
+            final WordprocessingMLPackage pkg = job.build();
+            Validate.notNull(pkg, "Document not valid");
+            if (expired(submitted)) {
+                metrics.timedOut();
+                throw new TimeoutException("Document job deadline expired during build");
+            }
+            if (null == saver) {
+                pkg.save(os);
+            } else {
+                saver.save(pkg, os);
+            }
+            success = true;
+        } catch (final TimeoutException e) {
+            throw e;
+        } catch (final Exception e) {
+            metrics.rendered(System.nanoTime() - start, false);
+            throw e;
+        } finally {
+            permits.release();
+        }
+        metrics.rendered(System.nanoTime() - start, success);
+    }
+
+    private boolean acquire(final long submitted) throws InterruptedException {
+        if (0L == deadlineNanos) {
+            permits.acquire();
+            return true;
+        }
+        return permits.tryAcquire(deadlineNanos - (System.nanoTime() - submitted), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean expired(final long submitted) {
+        return 0L != deadlineNanos && System.nanoTime() - submitted > deadlineNanos;
+    }
+
+    private synchronized ExecutorService start() {
+        if (null == permits) {
+            permits = new Semaphore(maxDocuments, true);
+            if (null == executor) {
+                executor = virtualThreadExecutor();
+                virtual = null != executor;
+                if (!virtual) {
+                    executor = Executors.newFixedThreadPool(maxDocuments);
+                }
+                ownExecutor = true;
+            }
+        }
+        return executor;
+    }
+
+    private synchronized void checkNotStarted() {
+        if (null != permits) {
+            throw new IllegalStateException("Renderer already started");
+        }
+    }
+
+    /**
+     * @return a new virtual thread per task executor, or null if the JVM has no virtual threads
+     */
+    @CheckForNull
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        } catch (final IllegalAccessException e) {
+            return null;
+        } catch (final InvocationTargetException e) {
+            // preview feature not enabled (Java 19 and 20)
+            return null;
+        }
+    }
+}
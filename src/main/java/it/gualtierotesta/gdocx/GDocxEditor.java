@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.P;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Tbl;
+import org.jvnet.jaxb2_commons.ppp.Child;
+
+/**
+ * Existing docx changed and saved again incrementally.
+ * <p>
+ * The save writes again only what changed since the document was opened (or last saved in place): the other parts
+ * are copied as raw zip entries, without decompressing them, and the main document is rebuilt from the bytes of its
+ * unchanged body elements, so only the new and changed elements are serialized. Small changes to a large document
+ * are saved in the time needed to copy the file and to compress again the main document part.
+ * <p>
+ * Added, removed, replaced and moved body elements are found comparing the body with the opened one; the relationship
+ * parts are always written again. Any other change must be reported: {@link #changed(Object)} for an element (or any
+ * object contained in it) of the body, {@link #changed(Part)} for any other part.
+ * <pre>
+ * GDocxEditor editor = GDocxEditor.open(file);
+ * Tbl tbl = (Tbl) XmlUtils.unwrap(editor.getPackage().getMainDocumentPart().getContent().get(3));
+ * tbl.getContent().add(GTr.create().add(GTc.create().add(GP.create().text("New row"))));
+ * editor.changed(tbl).save();
+ * </pre>
+ * The opened file must not be changed by others until the last save.
+ *
+ * @author gualtiero
+ */
+public final class GDocxEditor {
+
+    private static final String ENCODING = "UTF-8";
+    private static final QName SECT_PR = new QName(GSerializer.W_NS, "sectPr");
+
+    private final File file;
+    private final WordprocessingMLPackage pkg;
+    private final Set<Object> changedElements = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    private final Set<Part> changedParts = Collections.newSetFromMap(new IdentityHashMap<Part, Boolean>());
+    private Map<String, Part> originalParts;
+    private Object[] originalContent;
+    private SectPr originalSectPr;
+    private String documentEntry;
+    private GBodyIndex index;
+    private Map<Object, Integer> positions;
+    private ZipFile zipFile;
+
+    /**
+     * Constructor
+     */
+    private GDocxEditor(final File pFile, final WordprocessingMLPackage pPkg) {
+        file = pFile;
+        pkg = pPkg;
+    }
+
+    /**
+     * Static factory
+     *
+     * @param docx document to be changed
+     * @return new GDocxEditor instance, with the document loaded
+     * @throws Docx4JException if the document cannot be loaded
+     */
+    @Nonnull
+    public static GDocxEditor open(@Nonnull final File docx) throws Docx4JException {
+
+        Validate.notNull(docx, "File not valid");
+
+        final GDocxEditor editor = new GDocxEditor(docx, WordprocessingMLPackage.load(docx));
+        editor.snapshot();
+        return editor;
+    }
+
+    /**
+     * @return the loaded document
+     */
+    @Nonnull
+    public WordprocessingMLPackage getPackage() {
+        return pkg;
+    }
+
+    /**
+     * Report a change of a body element
+     *
+     * @param element changed element of the body, or any object contained in it (for ex. a row of a table)
+     * @return same GDocxEditor instance
+     */
+    @Nonnull
+    public GDocxEditor changed(@Nonnull final Object element) {
+
+        Validate.notNull(element, "Element not valid");
+
+        Object top = XmlUtils.unwrap(element);
+        while (top instanceof Child && null != ((Child) top).getParent()
+            && !(((Child) top).getParent() instanceof Body)) {
+            top = XmlUtils.unwrap(((Child) top).getParent());
+        }
+        Validate.isTrue(top == body().getSectPr() || null != positions && positions.containsKey(top)
+            || contains(body().getContent(), top), "Element not in the document body");
+
+        changedElements.add(top);
+        return this;
+    }
+
+    /**
+     * Report a change of a part (for ex. styles, numbering, a header or an image)
+     *
+     * @param part changed part
+     * @return same GDocxEditor instance
+     */
+    @Nonnull
+    public GDocxEditor changed(@Nonnull final Part part) {
+
+        Validate.notNull(part, "Part not valid");
+
+        changedParts.add(part);
+        return this;
+    }
+
+    /**
+     * Save the document to the opened file
+     *
+     * @throws Docx4JException if the document cannot be saved
+     */
+    public void save() throws Docx4JException {
+        save(GDocxSaver.create(), file);
+    }
+
+    /**
+     * Save the document to a file. If the file is the opened one, the document is written to a temporary file which
+     * then replaces it, and the next save starts from the saved document.
+     *
+     * @param saver saver of the changed parts (for ex. with a compression level)
+     * @param docx  destination file
+     * @throws Docx4JException if the document cannot be saved
+     */
+    public void save(@Nonnull final GDocxSaver saver, @Nonnull final File docx) throws Docx4JException {
+
+        Validate.notNull(saver, "Saver not valid");
+        Validate.notNull(docx, "File not valid");
+
+        final boolean inPlace = file.getAbsoluteFile().equals(docx.getAbsoluteFile());
+        File temporary = null;
+        OutputStream os = null;
+        try {
+            if (inPlace) {
+                temporary = File.createTempFile("gdocx", ".tmp", file.getAbsoluteFile().getParentFile());
+            }
+            os = new BufferedOutputStream(new FileOutputStream(inPlace ? temporary : docx));
+            save(saver, os);
+            os.close();
+            os = null;
+            if (inPlace) {
+                GFiles.replace(temporary, file);
+                temporary = null;
+                changedElements.clear();
+                changedParts.clear();
+                snapshot();
+            }
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing " + docx, e);
+        } finally {
+            IOUtils.closeQuietly(os);
+            FileUtils.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Save the document to a stream
+     *
+     * @param saver saver of the changed parts (for ex. with a compression level)
+     * @param os    destination stream (not closed)
+     * @throws Docx4JException if the document cannot be saved
+     */
+    public void save(@Nonnull final GDocxSaver saver, @Nonnull final OutputStream os) throws Docx4JException {
+
+        Validate.notNull(saver, "Saver not valid");
+        Validate.notNull(os, "Output stream not valid");
+
+        try {
+            zipFile = new ZipFile(file);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening " + file, e);
+        }
+        try {
+            saver.save(pkg, os, this);
+        } finally {
+            ZipFile.closeQuietly(zipFile);
+            zipFile = null;
+        }
+    }
+
+    /**
+     * Entry of the opened file which can be copied instead of the part
+     *
+     * @param sEntryName entry name of the part
+     * @param part       part to be saved
+     * @return the entry, or null if the part has to be written again
+     */
+    @CheckForNull
+    ZipArchiveEntry unchanged(@Nonnull final String sEntryName, @Nonnull final Part part) {
+        if (part instanceof RelationshipsPart || originalParts.get(sEntryName) != part || changedParts.contains(part)
+            || part == pkg.getMainDocumentPart() && isBodyChanged()) {
+            return null;
+        }
+        return zipFile.getEntry(sEntryName);
+    }
+
+    /**
+     * @param entry entry of the opened file
+     * @return the compressed data of the entry
+     * @throws IOException if the entry cannot be read
+     */
+    @Nonnull
+    InputStream rawInputStream(@Nonnull final ZipArchiveEntry entry) throws IOException {
+        return zipFile.getRawInputStream(entry);
+    }
+
+    /**
+     * Content of a changed main document, copying the unchanged body elements from the opened file
+     *
+     * @param part part to be saved
+     * @return the main document content, or null if the part has to be marshalled
+     */
+    @CheckForNull
+    Callable<byte[]> content(@Nonnull final Part part) {
+        if (part != pkg.getMainDocumentPart() || null == positions || changedParts.contains(part)) {
+            return null;
+        }
+        return new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return document();
+            }
+        };
+    }
+
+    private byte[] document() throws IOException, JAXBException {
+        final ZipArchiveEntry entry = zipFile.getEntry(documentEntry);
+        final Body body = body();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8,
+            Math.max(entry.getSize(), 1024L)));
+        final Writer writer = new OutputStreamWriter(os, ENCODING);
+        final GXmlOutput out = new GXmlOutput(writer, false);
+        final GSerializer serializer = new GSerializer(out, index.getScope(), null);
+        final InputStream is = new BufferedInputStream(zipFile.getInputStream(entry));
+        try {
+            long position = copy(is, os, 0L, 0L, index.getHeadEnd());
+            writer.write(index.getHeadSuffix());
+            for (final Object obj : body.getContent()) {
+                final Object value = XmlUtils.unwrap(obj);
+                final Integer i = positions.get(value);
+                if (null != i && !changedElements.contains(value) && index.start(i) >= position) {
+                    out.flush();
+                    position = copy(is, os, position, index.start(i), index.end(i));
+                } else {
+                    serializer.write(obj);
+                }
+            }
+            final SectPr sectPr = body.getSectPr();
+            if (null != sectPr) {
+                if (sectPr == originalSectPr && !changedElements.contains(sectPr)
+                    && index.getSectPrStart() >= position) {
+                    out.flush();
+                    position = copy(is, os, position, index.getSectPrStart(), index.getSectPrEnd());
+                } else {
+                    serializer.write(new JAXBElement<SectPr>(SECT_PR, SectPr.class, sectPr));
+                }
+            }
+            writer.write(index.getTailPrefix());
+            out.flush();
+            IOUtils.skipFully(is, index.getTailStart() - position);
+            IOUtils.copy(is, os);
+        } finally {
+            is.close();
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * @return true if a body element has been added, removed, replaced, moved or reported as changed
+     */
+    private boolean isBodyChanged() {
+        final Body body = body();
+        final List<Object> content = body.getContent();
+        if (!changedElements.isEmpty() || body.getSectPr() != originalSectPr
+            || content.size() != originalContent.length) {
+            return true;
+        }
+        for (int i = 0; i < originalContent.length; i++) {
+            if (XmlUtils.unwrap(content.get(i)) != originalContent[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record the parts and the body elements of the document as saved in the file
+     */
+    private void snapshot() throws Docx4JException {
+        originalParts = new HashMap<String, Part>();
+        for (final Map.Entry<PartName, Part> part : pkg.getParts().getParts().entrySet()) {
+            originalParts.put(part.getKey().getName().substring(1), part.getValue());
+        }
+        final Body body = body();
+        final List<Object> content = body.getContent();
+        originalContent = new Object[content.size()];
+        for (int i = 0; i < originalContent.length; i++) {
+            originalContent[i] = XmlUtils.unwrap(content.get(i));
+        }
+        originalSectPr = body.getSectPr();
+        documentEntry = pkg.getMainDocumentPart().getPartName().getName().substring(1);
+
+        index = null;
+        positions = null;
+        final ZipFile source;
+        try {
+            source = new ZipFile(file);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening " + file, e);
+        }
+        try {
+            final ZipArchiveEntry entry = source.getEntry(documentEntry);
+            if (null != entry) {
+                final InputStream is = source.getInputStream(entry);
+                try {
+                    index = GBodyIndex.read(is);
+                } finally {
+                    is.close();
+                }
+                positions = match(index, originalContent);
+            }
+        } catch (final IOException e) {
+            // main document not readable as text: it will be marshalled if changed
+            index = null;
+        } finally {
+            ZipFile.closeQuietly(source);
+        }
+    }
+
+    private Body body() {
+        return pkg.getMainDocumentPart().getJaxbElement().getBody();
+    }
+
+    /**
+     * @return the index in the file of every body element, or null if the elements found do not match the loaded ones
+     */
+    @CheckForNull
+    private static Map<Object, Integer> match(final GBodyIndex index, final Object[] content) {
+        if (index.size() != content.length) {
+            return null;
+        }
+        final Map<Object, Integer> positions = new IdentityHashMap<Object, Integer>(content.length);
+        for (int i = 0; i < content.length; i++) {
+            final String name = index.name(i);
+            if (content[i] instanceof P && !"p".equals(name) || content[i] instanceof Tbl && !"tbl".equals(name)) {
+                return null;
+            }
+            positions.put(content[i], Integer.valueOf(i));
+        }
+        return positions;
+    }
+
+    private static boolean contains(final List<Object> content, final Object value) {
+        for (final Object obj : content) {
+            if (XmlUtils.unwrap(obj) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy a range of the source
+     *
+     * @return the new source position
+     */
+    private static long copy(final InputStream is, final OutputStream os, final long position, final long start,
+        final long end) throws IOException {
+        IOUtils.skipFully(is, start - position);
+        IOUtils.copyLarge(is, os, 0L, end - start);
+        return end;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.packages.OpcPackage;
+
+/**
+ * Package save with parallel and tunable compression.
+ * <p>
+ * Same output of {@code pkg.save(file)}, but the parts (document, styles, numbering, media, ...) are marshalled and
+ * compressed concurrently and a large part is split in blocks compressed in parallel:
+ * <pre>
+ * GDocxSaver.create().level(Deflater.BEST_SPEED).save(wordMLPackage, file);
+ * </pre>
+ * Intermediate files which are read again by the same application can skip the compression with {@link #stored()}.
+ * <p>
+ * By default a pool with a thread for each available processor is created for every save; an executor can be given
+ * with {@link #executor(ExecutorService)}. The package must not be changed during the save. The block split needs
+ * the deflate sync flush of Java 7: on older JVMs every part is compressed as a single block. A GDocxSaver instance
+ * is not thread safe.
+ *
+ * @author gualtiero
+ */
+public final class GDocxSaver {
+
+    /**
+     * Default size of the independently compressed blocks (1 MB)
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final int MIN_BLOCK_SIZE = 64 * 1024;
+
+    private ExecutorService executor;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private boolean stored;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Constructor
+     */
+    private GDocxSaver() {
+    }
+
+    /**
+     * Static factory
+     *
+     * @return new GDocxSaver instance
+     */
+    @Nonnull
+    public static GDocxSaver create() {
+        return new GDocxSaver();
+    }
+
+    /**
+     * Set the deflate level (default: Deflater.DEFAULT_COMPRESSION)
+     *
+     * @param iLevel compression level, from 0 (Deflater.NO_COMPRESSION) to 9 (Deflater.BEST_COMPRESSION) or
+     *               Deflater.DEFAULT_COMPRESSION
+     * @return same GDocxSaver instance
+     */
+    @Nonnull
+    public GDocxSaver level(final int iLevel) {
+
+        Validate.isTrue(Deflater.DEFAULT_COMPRESSION == iLevel
+            || Deflater.NO_COMPRESSION <= iLevel && Deflater.BEST_COMPRESSION >= iLevel, "Level value not valid");
+
+        level = iLevel;
+        stored = false;
+        return this;
+    }
+
+    /**
+     * Store the entries without compression (zip method STORED)
+     *
+     * @return same GDocxSaver instance
+     */
+    @Nonnull
+    public GDocxSaver stored() {
+        stored = true;
+        return this;
+    }
+
+    /**
+     * Set the size of the blocks of a part compressed in parallel (default {@link #DEFAULT_BLOCK_SIZE})
+     * <p>
+     * Smaller blocks give more parallelism on a large document.xml, at the cost of a slightly bigger file.
+     *
+     * @param iBlockSize block size in bytes (at least 64 KB)
+     * @return same GDocxSaver instance
+     */
+    @Nonnull
+    public GDocxSaver blockSize(final int iBlockSize) {
+
+        Validate.isTrue(MIN_BLOCK_SIZE <= iBlockSize, "Block size value not valid");
+
+        blockSize = iBlockSize;
+        return this;
+    }
+
+    /**
+     * Set the number of threads of the default pool (default: number of available processors)
+     *
+     * @param iThreads number of threads (at least 1)
+     * @return same GDocxSaver instance
+     */
+    @Nonnull
+    public GDocxSaver parallelism(final int iThreads) {
+
+        Validate.isTrue(0 < iThreads, "Parallelism value not valid");
+
+        parallelism = iThreads;
+        return this;
+    }
+
+    /**
+     * Use the given executor instead of the default pool. The executor is not shut down by the saver.
+     *
+     * @param pExecutor executor running the marshalling and compression tasks
+     * @return same GDocxSaver instance
+     */
+    @Nonnull
+    public GDocxSaver executor(@Nonnull final ExecutorService pExecutor) {
+
+        Validate.notNull(pExecutor, "Executor not valid");
+
+        executor = pExecutor;
+        return this;
+    }
+
+    /**
+     * Save the package to a stream
+     *
+     * @param pkg package to save
+     * @param os  destination stream (not closed)
+     * @throws Docx4JException if a part cannot be saved
+     */
+    public void save(@Nonnull final OpcPackage pkg, @Nonnull final OutputStream os) throws Docx4JException {
+
+        Validate.notNull(pkg, "Package not valid");
+        Validate.notNull(os, "Output stream not valid");
+
+        save(pkg, os, null);
+    }
+
+    /**
+     * Save the package to a stream, copying the unchanged parts from the file of an editor
+     *
+     * @param pkg    package to save
+     * @param os     destination stream (not closed)
+     * @param editor editor of the package (null to write all the parts)
+     * @throws Docx4JException if a part cannot be saved
+     */
+    void save(@Nonnull final OpcPackage pkg, @Nonnull final OutputStream os, @CheckForNull final GDocxEditor editor)
+        throws Docx4JException {
+
+        final ExecutorService service = null == executor ? Executors.newFixedThreadPool(parallelism) : executor;
+        final PartStore previousTarget = pkg.getTargetPartStore();
+        final GZipPartStore partStore = new GZipPartStore(service, level, stored, blockSize, editor);
+        final long start = System.nanoTime();
+        try {
+            new Save(pkg, partStore).save(os);
+            partStore.reportMetrics(System.nanoTime() - start);
+        } finally {
+            partStore.dispose();
+            pkg.setTargetPartStore(previousTarget);
+            if (null == executor) {
+                service.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Save the package to a file
+     *
+     * @param pkg  package to save
+     * @param file destination file
+     * @throws Docx4JException if a part cannot be saved or the file cannot be written
+     */
+    public void save(@Nonnull final OpcPackage pkg, @Nonnull final File file) throws Docx4JException {
+
+        Validate.notNull(file, "File not valid");
+
+        OutputStream os = null;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(file));
+            save(pkg, os);
+            os.close();
+            os = null;
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing " + file, e);
+        } finally {
+            if (null != os) {
+                try {
+                    os.close();
+                } catch (final IOException e) {
+                    // the save error is more relevant
+                }
+            }
+        }
+    }
+}
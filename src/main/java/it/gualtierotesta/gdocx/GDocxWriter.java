@@ -0,0 +1,526 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Tbl;
+
+/**
+ * Streaming docx writer.
+ * <p>
+ * The main document part is written directly into the ZIP output: every paragraph, table or table row is
+ * serialized (see {@link GSerializer}) as soon as it is added and can then be garbage collected, so the memory
+ * needed depends on the largest single element and not on the document size. All the other parts (styles, settings, properties,...)
+ * are taken from a skeleton package.
+ * <p>
+ * Usage:
+ * <pre>
+ * GDocxWriter writer = GDocxWriter.create(new File("report.docx"));
+ * writer.add(GP.create().text("Title").bold());
+ * writer.startTable(GTbl.create().borders(4L, STBorder.SINGLE, "000000", null).widthAuto());
+ * for (...) {
+ *     writer.addRow(GTr.create().add(GTc.create().add(GP.create().text(value))));
+ * }
+ * writer.endTable();
+ * writer.close();
+ * </pre>
+ * In append mode ({@link #append(File)}) the elements are added at the end of the body of an existing document,
+ * which is streamed to the output without being loaded: the other parts are copied as compressed zip entries and
+ * the main document as text, so the time of an append grows with the file size and the memory stays constant.
+ *
+ * @author gualtiero
+ */
+public final class GDocxWriter implements Closeable {
+
+    private static final String BODY_START = "<w:body>";
+    private static final String BODY_EMPTY = "<w:body/>";
+    private static final String BODY_END = "</w:body>";
+    private static final String SECT_PR_START = "<w:sectPr";
+
+    private final OutputStream output;
+    private final ZipArchiveOutputStream zos;
+    private final Writer writer;
+    private final GXmlOutput out;
+    private final GSerializer serializer;
+    private final String tail;
+    private final GAppendSource source;
+    private final File target;
+    private final File temporary;
+    private final boolean measure = GMetrics.isEnabled();
+    private final long created = measure ? System.nanoTime() : 0L;
+    private CountingOutputStream counter;
+    private long marshalNanos;
+    private long writeNanos;
+    private boolean tableOpen;
+    private boolean closed;
+
+    /**
+     * Constructor
+     */
+    private GDocxWriter(@Nonnull final OutputStream os, @Nonnull final WordprocessingMLPackage skeleton)
+        throws Docx4JException {
+
+        final MainDocumentPart mdp = skeleton.getMainDocumentPart();
+        final String documentEntry = mdp.getPartName().getName().substring(1);
+        final String documentXml = mdp.getXML();
+        final boolean hasSectPr = null != mdp.getJaxbElement().getBody().getSectPr();
+
+        final String head;
+        final int bodyEmpty = documentXml.indexOf(BODY_EMPTY);
+        if (0 <= bodyEmpty) {
+            head = documentXml.substring(0, bodyEmpty) + BODY_START;
+            tail = BODY_END + documentXml.substring(bodyEmpty + BODY_EMPTY.length());
+        } else {
+            final int split = hasSectPr ? documentXml.lastIndexOf(SECT_PR_START) : documentXml.lastIndexOf(BODY_END);
+            if (0 > documentXml.indexOf(BODY_START) || 0 > split) {
+                IOUtils.closeQuietly(os);
+                throw new Docx4JException("Main document part of the skeleton not valid");
+            }
+            head = documentXml.substring(0, split);
+            tail = documentXml.substring(split);
+        }
+
+        final Map<String, String> inScope = GSerializer.namespaces(head.substring(0, head.indexOf(BODY_START)));
+
+        output = os;
+        final long start = measure ? System.nanoTime() : 0L;
+        boolean opened = false;
+        try {
+            zos = new ZipArchiveOutputStream(counted(os));
+            copySkeletonParts(skeleton, documentEntry);
+            zos.putArchiveEntry(new ZipArchiveEntry(documentEntry));
+            writer = new BufferedWriter(new OutputStreamWriter(zos, "UTF-8"));
+            writer.write(head);
+            opened = true;
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening docx output", e);
+        } finally {
+            if (!opened) {
+                IOUtils.closeQuietly(os);
+            }
+        }
+        written(start);
+        out = new GXmlOutput(writer, false);
+        serializer = new GSerializer(out, inScope, null);
+        source = null;
+        target = null;
+        temporary = null;
+    }
+
+    /**
+     * Constructor for append mode
+     */
+    private GDocxWriter(@Nonnull final GAppendSource pSource, @Nonnull final OutputStream os,
+        @CheckForNull final File fTarget, @CheckForNull final File fTemporary) throws Docx4JException {
+
+        output = os;
+        source = pSource;
+        target = fTarget;
+        temporary = fTemporary;
+        tail = "";
+        final Map<String, String> inScope;
+        final long start = measure ? System.nanoTime() : 0L;
+        try {
+            zos = new ZipArchiveOutputStream(counted(os));
+            source.copyParts(zos);
+            zos.putArchiveEntry(new ZipArchiveEntry(source.getDocumentEntry()));
+            writer = new BufferedWriter(new OutputStreamWriter(zos, "UTF-8"));
+            inScope = source.copyHead(writer);
+        } catch (final IOException e) {
+            IOUtils.closeQuietly(source);
+            IOUtils.closeQuietly(os);
+            throw new Docx4JException("Error copying the document to append to", e);
+        }
+        written(start);
+        out = new GXmlOutput(writer, false);
+        serializer = new GSerializer(out, inScope, null);
+    }
+
+    /**
+     * Static factory for a streaming writer using the default package skeleton
+     *
+     * @param os destination stream (closed by {@link #close()})
+     * @return new GDocxWriter instance
+     * @throws Docx4JException if the skeleton cannot be created or written
+     */
+    @Nonnull
+    public static GDocxWriter create(@Nonnull final OutputStream os) throws Docx4JException {
+        return create(os, WordprocessingMLPackage.createPackage());
+    }
+
+    /**
+     * Static factory for a streaming writer using the given package as skeleton.
+     * <p>
+     * All the parts of the skeleton are copied in the output. The body contents of the skeleton (if any) are written
+     * before the added elements and its section properties after them.
+     *
+     * @param os       destination stream (closed by {@link #close()}, or at once if the writer cannot be created)
+     * @param skeleton package providing styles, settings, properties and section properties
+     * @return new GDocxWriter instance
+     * @throws Docx4JException if the skeleton cannot be written
+     */
+    @Nonnull
+    public static GDocxWriter create(@Nonnull final OutputStream os, @Nonnull final WordprocessingMLPackage skeleton)
+        throws Docx4JException {
+
+        Validate.notNull(os, "Output stream not valid");
+        Validate.notNull(skeleton, "Skeleton package not valid");
+
+        return new GDocxWriter(os, skeleton);
+    }
+
+    /**
+     * Static factory for a streaming writer to a file using the default package skeleton
+     *
+     * @param file destination file
+     * @return new GDocxWriter instance
+     * @throws Docx4JException if the file cannot be opened or the skeleton cannot be written
+     */
+    @Nonnull
+    public static GDocxWriter create(@Nonnull final File file) throws Docx4JException {
+
+        Validate.notNull(file, "File not valid");
+
+        final OutputStream os;
+        try {
+            os = new FileOutputStream(file);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening " + file, e);
+        }
+        boolean done = false;
+        try {
+            final GDocxWriter writer = create(os);
+            done = true;
+            return writer;
+        } finally {
+            if (!done) {
+                IOUtils.closeQuietly(os);
+            }
+        }
+    }
+
+    /**
+     * Static factory for a writer appending to an existing document: the output is the given document with the
+     * added elements at the end of its body (before its section properties).
+     *
+     * @param docx existing document (not changed)
+     * @param os   destination stream (closed by {@link #close()}, or at once if the writer cannot be created)
+     * @return new GDocxWriter instance
+     * @throws Docx4JException if the document cannot be read
+     */
+    @Nonnull
+    public static GDocxWriter append(@Nonnull final File docx, @Nonnull final OutputStream os)
+        throws Docx4JException {
+
+        Validate.notNull(docx, "File not valid");
+        Validate.notNull(os, "Output stream not valid");
+
+        final GAppendSource source;
+        try {
+            source = new GAppendSource(docx);
+        } catch (final Docx4JException e) {
+            IOUtils.closeQuietly(os);
+            throw e;
+        }
+        return new GDocxWriter(source, os, null, null);
+    }
+
+    /**
+     * Static factory for a writer appending to an existing document in place: the new document is written to a
+     * temporary file in the same directory, which replaces the document when the writer is closed.
+     *
+     * @param docx document to append to
+     * @return new GDocxWriter instance
+     * @throws Docx4JException if the document cannot be read or the temporary file created
+     */
+    @Nonnull
+    public static GDocxWriter append(@Nonnull final File docx) throws Docx4JException {
+
+        Validate.notNull(docx, "File not valid");
+
+        final GAppendSource source = new GAppendSource(docx);
+        final File temporary;
+        try {
+            temporary = File.createTempFile("gdocx", ".tmp", docx.getAbsoluteFile().getParentFile());
+        } catch (final IOException e) {
+            IOUtils.closeQuietly(source);
+            throw new Docx4JException("Error creating the temporary file for " + docx, e);
+        }
+        OutputStream os = null;
+        boolean done = false;
+        try {
+            os = new FileOutputStream(temporary);
+            final GDocxWriter writer = new GDocxWriter(source, os, docx, temporary);
+            done = true;
+            return writer;
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening the temporary file for " + docx, e);
+        } finally {
+            if (!done) {
+                IOUtils.closeQuietly(source);
+                IOUtils.closeQuietly(os);
+                FileUtils.deleteQuietly(temporary);
+            }
+        }
+    }
+
+    /**
+     * Write a body element (for ex. GP or GTbl) to the document
+     *
+     * @param obj element to be written
+     * @return same GDocxWriter instance
+     * @throws Docx4JException if the element cannot be written
+     */
+    @Nonnull
+    public GDocxWriter add(@Nonnull final Object obj) throws Docx4JException {
+
+        Validate.notNull(obj, "Object not valid");
+        checkOpen();
+        if (tableOpen) {
+            throw new IllegalStateException("Table not ended");
+        }
+
+        final long start = measure ? System.nanoTime() : 0L;
+        try {
+            serializer.write(obj);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing " + obj.getClass().getName(), e);
+        } catch (final JAXBException e) {
+            throw new Docx4JException("Error marshalling " + obj.getClass().getName(), e);
+        }
+        marshalled(start);
+        return this;
+    }
+
+    /**
+     * Start a table: properties, grid and the rows already added to the table are written, further rows are written
+     * with {@link #addRow(Object)} until {@link #endTable()}
+     *
+     * @param tbl table to be started
+     * @return same GDocxWriter instance
+     * @throws Docx4JException if the table cannot be written
+     */
+    @Nonnull
+    public GDocxWriter startTable(@Nonnull final Tbl tbl) throws Docx4JException {
+
+        Validate.notNull(tbl, "Table not valid");
+        checkOpen();
+        if (tableOpen) {
+            throw new IllegalStateException("Table already started");
+        }
+
+        final long start = measure ? System.nanoTime() : 0L;
+        try {
+            serializer.startTable(tbl);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing table", e);
+        } catch (final JAXBException e) {
+            throw new Docx4JException("Error marshalling table", e);
+        }
+        marshalled(start);
+        tableOpen = true;
+        return this;
+    }
+
+    /**
+     * Write a row (for ex. GTr) of the current table
+     *
+     * @param row row to be written
+     * @return same GDocxWriter instance
+     * @throws Docx4JException if the row cannot be written
+     */
+    @Nonnull
+    public GDocxWriter addRow(@Nonnull final Object row) throws Docx4JException {
+
+        Validate.notNull(row, "Row not valid");
+        checkOpen();
+        if (!tableOpen) {
+            throw new IllegalStateException("Table not started");
+        }
+
+        final long start = measure ? System.nanoTime() : 0L;
+        try {
+            serializer.write(row);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing " + row.getClass().getName(), e);
+        } catch (final JAXBException e) {
+            throw new Docx4JException("Error marshalling " + row.getClass().getName(), e);
+        }
+        marshalled(start);
+        return this;
+    }
+
+    /**
+     * End the current table
+     *
+     * @return same GDocxWriter instance
+     * @throws Docx4JException if the table cannot be written
+     */
+    @Nonnull
+    public GDocxWriter endTable() throws Docx4JException {
+
+        checkOpen();
+        if (!tableOpen) {
+            throw new IllegalStateException("Table not started");
+        }
+
+        try {
+            serializer.endTable();
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing table end", e);
+        }
+        tableOpen = false;
+        return this;
+    }
+
+    /**
+     * Write the section properties, complete the document and close the output stream.
+     * <p>
+     * In append mode the temporary file replaces the document; if anything fails the temporary file is deleted and
+     * the document is left unchanged.
+     *
+     * @throws IOException if the document cannot be completed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            final long start = measure ? System.nanoTime() : 0L;
+            boolean done = false;
+            try {
+                complete();
+                if (null != temporary) {
+                    GFiles.replace(temporary, target);
+                }
+                done = true;
+            } finally {
+                if (!done) {
+                    IOUtils.closeQuietly(source);
+                    IOUtils.closeQuietly(output);
+                    FileUtils.deleteQuietly(temporary);
+                }
+            }
+            if (measure) {
+                written(start);
+                final long end = System.nanoTime();
+                GMetrics.saved(marshalNanos, 0L, writeNanos, end - created, counter.getByteCount());
+            }
+        }
+    }
+
+    private void complete() throws IOException {
+        if (tableOpen) {
+            serializer.endTable();
+            tableOpen = false;
+        }
+        out.flush();
+        if (null == source) {
+            writer.write(tail);
+        } else {
+            try {
+                source.copyTail(writer);
+            } finally {
+                source.close();
+            }
+        }
+        writer.flush();
+        zos.closeArchiveEntry();
+        zos.close();
+    }
+
+    private OutputStream counted(final OutputStream os) {
+        if (!measure) {
+            return os;
+        }
+        counter = new CountingOutputStream(os);
+        return counter;
+    }
+
+    private void marshalled(final long start) {
+        if (measure) {
+            marshalNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void written(final long start) {
+        if (measure) {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Writer closed");
+        }
+    }
+
+    private void copySkeletonParts(final WordprocessingMLPackage skeleton, final String documentEntry)
+        throws Docx4JException, IOException {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        skeleton.save(baos);
+        final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        try {
+            final byte[] buffer = new byte[8192];
+            ZipEntry entry = zis.getNextEntry();
+            while (null != entry) {
+                if (!documentEntry.equals(entry.getName())) {
+                    zos.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                    copy(zis, zos, buffer);
+                    zos.closeArchiveEntry();
+                }
+                entry = zis.getNextEntry();
+            }
+        } finally {
+            zis.close();
+        }
+    }
+
+    private static void copy(final InputStream is, final OutputStream os, final byte[] buffer) throws IOException {
+        int read = is.read(buffer);
+        while (0 <= read) {
+            os.write(buffer, 0, read);
+            read = is.read(buffer);
+        }
+    }
+}
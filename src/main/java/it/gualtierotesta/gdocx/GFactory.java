@@ -22,29 +22,107 @@ import org.apache.commons.lang.Validate;
 import org.docx4j.jaxb.Context;
 import org.docx4j.wml.BooleanDefaultTrue;
 import org.docx4j.wml.CTBorder;
+import org.docx4j.wml.CTHeight;
+import org.docx4j.wml.CTShd;
+import org.docx4j.wml.CTVerticalJc;
+import org.docx4j.wml.HpsMeasure;
+import org.docx4j.wml.Jc;
+import org.docx4j.wml.JcEnumeration;
 import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.RFonts;
 import org.docx4j.wml.STBorder;
+import org.docx4j.wml.STHeightRule;
+import org.docx4j.wml.STShd;
+import org.docx4j.wml.STVerticalJc;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblWidth;
+import org.docx4j.wml.TcPrInner;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.awt.*;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Utility Factory
+ * <p>
+ * The shared* methods return property objects taken from an interning pool: equal values give the same instance,
+ * so a large table with a few distinct shadings, widths or borders does not allocate them for every cell. The
+ * shared instances are read only (setters throw UnsupportedOperationException); use the docx4j ObjectFactory to
+ * get a modifiable object. Each pool keeps at most {@value #MAX_POOL_SIZE} values, beyond that new (still read
+ * only) instances are returned.
+ * <p>
+ * The measures in the usual ranges (integers, "dxa" widths, grid columns and row heights up to {@value #MAX_TWIPS}
+ * twips, half point sizes up to {@value #MAX_HALF_POINTS}) are kept in tables indexed by value instead of the pools,
+ * so the builders get them without boxing the value or hashing a key.
+ * <p>
+ * All the methods and constants of this class are thread safe: the pools are concurrent maps and the shared
+ * instances, BOOLEAN_TRUE and BOOLEAN_FALSE included, cannot be changed.
  *
  * @author Gualtiero
  */
 public final class GFactory {
 
-    public static final BooleanDefaultTrue BOOLEAN_TRUE = new BooleanDefaultTrue();
-    public static final BooleanDefaultTrue BOOLEAN_FALSE;
+    public static final BooleanDefaultTrue BOOLEAN_TRUE = new GFrozen.Bool(null);
+    public static final BooleanDefaultTrue BOOLEAN_FALSE = new GFrozen.Bool(Boolean.FALSE);
+    public static final int MAX_POOL_SIZE = 4096;
+    /**
+     * Largest measure in the value tables: 32767 twips are almost 58 cm, more than any page width
+     */
+    public static final int MAX_TWIPS = 32767;
+    /**
+     * Largest half point measure in the value tables: Word font sizes go up to 1638 points
+     */
+    public static final int MAX_HALF_POINTS = 3276;
     private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
-
-    static {
-        BOOLEAN_FALSE = FACTORY.createBooleanDefaultTrue();
-        BOOLEAN_FALSE.setVal(Boolean.FALSE);
-    }
+    private static final ConcurrentMap<Object, BigInteger> INTEGERS = new ConcurrentHashMap<Object, BigInteger>();
+    private static final ConcurrentMap<Object, CTShd> SHADINGS = new ConcurrentHashMap<Object, CTShd>();
+    private static final ConcurrentMap<Object, TblWidth> WIDTHS = new ConcurrentHashMap<Object, TblWidth>();
+    private static final ConcurrentMap<Object, CTBorder> BORDERS = new ConcurrentHashMap<Object, CTBorder>();
+    private static final ConcurrentMap<Object, RFonts> FONTS = new ConcurrentHashMap<Object, RFonts>();
+    private static final ConcurrentMap<Object, HpsMeasure> MEASURES = new ConcurrentHashMap<Object, HpsMeasure>();
+    private static final ConcurrentMap<Object, org.docx4j.wml.Color> COLORS =
+        new ConcurrentHashMap<Object, org.docx4j.wml.Color>();
+    private static final ConcurrentMap<Object, Jc> ALIGNMENTS = new ConcurrentHashMap<Object, Jc>();
+    private static final ConcurrentMap<Object, CTVerticalJc> VALIGNMENTS =
+        new ConcurrentHashMap<Object, CTVerticalJc>();
+    private static final ConcurrentMap<Object, TcPrInner.GridSpan> GRID_SPANS =
+        new ConcurrentHashMap<Object, TcPrInner.GridSpan>();
+    private static final ConcurrentMap<Object, TcPrInner.VMerge> VMERGES =
+        new ConcurrentHashMap<Object, TcPrInner.VMerge>();
+    private static final TcPrInner.VMerge VMERGE_CONTINUE = new GFrozen.VMerge(null);
+    private static final MeasureTable<BigInteger> INTEGER_TABLE = new MeasureTable<BigInteger>(MAX_TWIPS) {
+        @Override
+        BigInteger create(final int iValue) {
+            return BigInteger.valueOf(iValue);
+        }
+    };
+    private static final MeasureTable<HpsMeasure> HPS_TABLE = new MeasureTable<HpsMeasure>(MAX_HALF_POINTS) {
+        @Override
+        HpsMeasure create(final int iValue) {
+            return new GFrozen.Hps(sharedInteger(iValue));
+        }
+    };
+    private static final MeasureTable<TblWidth> DXA_TABLE = new MeasureTable<TblWidth>(MAX_TWIPS) {
+        @Override
+        TblWidth create(final int iValue) {
+            return new GFrozen.Width(sharedInteger(iValue), DXA);
+        }
+    };
+    private static final MeasureTable<TblGridCol> GRID_TABLE = new MeasureTable<TblGridCol>(MAX_TWIPS) {
+        @Override
+        TblGridCol create(final int iValue) {
+            return new GFrozen.GridCol(sharedInteger(iValue));
+        }
+    };
+    private static final Map<STHeightRule, MeasureTable<CTHeight>> HEIGHT_TABLES = heightTables();
+    private static final String DXA = "dxa";
 
     private GFactory() {
         // Static class
@@ -87,10 +165,298 @@ public final class GFactory {
                 ctBorder.setColor(sColor);
             }
             if (null != lSpace) {
-                ctBorder.setSpace(BigInteger.valueOf(lSpace));
+                ctBorder.setSpace(sharedInteger(lSpace));
             }
-            ctBorder.setSz(BigInteger.valueOf(lSize));
+            ctBorder.setSz(sharedInteger(lSize));
         }
         return ctBorder;
     }
+
+    /**
+     * Shared BigInteger
+     *
+     * @param lValue the value
+     * @return BigInteger with the given value
+     */
+    @Nonnull
+    public static BigInteger sharedInteger(final long lValue) {
+        if (0L <= lValue && MAX_TWIPS >= lValue) {
+            return INTEGER_TABLE.get((int) lValue);
+        }
+        final Long key = Long.valueOf(lValue);
+        final BigInteger value = INTEGERS.get(key);
+        return null != value ? value : intern(INTEGERS, key, BigInteger.valueOf(lValue));
+    }
+
+    /**
+     * Shared read only shading with clear pattern
+     *
+     * @param sColor pattern color in RRGGBB format (es. FFFF00) or "auto"
+     * @param sFill  fill color in RRGGBB format (es. FFFF00) or "auto"
+     * @return CTShd with the given colors
+     */
+    @Nonnull
+    public static CTShd sharedShd(@Nonnull final String sColor, @Nonnull final String sFill) {
+
+        Validate.notEmpty(sColor, "String color not valid");
+        Validate.notEmpty(sFill, "String fill not valid");
+
+        final Object key = Arrays.asList(sColor, sFill);
+        final CTShd value = SHADINGS.get(key);
+        return null != value ? value : intern(SHADINGS, key, new GFrozen.Shd(STShd.CLEAR, sColor, sFill));
+    }
+
+    /**
+     * Shared read only table or cell width
+     *
+     * @param lWidth width value
+     * @param sType  width type ("dxa", "pct", "auto" or "nil")
+     * @return TblWidth with the given value
+     */
+    @Nonnull
+    public static TblWidth sharedWidth(final long lWidth, @Nonnull final String sType) {
+
+        Validate.isTrue(0L <= lWidth, "Width value not valid");
+        Validate.notEmpty(sType, "Type not valid");
+
+        if (MAX_TWIPS >= lWidth && DXA.equals(sType)) {
+            return DXA_TABLE.get((int) lWidth);
+        }
+        final Object key = Arrays.<Object>asList(Long.valueOf(lWidth), sType);
+        final TblWidth value = WIDTHS.get(key);
+        return null != value ? value : intern(WIDTHS, key, new GFrozen.Width(sharedInteger(lWidth), sType));
+    }
+
+    /**
+     * Shared read only CT border. Same values and rules as {@link #buildBorder(long, STBorder, String, Long)}
+     *
+     * @param lSize       width of the border in eighths of a point (min 2, max 96)
+     * @param eBorderLine type of the border line (enum)
+     * @param sColor      color of the border line in RRGGBB format (es. FFFF00). It can be null if no border line
+     * @param lSpace      Specifies the spacing offset. Values are specified in points (1/72nd of an inch). it can be
+     *                    null
+     * @return CTBorder with the given values
+     */
+    @Nonnull
+    public static CTBorder sharedBorder(final long lSize, @Nonnull final STBorder eBorderLine,
+        @CheckForNull final String sColor, @CheckForNull final Long lSpace) {
+
+        Validate.isTrue(2L <= lSize && lSize <= 96, "Size value not valid");
+        Validate.notNull(eBorderLine, "Border Line not valid");
+
+        final Object key = Arrays.<Object>asList(eBorderLine, Long.valueOf(lSize), sColor, lSpace);
+        final CTBorder value = BORDERS.get(key);
+        if (null != value) {
+            return value;
+        }
+        final CTBorder border;
+        if (STBorder.NIL != eBorderLine && STBorder.NONE != eBorderLine) {
+            border = new GFrozen.Border(eBorderLine, sColor, sharedInteger(lSize),
+                null == lSpace ? null : sharedInteger(lSpace));
+        } else {
+            border = new GFrozen.Border(eBorderLine, null, null, null);
+        }
+        return intern(BORDERS, key, border);
+    }
+
+    /**
+     * Shared read only run fonts, same font for ascii, high ansi and complex script characters
+     *
+     * @param sFontName font name
+     * @return RFonts with the given font
+     */
+    @Nonnull
+    public static RFonts sharedFonts(@Nonnull final String sFontName) {
+
+        Validate.notEmpty(sFontName, "Font name not valid");
+
+        final RFonts value = FONTS.get(sFontName);
+        return null != value ? value : intern(FONTS, sFontName, new GFrozen.Fonts(sFontName));
+    }
+
+    /**
+     * Shared read only half point measure (for ex. font size)
+     *
+     * @param lHalfPoints value in half points
+     * @return HpsMeasure with the given value
+     */
+    @Nonnull
+    public static HpsMeasure sharedHpsMeasure(final long lHalfPoints) {
+
+        Validate.isTrue(0L < lHalfPoints, "Measure value not valid");
+
+        if (MAX_HALF_POINTS >= lHalfPoints) {
+            return HPS_TABLE.get((int) lHalfPoints);
+        }
+        final Long key = Long.valueOf(lHalfPoints);
+        final HpsMeasure value = MEASURES.get(key);
+        return null != value ? value : intern(MEASURES, key, new GFrozen.Hps(sharedInteger(lHalfPoints)));
+    }
+
+    /**
+     * Shared read only table grid column
+     *
+     * @param lWidth column width in twips
+     * @return TblGridCol with the given width
+     */
+    @Nonnull
+    public static TblGridCol sharedGridCol(final long lWidth) {
+
+        Validate.isTrue(0L <= lWidth, "Width value not valid");
+
+        return MAX_TWIPS >= lWidth ? GRID_TABLE.get((int) lWidth) : new GFrozen.GridCol(sharedInteger(lWidth));
+    }
+
+    /**
+     * Shared read only row height
+     *
+     * @param lHeight row height in twips
+     * @param eRule   height rule (for ex. STHeightRule.EXACT)
+     * @return CTHeight with the given values
+     */
+    @Nonnull
+    public static CTHeight sharedHeight(final long lHeight, @Nonnull final STHeightRule eRule) {
+
+        Validate.isTrue(0L <= lHeight, "Height value not valid");
+        Validate.notNull(eRule, "Rule not valid");
+
+        return MAX_TWIPS >= lHeight ? HEIGHT_TABLES.get(eRule).get((int) lHeight)
+            : new GFrozen.Height(sharedInteger(lHeight), eRule);
+    }
+
+    /**
+     * Shared read only run color
+     *
+     * @param sColor color in RRGGBB format (es. FFFF00) or "auto"
+     * @return Color with the given value
+     */
+    @Nonnull
+    public static org.docx4j.wml.Color sharedColor(@Nonnull final String sColor) {
+
+        Validate.notEmpty(sColor, "String color not valid");
+
+        final org.docx4j.wml.Color value = COLORS.get(sColor);
+        return null != value ? value : intern(COLORS, sColor, new GFrozen.RColor(sColor));
+    }
+
+    /**
+     * Shared read only alignment
+     *
+     * @param eAlign alignment (enum)
+     * @return Jc with the given value
+     */
+    @Nonnull
+    public static Jc sharedJc(@Nonnull final JcEnumeration eAlign) {
+
+        Validate.notNull(eAlign, "Alignment not valid");
+
+        final Jc value = ALIGNMENTS.get(eAlign);
+        return null != value ? value : intern(ALIGNMENTS, eAlign, new GFrozen.Align(eAlign));
+    }
+
+    /**
+     * Shared read only vertical alignment
+     *
+     * @param eVertAlign vertical alignment (enum)
+     * @return CTVerticalJc with the given value
+     */
+    @Nonnull
+    public static CTVerticalJc sharedVAlign(@Nonnull final STVerticalJc eVertAlign) {
+
+        Validate.notNull(eVertAlign, "Vertical alignment not valid");
+
+        final CTVerticalJc value = VALIGNMENTS.get(eVertAlign);
+        return null != value ? value : intern(VALIGNMENTS, eVertAlign, new GFrozen.VAlign(eVertAlign));
+    }
+
+    /**
+     * Shared read only cell grid span
+     *
+     * @param lSpan number of grid columns spanned by the cell
+     * @return GridSpan with the given value
+     */
+    @Nonnull
+    public static TcPrInner.GridSpan sharedGridSpan(final long lSpan) {
+
+        Validate.isTrue(0L < lSpan, "Grid span value not valid");
+
+        final Long key = Long.valueOf(lSpan);
+        final TcPrInner.GridSpan value = GRID_SPANS.get(key);
+        return null != value ? value : intern(GRID_SPANS, key, new GFrozen.GridSpan(sharedInteger(lSpan)));
+    }
+
+    /**
+     * Shared read only cell vertical merge
+     *
+     * @param sMergeVal merge value ("restart"), null to continue the merged cell above
+     * @return VMerge with the given value
+     */
+    @Nonnull
+    public static TcPrInner.VMerge sharedVMerge(@CheckForNull final String sMergeVal) {
+        if (null == sMergeVal) {
+            return VMERGE_CONTINUE;
+        }
+        final TcPrInner.VMerge value = VMERGES.get(sMergeVal);
+        return null != value ? value : intern(VMERGES, sMergeVal, new GFrozen.VMerge(sMergeVal));
+    }
+
+    private static Map<STHeightRule, MeasureTable<CTHeight>> heightTables() {
+        final Map<STHeightRule, MeasureTable<CTHeight>> tables =
+            new EnumMap<STHeightRule, MeasureTable<CTHeight>>(STHeightRule.class);
+        for (final STHeightRule rule : STHeightRule.values()) {
+            tables.put(rule, new MeasureTable<CTHeight>(MAX_TWIPS) {
+                @Override
+                CTHeight create(final int iValue) {
+                    return new GFrozen.Height(sharedInteger(iValue), rule);
+                }
+            });
+        }
+        return tables;
+    }
+
+    private static <T> T intern(final ConcurrentMap<Object, T> pool, final Object key, final T value) {
+        if (MAX_POOL_SIZE <= pool.size()) {
+            return value;
+        }
+        final T previous = pool.putIfAbsent(key, value);
+        return null != previous ? previous : value;
+    }
+
+    /**
+     * Shared values of the measures 0..max, indexed by value. The array is allocated at the first use and filled
+     * on demand; concurrent callers may create the same value twice, but all of them get the instance stored first.
+     *
+     * @param <T> type of the shared values
+     */
+    private abstract static class MeasureTable<T> {
+
+        private final int max;
+        private volatile AtomicReferenceArray<T> values;
+
+        MeasureTable(final int iMax) {
+            max = iMax;
+        }
+
+        abstract T create(int iValue);
+
+        final T get(final int iValue) {
+            AtomicReferenceArray<T> array = values;
+            if (null == array) {
+                array = allocate();
+            }
+            final T value = array.get(iValue);
+            if (null != value) {
+                return value;
+            }
+            array.compareAndSet(iValue, null, create(iValue));
+            return array.get(iValue);
+        }
+
+        private synchronized AtomicReferenceArray<T> allocate() {
+            if (null == values) {
+                values = new AtomicReferenceArray<T>(max + 1);
+            }
+            return values;
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nonnull;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * File helpers shared by the writers which save a document in place ({@link GDocxWriter}, {@link GDocxEditor}).
+ *
+ * @author gualtiero
+ */
+final class GFiles {
+
+    /**
+     * Constructor
+     */
+    private GFiles() {
+    }
+
+    /**
+     * Replace the target file with the temporary one. Where a rename cannot overwrite an existing file, the target
+     * is first renamed to a backup, which is restored if the temporary file cannot take its place and deleted
+     * otherwise: the target is never deleted before its replacement is in place.
+     *
+     * @param temporary file with the new contents, in the directory of the target
+     * @param target    file to be replaced
+     * @throws IOException if the target cannot be replaced (the target is then unchanged)
+     */
+    static void replace(@Nonnull final File temporary, @Nonnull final File target) throws IOException {
+        if (temporary.renameTo(target)) {
+            return;
+        }
+        final File backup = File.createTempFile("gdocx", ".bak", target.getAbsoluteFile().getParentFile());
+        if (!backup.delete() || !target.renameTo(backup)) {
+            FileUtils.deleteQuietly(backup);
+            throw new IOException("Error replacing " + target + " with " + temporary);
+        }
+        if (!temporary.renameTo(target)) {
+            if (!backup.renameTo(target)) {
+                throw new IOException("Error replacing " + target + " with " + temporary + ", original kept as "
+                    + backup);
+            }
+            throw new IOException("Error replacing " + target + " with " + temporary);
+        }
+        FileUtils.deleteQuietly(backup);
+    }
+}
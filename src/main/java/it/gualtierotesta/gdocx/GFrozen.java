@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.math.BigInteger;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.CTBorder;
+import org.docx4j.wml.CTHeight;
+import org.docx4j.wml.CTShd;
+import org.docx4j.wml.CTVerticalJc;
+import org.docx4j.wml.Color;
+import org.docx4j.wml.HpsMeasure;
+import org.docx4j.wml.Jc;
+import org.docx4j.wml.JcEnumeration;
+import org.docx4j.wml.RFonts;
+import org.docx4j.wml.STBorder;
+import org.docx4j.wml.STHeightRule;
+import org.docx4j.wml.STHint;
+import org.docx4j.wml.STShd;
+import org.docx4j.wml.STTheme;
+import org.docx4j.wml.STThemeColor;
+import org.docx4j.wml.STVerticalJc;
+import org.docx4j.wml.TcPrInner;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblWidth;
+
+/**
+ * Read only versions of the docx4j property objects shared by the GFactory pool.
+ * <p>
+ * Values are set by the constructors, every setter throws UnsupportedOperationException. JAXB marshals them as
+ * their docx4j superclass.
+ *
+ * @author gualtiero
+ */
+final class GFrozen {
+
+    private static final String MESSAGE = "Shared instance from GFactory, it cannot be changed";
+
+    private GFrozen() {
+        // Static class
+    }
+
+    /**
+     * Marker of the read only instances, which can be shared by documents and copies
+     */
+    interface Value {
+    }
+
+    /**
+     * Read only CTShd
+     */
+    static final class Shd extends CTShd implements Value {
+
+        Shd(final STShd eVal, final String sColor, final String sFill) {
+            super.setVal(eVal);
+            super.setColor(sColor);
+            super.setFill(sFill);
+        }
+
+        @Override
+        public void setVal(final STShd value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setColor(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeColor(final STThemeColor value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeTint(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeShade(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setFill(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeFill(final STThemeColor value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeFillTint(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeFillShade(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only TblWidth
+     */
+    static final class Width extends TblWidth implements Value {
+
+        Width(final BigInteger width, final String sType) {
+            super.setW(width);
+            super.setType(sType);
+        }
+
+        @Override
+        public void setW(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setType(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only TblGridCol
+     */
+    static final class GridCol extends TblGridCol implements Value {
+
+        GridCol(final BigInteger width) {
+            super.setW(width);
+        }
+
+        @Override
+        public void setW(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only CTHeight
+     */
+    static final class Height extends CTHeight implements Value {
+
+        Height(final BigInteger height, final STHeightRule eRule) {
+            super.setVal(height);
+            super.setHRule(eRule);
+        }
+
+        @Override
+        public void setVal(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setHRule(final STHeightRule value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only CTBorder
+     */
+    static final class Border extends CTBorder implements Value {
+
+        Border(final STBorder eVal, final String sColor, final BigInteger size, final BigInteger space) {
+            super.setVal(eVal);
+            super.setColor(sColor);
+            super.setSz(size);
+            super.setSpace(space);
+        }
+
+        @Override
+        public void setVal(final STBorder value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setColor(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeColor(final STThemeColor value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeTint(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeShade(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setSz(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setSpace(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setShadow(final Boolean value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setFrame(final Boolean value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only RFonts (same font for ascii, hAnsi and cs)
+     */
+    static final class Fonts extends RFonts implements Value {
+
+        Fonts(final String sFontName) {
+            super.setAscii(sFontName);
+            super.setHAnsi(sFontName);
+            super.setCs(sFontName);
+        }
+
+        @Override
+        public void setHint(final STHint value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setAscii(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setHAnsi(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setEastAsia(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setCs(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setAsciiTheme(final STTheme value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setHAnsiTheme(final STTheme value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setEastAsiaTheme(final STTheme value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setCstheme(final STTheme value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only HpsMeasure
+     */
+    static final class Hps extends HpsMeasure implements Value {
+
+        Hps(final BigInteger value) {
+            super.setVal(value);
+        }
+
+        @Override
+        public void setVal(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only Color
+     */
+    static final class RColor extends Color implements Value {
+
+        RColor(final String sColor) {
+            super.setVal(sColor);
+        }
+
+        @Override
+        public void setVal(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeColor(final STThemeColor value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeTint(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+
+        @Override
+        public void setThemeShade(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only Jc
+     */
+    static final class Align extends Jc implements Value {
+
+        Align(final JcEnumeration eVal) {
+            super.setVal(eVal);
+        }
+
+        @Override
+        public void setVal(final JcEnumeration value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only CTVerticalJc
+     */
+    static final class VAlign extends CTVerticalJc implements Value {
+
+        VAlign(final STVerticalJc eVal) {
+            super.setVal(eVal);
+        }
+
+        @Override
+        public void setVal(final STVerticalJc value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only BooleanDefaultTrue
+     */
+    static final class Bool extends BooleanDefaultTrue implements Value {
+
+        Bool(final Boolean value) {
+            super.setVal(value);
+        }
+
+        @Override
+        public void setVal(final Boolean value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only grid span
+     */
+    static final class GridSpan extends TcPrInner.GridSpan implements Value {
+
+        GridSpan(final BigInteger span) {
+            super.setVal(span);
+        }
+
+        @Override
+        public void setVal(final BigInteger value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+
+    /**
+     * Read only vertical merge
+     */
+    static final class VMerge extends TcPrInner.VMerge implements Value {
+
+        VMerge(final String sVal) {
+            super.setVal(sVal);
+        }
+
+        @Override
+        public void setVal(final String value) {
+            throw new UnsupportedOperationException(MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.StringWriter;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.util.JAXBSource;
+import javax.xml.namespace.QName;
+import org.apache.commons.lang.Validate;
+import org.docx4j.jaxb.Context;
+import org.docx4j.jaxb.JaxbValidationEventHandler;
+import org.docx4j.jaxb.NamespacePrefixMapperUtils;
+
+/**
+ * Per thread JAXB marshallers, unmarshaller and output buffer used by the gdocx serialization and copy.
+ * <p>
+ * Creating a Marshaller for every fragment is expensive (allocations and synchronization inside the JAXB context);
+ * here every thread creates them once, for the docx4j WordML context. The fragment marshaller and the buffer are
+ * acquired and released around each use: a nested use on the same thread gets a new, not pooled, instance. The
+ * buffer is kept only while it is smaller than {@link #MAX_BUFFER_SIZE}. The copy marshaller is a separate,
+ * not fragment, instance since the unmarshaller of a JAXBSource needs the document events.
+ *
+ * @author gualtiero
+ */
+final class GJaxbPool {
+
+    /**
+     * Maximum capacity (in chars) of a pooled output buffer
+     */
+    static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private static final ThreadLocal<GJaxbPool> POOL = new ThreadLocal<GJaxbPool>() {
+        @Override
+        protected GJaxbPool initialValue() {
+            return new GJaxbPool();
+        }
+    };
+
+    private Marshaller marshaller;
+    private boolean marshallerInUse;
+    private Marshaller copyMarshaller;
+    private Unmarshaller unmarshaller;
+    private StringWriter writer;
+    private boolean writerInUse;
+
+    private GJaxbPool() {
+    }
+
+    /**
+     * @return a fragment marshaller with the docx4j namespace prefixes, to be given back with
+     * {@link #release(Marshaller)}
+     */
+    @Nonnull
+    static Marshaller marshaller() throws JAXBException {
+        final GJaxbPool pool = POOL.get();
+        if (pool.marshallerInUse) {
+            return createMarshaller();
+        }
+        if (null == pool.marshaller) {
+            pool.marshaller = createMarshaller();
+        }
+        pool.marshallerInUse = true;
+        return pool.marshaller;
+    }
+
+    /**
+     * Give back a marshaller
+     *
+     * @param m marshaller returned by {@link #marshaller()}
+     */
+    static void release(@Nonnull final Marshaller m) {
+        final GJaxbPool pool = POOL.get();
+        if (m == pool.marshaller) {
+            pool.marshallerInUse = false;
+        }
+    }
+
+    /**
+     * @return an empty output buffer, to be given back with {@link #release(StringWriter)}
+     */
+    @Nonnull
+    static StringWriter writer() {
+        final GJaxbPool pool = POOL.get();
+        if (pool.writerInUse) {
+            return new StringWriter(INITIAL_BUFFER_SIZE);
+        }
+        if (null == pool.writer) {
+            pool.writer = new StringWriter(INITIAL_BUFFER_SIZE);
+        }
+        pool.writerInUse = true;
+        return pool.writer;
+    }
+
+    /**
+     * Give back an output buffer (its content is cleared)
+     *
+     * @param sw buffer returned by {@link #writer()}
+     */
+    static void release(@Nonnull final StringWriter sw) {
+        final GJaxbPool pool = POOL.get();
+        if (sw == pool.writer) {
+            if (MAX_BUFFER_SIZE < sw.getBuffer().capacity()) {
+                pool.writer = null;
+            } else {
+                sw.getBuffer().setLength(0);
+            }
+            pool.writerInUse = false;
+        }
+    }
+
+    /**
+     * Deep copy of a JAXB object, same as {@code XmlUtils.deepCopy} but with the marshaller and unmarshaller of the
+     * current thread
+     *
+     * @param value object to be copied (a JAXBElement or an object of a docx4j WordML class)
+     * @return the copy
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static <T> T deepCopy(@Nonnull final T value) {
+
+        Validate.notNull(value, "Object not valid");
+
+        final GJaxbPool pool = POOL.get();
+        try {
+            if (null == pool.copyMarshaller) {
+                pool.copyMarshaller = Context.jc.createMarshaller();
+                pool.unmarshaller = Context.jc.createUnmarshaller();
+                pool.unmarshaller.setEventHandler(new JaxbValidationEventHandler());
+            }
+            if (value instanceof JAXBElement) {
+                final JAXBElement<Object> element = (JAXBElement<Object>) value;
+                final Class<Object> type = (Class<Object>) element.getValue().getClass();
+                final JAXBElement<Object> source = new JAXBElement<Object>(element.getName(), type,
+                    element.getValue());
+                final Object copy = pool.unmarshaller.unmarshal(new JAXBSource(pool.copyMarshaller, source), type)
+                    .getValue();
+                return (T) new JAXBElement<Object>(element.getName(), type, copy);
+            }
+            final Class<T> type = (Class<T>) value.getClass();
+            final JAXBElement<T> source = new JAXBElement<T>(new QName(type.getSimpleName()), type, value);
+            return pool.unmarshaller.unmarshal(new JAXBSource(pool.copyMarshaller, source), type).getValue();
+        } catch (final JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Marshaller createMarshaller() throws JAXBException {
+        final Marshaller m = Context.jc.createMarshaller();
+        m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        NamespacePrefixMapperUtils.setProperty(m, NamespacePrefixMapperUtils.getPrefixMapper());
+        return m;
+    }
+}
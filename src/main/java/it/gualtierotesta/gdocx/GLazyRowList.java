@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import javax.annotation.Nonnull;
+
+/**
+ * Read only content list of a table whose rows are built from a source only while the list is iterated.
+ * <p>
+ * Every iteration (the serialization of the table by {@link GSerializer} or by the docx4j JAXB marshalling) asks the
+ * source for a new iterator and maps each value to a row, which is not referenced by the list and can be garbage
+ * collected as soon as it has been written. Random access and size need a full pass over the source (size not if
+ * the source is a Collection, and is not available if the source is an iterator, which can be read only once).
+ *
+ * @param <T> type of the source values
+ * @author gualtiero
+ */
+final class GLazyRowList<T> extends AbstractList<Object> {
+
+    private final Iterable<T> source;
+    private final GRowMapper<? super T> mapper;
+
+    /**
+     * Constructor
+     *
+     * @param pSource source values
+     * @param pMapper value to row conversion
+     */
+    GLazyRowList(@Nonnull final Iterable<T> pSource, @Nonnull final GRowMapper<? super T> pMapper) {
+        source = pSource;
+        mapper = pMapper;
+    }
+
+    @Override
+    public Object get(final int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        final Iterator<Object> iterator = iterator();
+        for (int i = 0; i < index && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        if (!iterator.hasNext()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public int size() {
+        if (source instanceof Collection) {
+            return ((Collection<?>) source).size();
+        }
+        if (source instanceof Once) {
+            throw new UnsupportedOperationException("Size not available: the source can be read only once");
+        }
+        int size = 0;
+        for (final Iterator<T> iterator = source.iterator(); iterator.hasNext(); iterator.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        final Iterator<T> values = source.iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                final Object row = mapper.row(values.next());
+                if (null == row) {
+                    throw new IllegalStateException("Null row from " + mapper.getClass().getName());
+                }
+                return row;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Remove not supported");
+            }
+        };
+    }
+
+    /**
+     * Source that can be iterated only once (for ex. a cursor)
+     */
+    static final class Once<T> implements Iterable<T> {
+
+        private Iterator<T> iterator;
+
+        Once(@Nonnull final Iterator<T> pIterator) {
+            iterator = pIterator;
+        }
+
+        @Override
+        public synchronized Iterator<T> iterator() {
+            if (null == iterator) {
+                throw new IllegalStateException("Rows already read: the source iterator can be read only once");
+            }
+            final Iterator<T> result = iterator;
+            iterator = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Registration of the (single) instrumentation listener of gdocx.
+ * <p>
+ * Without a listener every instrumentation point costs a read of a volatile field, and no time is measured.
+ * <pre>
+ * GMetrics.register(new GMetricsListener() { ... });  // once, at application start
+ * </pre>
+ *
+ * @author gualtiero
+ */
+public final class GMetrics {
+
+    private static volatile GMetricsListener listener;
+
+    /**
+     * Constructor
+     */
+    private GMetrics() {
+    }
+
+    /**
+     * Register the listener
+     *
+     * @param pListener listener receiving the events from now on
+     * @throws IllegalStateException if a listener is already registered
+     */
+    public static synchronized void register(@Nonnull final GMetricsListener pListener) {
+
+        Validate.notNull(pListener, "Listener not valid");
+        if (null != listener) {
+            throw new IllegalStateException("Metrics listener already registered");
+        }
+
+        listener = pListener;
+    }
+
+    /**
+     * Remove the registered listener (if any)
+     */
+    public static synchronized void unregister() {
+        listener = null;
+    }
+
+    /**
+     * @return true if a listener is registered (the caller can then measure times)
+     */
+    static boolean isEnabled() {
+        return null != listener;
+    }
+
+    static void created(final Class<?> type) {
+        final GMetricsListener current = listener;
+        if (null != current) {
+            try {
+                current.created(type);
+            } catch (final RuntimeException e) {
+                // listener errors never break the document generation
+            }
+        }
+    }
+
+    static void changed(final Class<?> type) {
+        final GMetricsListener current = listener;
+        if (null != current) {
+            try {
+                current.changed(type);
+            } catch (final RuntimeException e) {
+                // see created
+            }
+        }
+    }
+
+    static void xml(final Class<?> type, final int bytes, final boolean cached, final long nanos) {
+        final GMetricsListener current = listener;
+        if (null != current) {
+            try {
+                current.xml(type, bytes, cached, nanos);
+            } catch (final RuntimeException e) {
+                // see created
+            }
+        }
+    }
+
+    /**
+     * @param text text to be measured
+     * @return size of the UTF-8 encoding of the text, computed without encoding it
+     */
+    static int utf8Length(@Nonnull final CharSequence text) {
+        final int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (0x80 <= c) {
+                if (0x800 > c) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // 4 bytes for the 2 chars of the pair
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static void saved(final long marshalNanos, final long compressNanos, final long writeNanos, final long totalNanos,
+        final long bytes) {
+        final GMetricsListener current = listener;
+        if (null != current) {
+            try {
+                current.saved(marshalNanos, compressNanos, writeNanos, totalNanos, bytes);
+            } catch (final RuntimeException e) {
+                // see created
+            }
+        }
+    }
+}
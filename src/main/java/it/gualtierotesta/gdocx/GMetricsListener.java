@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receiver of the gdocx instrumentation events, registered with {@link GMetrics#register(GMetricsListener)}.
+ * <p>
+ * The methods are called synchronously by the threads building and saving the documents, often concurrently: they
+ * must be thread safe and fast (for ex. increment a counter of the application metrics library). Exceptions thrown by
+ * the listener are ignored.
+ *
+ * @author gualtiero
+ */
+public interface GMetricsListener {
+
+    /**
+     * A G* element has been created (by its static factory or a copy)
+     *
+     * @param type GP, GTbl, GTr or GTc class
+     */
+    void created(@Nonnull Class<?> type);
+
+    /**
+     * A G* element has been changed by a builder method, which clears its XML cache. Adding an element also changes
+     * its container, which is reported too. The validations of the arguments are not counted: they also run in the
+     * static factories and can fail without any change.
+     *
+     * @param type GP, GTbl, GTr or GTc class
+     */
+    void changed(@Nonnull Class<?> type);
+
+    /**
+     * The xml() method of a G* element has returned
+     *
+     * @param type   GP, GTbl, GTr or GTc class
+     * @param bytes  size (bytes, UTF-8 encoded) of the returned XML
+     * @param cached true if the XML was taken from the cache
+     * @param nanos  duration of the call
+     */
+    void xml(@Nonnull Class<?> type, int bytes, boolean cached, long nanos);
+
+    /**
+     * A document has been saved by {@link GDocxSaver} (also for {@link GDocxEditor}), merged by {@link GTemplate}
+     * or completed by {@link GDocxWriter}. Marshal and compress times of GDocxSaver are summed over the parallel
+     * tasks, so they can exceed the total. GDocxWriter compresses while writing: its marshal time is spent writing
+     * the added elements and includes their compression, its compress time is zero and its total goes from the
+     * creation of the writer to its close (the time spent building the elements included).
+     *
+     * @param marshalNanos  time spent marshalling the parts
+     * @param compressNanos time spent computing checksums and compressing
+     * @param writeNanos    time spent writing the zip entries to the output
+     * @param totalNanos    duration of the save
+     * @param bytes         size of the zip entries written (compressed)
+     */
+    void saved(long marshalNanos, long compressNanos, long writeNanos, long totalNanos, long bytes);
+}
@@ -19,12 +19,11 @@
 package it.gualtierotesta.gdocx;
 
 import org.apache.commons.lang.Validate;
-import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
 import org.docx4j.wml.*;
 
 import javax.annotation.Nonnull;
-import java.math.BigInteger;
+import java.util.List;
 
 /**
  * Extension to object P
@@ -36,6 +35,7 @@ public class GP extends P {
 
     private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
     private RPr rPr;
+    private GXmlCache xmlCache;
 
     /**
      * Constructor
@@ -43,6 +43,7 @@ public class GP extends P {
     private GP() {
         pPr = FACTORY.createPPr();
         pPr.setRPr(FACTORY.createParaRPr());
+        GMetrics.created(GP.class);
     }
 
     /**
@@ -76,7 +77,10 @@ public class GP extends P {
 //    }
 
     /**
-     * Add all strings in the array, each on a separate Run
+     * Add all strings in the array, separated by line breaks, to a single Run (w:t, w:br, w:t,...).
+     * <p>
+     * If the paragraph ends with a Run of a previous call (same properties), the strings are added to that Run
+     * instead of a new one.
      *
      * @param aText array of text strings
      * @return same GP instance
@@ -86,22 +90,25 @@ public class GP extends P {
 
         Validate.notEmpty(aText, "String array not valid");
 
+        R run = lastRun();
         final int length = aText.length;
         for (int i = 0; i < length; i++) {
             if (null != aText[i]) {
+                if (null == run) {
+                    run = FACTORY.createR();
+                    run.setRPr(getRPr());
+                    run.setParent(this);
+                    getContent().add(run);
+                }
                 final Text text = FACTORY.createText();
                 text.setValue(aText[i]);
-                final R run = FACTORY.createR();
                 run.getContent().add(text);
-                run.setRPr(getRPr());
-                getContent().add(run);
                 if (i + 1 != length) {
-                    final R runBr = FACTORY.createR();
-                    runBr.getContent().add(FACTORY.createBr());
-                    getContent().add(runBr);
+                    run.getContent().add(FACTORY.createBr());
                 }
             }
         }
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -128,11 +135,8 @@ public class GP extends P {
 
         Validate.notEmpty(sFontName, "Font name not valid");
 
-        final RFonts rFonts = FACTORY.createRFonts();
-        rFonts.setAscii(sFontName);
-        rFonts.setHAnsi(sFontName);
-        rFonts.setCs(sFontName);
-        getRPr().setRFonts(rFonts);
+        getRPr().setRFonts(GFactory.sharedFonts(sFontName));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -147,10 +151,10 @@ public class GP extends P {
 
         Validate.isTrue(0L < lFontSize, "Font size not valid");
 
-        final HpsMeasure hpsMeasure = FACTORY.createHpsMeasure();
-        hpsMeasure.setVal(BigInteger.valueOf(lFontSize * 2L));
+        final HpsMeasure hpsMeasure = GFactory.sharedHpsMeasure(lFontSize * 2L);
         getRPr().setSz(hpsMeasure);
         getRPr().setSzCs(hpsMeasure);
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -162,6 +166,7 @@ public class GP extends P {
     @Nonnull
     public GP bold() {
         getRPr().setB(GFactory.BOOLEAN_TRUE);
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -173,6 +178,7 @@ public class GP extends P {
     @Nonnull
     public GP italic() {
         getRPr().setI(GFactory.BOOLEAN_TRUE);
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -187,9 +193,8 @@ public class GP extends P {
 
         Validate.notEmpty(sColor, "String color not valid");
 
-        final Color par = FACTORY.createColor();
-        par.setVal(sColor);
-        getRPr().setColor(par);
+        getRPr().setColor(GFactory.sharedColor(sColor));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -204,17 +209,78 @@ public class GP extends P {
 
         Validate.notNull(eTextAlign, "Text alignment not valid");
 
-        final Jc jc = FACTORY.createJc();
-        jc.setVal(eTextAlign);
-        getPPr().setJc(jc);
+        getPPr().setJc(GFactory.sharedJc(eTextAlign));
+        GXmlCache.changed(this);
         return this;
     }
 
     /**
-     * @return the XML of the current instance
+     * Copy this paragraph, without the JAXB round trip of {@code XmlUtils.deepCopy}: runs, texts and properties
+     * containers (pPr, rPr) are duplicated, the property values (fonts, sizes, colors,...) are shared with this
+     * instance since the builder methods replace them and never change them.
+     *
+     * @return new GP instance, equal to this one
+     */
+    @Nonnull
+    public GP copy() {
+        return copy(new GCopier());
+    }
+
+    /**
+     * Copy with the given copier (see {@link GCopier})
+     */
+    GP copy(@Nonnull final GCopier copier) {
+        final GP copy = copier.p(this, new GP());
+        copy.rPr = copier.rPr(rPr);
+        return copy;
+    }
+
+    /**
+     * @return the XML of the current instance (cached until a builder method changes this element or one of the
+     * G* elements it contains; changes made with the docx4j methods are not detected)
      */
     public String xml() {
-        return XmlUtils.marshaltoString(this, false, true);
+        if (null == xmlCache) {
+            xmlCache = new GXmlCache();
+        }
+        return xmlCache.xml(this);
+    }
+
+    /**
+     * @return the estimated XML size and retained heap of this paragraph and its content, computed without
+     * serializing it (see {@link GSizeEstimate})
+     */
+    @Nonnull
+    public GSizeEstimate estimate() {
+        return GSizeEstimate.of(this);
+    }
+
+    /**
+     * @return the cache of {@link #xml()} (null if xml() has never been called)
+     */
+    GXmlCache xmlCache() {
+        return xmlCache;
+    }
+
+    /**
+     * @return the run properties shared by the runs of this paragraph (null if no font property has been set)
+     */
+    RPr runProperties() {
+        return rPr;
+    }
+
+    /**
+     * @return the last element of the paragraph if it is a Run with the rPr of this paragraph, null otherwise
+     */
+    private R lastRun() {
+        final List<Object> content = getContent();
+        if (null != rPr && !content.isEmpty()) {
+            final Object last = content.get(content.size() - 1);
+            if (last instanceof R && rPr == ((R) last).getRPr()) {
+                return (R) last;
+            }
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.annotation.Nonnull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Load3;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+
+/**
+ * Source of new packages sharing a skeleton prepared once, instead of a {@code createPackage()} per document.
+ * <p>
+ * The skeleton (the default one of docx4j or a corporate docx with its styles, headers, footers and section
+ * properties) is serialized once. Every {@link #newPackage()} builds a package whose parts are not loaded: a part is
+ * unmarshalled from the skeleton bytes, as a private copy, only when its content is first read, and the parts never
+ * read are saved copying the skeleton bytes. A document which only adds GP and GTbl elements to the body loads just
+ * the main document part.
+ * <pre>
+ * GPackagePool pool = GPackagePool.create(new File("corporate.docx"));
+ * for (final Report report : reports) {
+ *     WordprocessingMLPackage pkg = pool.newPackage();
+ *     pkg.getMainDocumentPart().getContent().add(GP.create().text(report.getTitle()));
+ *     GDocxSaver.create().save(pkg, outputFor(report));
+ * }
+ * </pre>
+ * A pool is immutable and thread safe.
+ *
+ * @author gualtiero
+ */
+public final class GPackagePool {
+
+    private final Map<String, byte[]> entries;
+
+    /**
+     * Constructor
+     */
+    private GPackagePool(final Map<String, byte[]> pEntries) {
+        entries = pEntries;
+    }
+
+    /**
+     * Static factory for a pool of the docx4j default package (as {@code WordprocessingMLPackage.createPackage()})
+     *
+     * @return new GPackagePool instance
+     * @throws Docx4JException if the skeleton cannot be created
+     */
+    @Nonnull
+    public static GPackagePool create() throws Docx4JException {
+        return create(WordprocessingMLPackage.createPackage());
+    }
+
+    /**
+     * Static factory for a pool of a template file: the body contents are removed, the body section properties kept
+     *
+     * @param docx template file
+     * @return new GPackagePool instance
+     * @throws Docx4JException if the template cannot be loaded
+     */
+    @Nonnull
+    public static GPackagePool create(@Nonnull final File docx) throws Docx4JException {
+
+        Validate.notNull(docx, "File not valid");
+
+        return create(WordprocessingMLPackage.load(docx));
+    }
+
+    /**
+     * Static factory for a pool of a template package: the body contents are removed, the body section properties
+     * kept. The template is not changed.
+     *
+     * @param template template package
+     * @return new GPackagePool instance
+     * @throws Docx4JException if the template cannot be saved
+     */
+    @Nonnull
+    public static GPackagePool create(@Nonnull final WordprocessingMLPackage template) throws Docx4JException {
+
+        Validate.notNull(template, "Template package not valid");
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        template.save(baos);
+        // Private copy of the template, without the body contents
+        final WordprocessingMLPackage skeleton = WordprocessingMLPackage.load(
+            new ByteArrayInputStream(baos.toByteArray()));
+        skeleton.getMainDocumentPart().getContent().clear();
+        baos.reset();
+        skeleton.save(baos);
+        try {
+            return new GPackagePool(entries(baos.toByteArray()));
+        } catch (final IOException e) {
+            throw new Docx4JException("Error reading the skeleton package", e);
+        }
+    }
+
+    /**
+     * @return new package, with an empty body and the parts of the skeleton
+     * @throws Docx4JException if the package cannot be built
+     */
+    @Nonnull
+    public WordprocessingMLPackage newPackage() throws Docx4JException {
+        final OpcPackage pkg = new Load3(new GBytesPartStore(entries)).get();
+        return (WordprocessingMLPackage) pkg;
+    }
+
+    private static Map<String, byte[]> entries(final byte[] docx) throws IOException {
+        final Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx));
+        try {
+            ZipEntry entry = zis.getNextEntry();
+            while (null != entry) {
+                entries.put(entry.getName(), IOUtils.toByteArray(zis));
+                entry = zis.getNextEntry();
+            }
+        } finally {
+            zis.close();
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+/**
+ * Counters and times of the jobs of a {@link GDocumentRenderer}.
+ * <p>
+ * The queue time of a job goes from its submission to the start of the build (waiting for a thread and for the
+ * document limit), the render time covers build and save. The values are updated concurrently and read without
+ * locking, so a read can mix values from before and after a job end.
+ *
+ * @author gualtiero
+ */
+public final class GRenderMetrics {
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong maxRenderNanos = new AtomicLong();
+
+    /**
+     * Constructor
+     */
+    GRenderMetrics() {
+    }
+
+    /**
+     * @return number of submitted jobs
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of documents built and saved
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of jobs ended with an error (deadline expirations excluded)
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of jobs stopped because their deadline expired
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * @param unit time unit of the result
+     * @return average queue time of the started jobs
+     */
+    public long getAverageQueueTime(@Nonnull final TimeUnit unit) {
+        return average(queueNanos, started, unit);
+    }
+
+    /**
+     * @param unit time unit of the result
+     * @return maximum queue time of the started jobs
+     */
+    public long getMaxQueueTime(@Nonnull final TimeUnit unit) {
+        return unit.convert(maxQueueNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit time unit of the result
+     * @return average build and save time of the jobs which ran to the end (completed or failed)
+     */
+    public long getAverageRenderTime(@Nonnull final TimeUnit unit) {
+        return average(renderNanos, rendered, unit);
+    }
+
+    /**
+     * @param unit time unit of the result
+     * @return maximum build and save time
+     */
+    public long getMaxRenderTime(@Nonnull final TimeUnit unit) {
+        return unit.convert(maxRenderNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "GRenderMetrics{submitted=" + getSubmitted() + ", completed=" + getCompleted() + ", failed="
+            + getFailed() + ", timedOut=" + getTimedOut() + ", avgQueueMs="
+            + getAverageQueueTime(TimeUnit.MILLISECONDS) + ", avgRenderMs="
+            + getAverageRenderTime(TimeUnit.MILLISECONDS) + '}';
+    }
+
+    void submitted() {
+        submitted.incrementAndGet();
+    }
+
+    void started(final long lQueueNanos) {
+        started.incrementAndGet();
+        queueNanos.addAndGet(lQueueNanos);
+        max(maxQueueNanos, lQueueNanos);
+    }
+
+    void rendered(final long lRenderNanos, final boolean bSuccess) {
+        rendered.incrementAndGet();
+        renderNanos.addAndGet(lRenderNanos);
+        max(maxRenderNanos, lRenderNanos);
+        (bSuccess ? completed : failed).incrementAndGet();
+    }
+
+    void timedOut() {
+        timedOut.incrementAndGet();
+    }
+
+    private static long average(final AtomicLong total, final AtomicLong count, final TimeUnit unit) {
+        final long n = count.get();
+        return 0L == n ? 0L : unit.convert(total.get() / n, TimeUnit.NANOSECONDS);
+    }
+
+    private static void max(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
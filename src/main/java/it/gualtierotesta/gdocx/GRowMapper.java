@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Conversion of a source value (for ex. a record read from a cursor) to a table row, used by
+ * {@link GTbl#fromSource(Iterable, GRowMapper)} when the table is serialized.
+ *
+ * @param <T> type of the source values
+ * @author gualtiero
+ */
+public interface GRowMapper<T> {
+
+    /**
+     * Build the row of a value
+     *
+     * @param value source value
+     * @return the row (for ex. GTr), not kept by the table
+     */
+    @Nonnull
+    Object row(@Nonnull T value);
+}
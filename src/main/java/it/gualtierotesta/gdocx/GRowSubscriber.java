@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.wml.Tbl;
+
+/**
+ * Subscriber writing the rows received from a publisher in a table of a {@link GDocxWriter}, with backpressure.
+ * <p>
+ * The methods follow the {@code java.util.concurrent.Flow.Subscriber} (Reactive Streams) contract, so a Java 9+
+ * publisher can be connected with a small adapter. Every row is mapped and written to the document in
+ * {@link #onNext(Object)}; at most {@code batch} rows are requested and more are requested only after half of them
+ * have been written, so a slow output slows the publisher down instead of buffering rows in memory.
+ * <p>
+ * When the publisher completes, the table is ended, the writer closed and {@link #result()} completed; on a publisher
+ * or output error the subscription is cancelled, the writer closed (the document has only the rows written so far) and
+ * the result completed with the error.
+ * <pre>
+ * GRowSubscriber&lt;Order&gt; subscriber = GRowSubscriber.create(writer, GTbl.create().widthAuto(), mapper);
+ * publisher.subscribe(subscriber);  // via an adapter to Flow.Subscriber
+ * subscriber.result().get();
+ * </pre>
+ *
+ * @param <T> type of the published records
+ * @author gualtiero
+ */
+public final class GRowSubscriber<T> {
+
+    /**
+     * Default maximum number of requested and not yet received rows
+     */
+    public static final int DEFAULT_BATCH = 64;
+
+    private final GDocxWriter writer;
+    private final Tbl table;
+    private final GRowMapper<? super T> mapper;
+    private final int batch;
+    private final FutureTask<Void> result;
+    private GRowSubscription subscription;
+    private Throwable failure;
+    private boolean done;
+    private int written;
+
+    /**
+     * Constructor
+     */
+    private GRowSubscriber(final GDocxWriter pWriter, final Tbl pTable, final GRowMapper<? super T> pMapper,
+        final int iBatch) {
+        writer = pWriter;
+        table = pTable;
+        mapper = pMapper;
+        batch = iBatch;
+        result = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (null != failure) {
+                    throw failure instanceof Exception ? (Exception) failure : new Exception(failure);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Static factory with the default batch size
+     *
+     * @param writer destination document (closed when the publisher terminates)
+     * @param table  table properties and grid (the rows already in the table are written first)
+     * @param mapper record to row (for ex. GTr) conversion
+     * @param <T>    type of the published records
+     * @return new GRowSubscriber instance
+     */
+    @Nonnull
+    public static <T> GRowSubscriber<T> create(@Nonnull final GDocxWriter writer, @Nonnull final Tbl table,
+        @Nonnull final GRowMapper<? super T> mapper) {
+        return create(writer, table, mapper, DEFAULT_BATCH);
+    }
+
+    /**
+     * Static factory
+     *
+     * @param writer destination document (closed when the publisher terminates)
+     * @param table  table properties and grid (the rows already in the table are written first)
+     * @param mapper record to row (for ex. GTr) conversion
+     * @param iBatch maximum number of requested and not yet received rows
+     * @param <T>    type of the published records
+     * @return new GRowSubscriber instance
+     */
+    @Nonnull
+    public static <T> GRowSubscriber<T> create(@Nonnull final GDocxWriter writer, @Nonnull final Tbl table,
+        @Nonnull final GRowMapper<? super T> mapper, final int iBatch) {
+
+        Validate.notNull(writer, "Writer not valid");
+        Validate.notNull(table, "Table not valid");
+        Validate.notNull(mapper, "Row mapper not valid");
+        Validate.isTrue(0 < iBatch, "Batch size not valid");
+
+        return new GRowSubscriber<T>(writer, table, mapper, iBatch);
+    }
+
+    /**
+     * Start the table and request the first rows
+     *
+     * @param s subscription of the publisher
+     */
+    public synchronized void onSubscribe(@Nonnull final GRowSubscription s) {
+
+        Validate.notNull(s, "Subscription not valid");
+
+        if (null != subscription || done) {
+            s.cancel();
+            return;
+        }
+        subscription = s;
+        try {
+            writer.startTable(table);
+        } catch (final Docx4JException e) {
+            fail(e);
+            return;
+        }
+        s.request(batch);
+    }
+
+    /**
+     * Write a row, requesting more rows when half of the batch has been written
+     *
+     * @param item published record
+     */
+    public synchronized void onNext(@Nonnull final T item) {
+
+        Validate.notNull(item, "Item not valid");
+
+        if (done) {
+            return;
+        }
+        try {
+            writer.addRow(mapper.row(item));
+        } catch (final Docx4JException e) {
+            fail(e);
+            return;
+        } catch (final RuntimeException e) {
+            fail(e);
+            return;
+        }
+        written++;
+        if (written >= (batch + 1) / 2) {
+            final int n = written;
+            written = 0;
+            subscription.request(n);
+        }
+    }
+
+    /**
+     * Close the writer and complete the result with the error of the publisher
+     *
+     * @param throwable publisher error
+     */
+    public synchronized void onError(@Nonnull final Throwable throwable) {
+
+        Validate.notNull(throwable, "Error not valid");
+
+        if (!done) {
+            failure = throwable;
+            finish();
+        }
+    }
+
+    /**
+     * End the table, close the writer and complete the result
+     */
+    public synchronized void onComplete() {
+        if (done) {
+            return;
+        }
+        try {
+            writer.endTable();
+        } catch (final Docx4JException e) {
+            failure = e;
+        }
+        finish();
+    }
+
+    /**
+     * @return the result, done when the document has been written (or with the error that stopped it)
+     */
+    @Nonnull
+    public Future<Void> result() {
+        return result;
+    }
+
+    private void fail(final Exception e) {
+        failure = e;
+        if (null != subscription) {
+            subscription.cancel();
+        }
+        finish();
+    }
+
+    private void finish() {
+        done = true;
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            if (null == failure) {
+                failure = e;
+            }
+        }
+        result.run();
+    }
+}
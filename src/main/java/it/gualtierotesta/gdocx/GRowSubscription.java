@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+/**
+ * Link between a row publisher and a {@link GRowSubscriber}, with the same contract as
+ * {@code java.util.concurrent.Flow.Subscription} (and the Reactive Streams Subscription), which a Java 9+ caller can
+ * adapt with a method reference per method.
+ *
+ * @author gualtiero
+ */
+public interface GRowSubscription {
+
+    /**
+     * Ask the publisher for more rows
+     *
+     * @param n number of rows the subscriber can accept (greater than zero)
+     */
+    void request(long n);
+
+    /**
+     * Ask the publisher to stop sending rows
+     */
+    void cancel();
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Table row read by a {@link GTableReader}: text and basic properties of its cells.
+ * <p>
+ * The same instance is reused for all the rows of a reader and its values change at every
+ * {@link GTableReader#next()}: a row which must be kept is converted with {@link #toGTr()}.
+ *
+ * @author gualtiero
+ */
+public final class GRowView {
+
+    private static final int INITIAL_CELLS = 8;
+
+    private int table = -1;
+    private long row = -1L;
+    private int cells;
+    private StringBuilder[] texts = new StringBuilder[INITIAL_CELLS];
+    private int[] paragraphs = new int[INITIAL_CELLS];
+    private long[] gridSpans = new long[INITIAL_CELLS];
+    private String[] vMerges = new String[INITIAL_CELLS];
+    private String[] shadingColors = new String[INITIAL_CELLS];
+    private String[] shadingFills = new String[INITIAL_CELLS];
+
+    /**
+     * Constructor
+     */
+    GRowView() {
+        for (int i = 0; i < INITIAL_CELLS; i++) {
+            texts[i] = new StringBuilder();
+        }
+    }
+
+    /**
+     * @return index (from 0) of the table of this row among the tables of the document body
+     */
+    public int getTable() {
+        return table;
+    }
+
+    /**
+     * @return index (from 0) of this row in its table
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * @return number of cells of this row
+     */
+    public int size() {
+        return cells;
+    }
+
+    /**
+     * Text of a cell: the paragraphs are separated by new lines, as the line breaks; the tabs are tab characters.
+     * The text of tables nested in the cell is included.
+     *
+     * @param iCell cell index (from 0)
+     * @return cell text, empty if the cell has no text
+     */
+    @Nonnull
+    public String text(final int iCell) {
+        return texts[check(iCell)].toString();
+    }
+
+    /**
+     * @param iCell cell index (from 0)
+     * @return number of grid columns spanned by the cell (1 if not set)
+     */
+    public long gridSpan(final int iCell) {
+        return gridSpans[check(iCell)];
+    }
+
+    /**
+     * @param iCell cell index (from 0)
+     * @return vertical merge of the cell ("restart" or "continue"), null if the cell is not merged
+     */
+    @CheckForNull
+    public String vMerge(final int iCell) {
+        return vMerges[check(iCell)];
+    }
+
+    /**
+     * @param iCell cell index (from 0)
+     * @return shading fill color of the cell (for ex. "FF0000" or "auto"), null if not set
+     */
+    @CheckForNull
+    public String shadingFill(final int iCell) {
+        return shadingFills[check(iCell)];
+    }
+
+    /**
+     * @param iCell cell index (from 0)
+     * @return shading pattern color of the cell, null if not set
+     */
+    @CheckForNull
+    public String shadingColor(final int iCell) {
+        return shadingColors[check(iCell)];
+    }
+
+    /**
+     * Build a table row with the cells of this view: every cell has a paragraph with its text (lines separated by
+     * breaks), its grid span, vertical merge and shading. Other formatting is not read and not copied, nor are grid
+     * spans lower than 2 and shadings without fill.
+     *
+     * @return new GTr instance, independent of this view
+     */
+    @Nonnull
+    public GTr toGTr() {
+        final GTr tr = GTr.create();
+        for (int i = 0; i < cells; i++) {
+            final GP p = GP.create();
+            if (0 < texts[i].length()) {
+                p.text(texts[i].toString().split("\n", -1));
+            }
+            final GTc tc = GTc.create().add(p);
+            if (1L < gridSpans[i]) {
+                tc.gridspan(gridSpans[i]);
+            }
+            if (null != vMerges[i]) {
+                tc.vmerge("continue".equals(vMerges[i]) ? null : vMerges[i]);
+            }
+            if (StringUtils.isNotEmpty(shadingFills[i])) {
+                tc.shd(StringUtils.defaultIfEmpty(shadingColors[i], "auto"), shadingFills[i]);
+            }
+            tr.add(tc);
+        }
+        return tr;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("GRowView{table=").append(table).append(", row=").append(row);
+        for (int i = 0; i < cells; i++) {
+            sb.append(0 == i ? ", cells=[" : ", ").append(texts[i]);
+        }
+        return sb.append(0 == cells ? "}" : "]}").toString();
+    }
+
+    /**
+     * Start a new table
+     */
+    void startTable() {
+        table++;
+        row = -1L;
+    }
+
+    /**
+     * Start a new row of the current table
+     */
+    void startRow() {
+        row++;
+        cells = 0;
+    }
+
+    /**
+     * Start a new cell of the current row
+     */
+    void startCell() {
+        if (cells == texts.length) {
+            grow();
+        }
+        texts[cells].setLength(0);
+        paragraphs[cells] = 0;
+        gridSpans[cells] = 1L;
+        vMerges[cells] = null;
+        shadingColors[cells] = null;
+        shadingFills[cells] = null;
+        cells++;
+    }
+
+    /**
+     * Start a new paragraph of the current cell
+     */
+    void startParagraph() {
+        if (0 < paragraphs[cells - 1]++) {
+            texts[cells - 1].append('\n');
+        }
+    }
+
+    void append(@Nonnull final String sText) {
+        texts[cells - 1].append(sText);
+    }
+
+    void append(final char c) {
+        texts[cells - 1].append(c);
+    }
+
+    void gridSpan(final long lSpan) {
+        gridSpans[cells - 1] = lSpan;
+    }
+
+    void vMerge(@Nonnull final String sMerge) {
+        vMerges[cells - 1] = sMerge;
+    }
+
+    void shading(@CheckForNull final String sColor, @CheckForNull final String sFill) {
+        shadingColors[cells - 1] = sColor;
+        shadingFills[cells - 1] = sFill;
+    }
+
+    /**
+     * @return true if the current row has at least a cell
+     */
+    boolean inCell() {
+        return 0 < cells;
+    }
+
+    private int check(final int iCell) {
+        Validate.isTrue(0 <= iCell && iCell < cells, "Cell index not valid");
+        return iCell;
+    }
+
+    private void grow() {
+        final int length = texts.length * 2;
+        texts = Arrays.copyOf(texts, length);
+        for (int i = cells; i < length; i++) {
+            texts[i] = new StringBuilder();
+        }
+        paragraphs = Arrays.copyOf(paragraphs, length);
+        gridSpans = Arrays.copyOf(gridSpans, length);
+        vMerges = Arrays.copyOf(vMerges, length);
+        shadingColors = Arrays.copyOf(shadingColors, length);
+        shadingFills = Arrays.copyOf(shadingFills, length);
+    }
+}
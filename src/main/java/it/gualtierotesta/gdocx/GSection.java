@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/**
+ * Builder of an independent section of a document (for ex. a heading and a table), run by
+ * {@link GDocumentAssembler} possibly in parallel with the other sections.
+ * <p>
+ * Implementations must not share mutable objects (builders, lists,...) with the other sections.
+ *
+ * @author gualtiero
+ */
+public interface GSection {
+
+    /**
+     * Build the section
+     *
+     * @param content list where the section elements (GP, GTbl,...) are added in document order
+     * @throws Exception if the section cannot be built
+     */
+    void build(@Nonnull List<Object> content) throws Exception;
+}
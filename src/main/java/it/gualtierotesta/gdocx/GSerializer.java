@@ -0,0 +1,739 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import org.apache.commons.lang.Validate;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.CTBorder;
+import org.docx4j.wml.CTHeight;
+import org.docx4j.wml.CTShd;
+import org.docx4j.wml.CTTblLook;
+import org.docx4j.wml.Color;
+import org.docx4j.wml.HpsMeasure;
+import org.docx4j.wml.Jc;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.ParaRPr;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RFonts;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.RPrAbstract;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.TblBorders;
+import org.docx4j.wml.TblGrid;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblPr;
+import org.docx4j.wml.TblWidth;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.TcPr;
+import org.docx4j.wml.TcPrInner;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
+import org.docx4j.wml.TrPr;
+
+/**
+ * Hand written WordML serializer for the gdocx builders.
+ * <p>
+ * Paragraphs, runs, tables, rows and cells with the properties set by the G* builders (run fonts, size, color,
+ * bold, italic, paragraph alignment, cell borders, shading, grid span, vertical merge, row height and "can split",
+ * table widths, layout, look, borders and grid) are written directly, without JAXB marshalling. Any other
+ * content, for example objects added with {@code add(Object)} or properties set directly on the docx4j objects,
+ * is marshalled by JAXB.
+ *
+ * @author gualtiero
+ */
+public final class GSerializer {
+
+    static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final Pattern NS_DECLARATION = Pattern.compile(" xmlns:(\\w+)=\"([^\"]*)\"");
+    private static final String ROOT_NAMESPACES;
+    private static final Map<String, String> ROOT_SCOPE;
+
+    static {
+        // Same namespace declarations written by docx4j on the root element
+        final String xml = XmlUtils.marshaltoString(Context.getWmlObjectFactory().createP(), true, false);
+        final String declarations = xml.substring(xml.indexOf(' '), xml.lastIndexOf("/>"));
+        final StringBuilder sb = new StringBuilder(declarations.length());
+        final Map<String, String> scope = new HashMap<String, String>();
+        final Matcher matcher = NS_DECLARATION.matcher(declarations);
+        while (matcher.find()) {
+            sb.append(matcher.group());
+            scope.put(matcher.group(1), matcher.group(2));
+        }
+        ROOT_NAMESPACES = sb.toString();
+        ROOT_SCOPE = Collections.unmodifiableMap(scope);
+    }
+
+    private final GXmlOutput out;
+    private final Map<String, String> inScope;
+    private final String rootNamespaces;
+
+    /**
+     * Constructor
+     *
+     * @param pOut            destination output
+     * @param pInScope        namespace declarations (prefix to uri) already in scope
+     * @param sRootNamespaces namespace declarations to be written on root elements (null if none)
+     */
+    GSerializer(@Nonnull final GXmlOutput pOut, @Nonnull final Map<String, String> pInScope,
+        @CheckForNull final String sRootNamespaces) {
+        out = pOut;
+        inScope = pInScope;
+        rootNamespaces = sRootNamespaces;
+    }
+
+    /**
+     * Serialize an object with XML declaration and indentation, as {@code XmlUtils.marshaltoString(obj, false, true)}
+     *
+     * @param obj object to be serialized (for ex. GP or GTbl)
+     * @return the XML of the object
+     */
+    @Nonnull
+    public static String xml(@Nonnull final Object obj) {
+
+        Validate.notNull(obj, "Object not valid");
+
+        final StringWriter sw = GJaxbPool.writer();
+        try {
+            final GXmlOutput output = new GXmlOutput(sw, true);
+            output.declaration();
+            new GSerializer(output, ROOT_SCOPE, ROOT_NAMESPACES).write(obj);
+            output.finish();
+            return sw.toString();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } catch (final JAXBException e) {
+            throw new RuntimeException(e);
+        } finally {
+            GJaxbPool.release(sw);
+        }
+    }
+
+    /**
+     * Serialize an object (without XML declaration and indentation) to a writer
+     *
+     * @param obj    object to be serialized (for ex. GP or GTbl)
+     * @param writer destination writer
+     * @throws IOException if the object cannot be written
+     */
+    public static void write(@Nonnull final Object obj, @Nonnull final Writer writer) throws IOException {
+
+        Validate.notNull(obj, "Object not valid");
+        Validate.notNull(writer, "Writer not valid");
+
+        final GXmlOutput output = new GXmlOutput(writer, false);
+        try {
+            new GSerializer(output, ROOT_SCOPE, ROOT_NAMESPACES).write(obj);
+            output.flush();
+        } catch (final JAXBException e) {
+            throw new IOException("Error marshalling " + obj.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Namespace declarations of an XML text (for ex. the start tags of document and body)
+     *
+     * @param sXml XML text
+     * @return map of prefix to uri of all the declarations found
+     */
+    @Nonnull
+    static Map<String, String> namespaces(@Nonnull final String sXml) {
+        final Map<String, String> namespaces = new HashMap<String, String>();
+        final Matcher matcher = NS_DECLARATION.matcher(sXml);
+        while (matcher.find()) {
+            namespaces.put(matcher.group(1), matcher.group(2));
+        }
+        return namespaces;
+    }
+
+    /**
+     * Compact XML of run properties, used to compare property sets
+     *
+     * @param rPr run properties
+     * @return the XML of the properties or null if they contain properties not written by this serializer
+     */
+    @CheckForNull
+    static String rPrKey(@Nonnull final RPrAbstract rPr) {
+        if (!isKnown(rPr)) {
+            return null;
+        }
+        final StringWriter sw = new StringWriter(128);
+        try {
+            new GSerializer(new GXmlOutput(sw, false), ROOT_SCOPE, null).writeRPrContent(rPr);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Write an object
+     *
+     * @param obj object to be written
+     */
+    void write(@Nonnull final Object obj) throws IOException, JAXBException {
+        final Object value = unwrap(obj);
+        if (value instanceof P) {
+            writeP((P) value, obj);
+        } else if (value instanceof Tbl) {
+            writeTbl((Tbl) value);
+        } else if (value instanceof Tr) {
+            writeTr((Tr) value, obj);
+        } else if (value instanceof Tc) {
+            writeTc((Tc) value);
+        } else if (value instanceof R) {
+            writeR((R) value, obj);
+        } else {
+            fallback(obj);
+        }
+    }
+
+    /**
+     * Write table start tag, properties, grid and rows, leaving the table element open
+     *
+     * @param tbl table to be started
+     */
+    void startTable(@Nonnull final Tbl tbl) throws IOException, JAXBException {
+        open("w:tbl");
+        writeTblPr(tbl.getTblPr());
+        writeTblGrid(tbl.getTblGrid());
+        Iterable<Object> content = tbl.getContent();
+        if (content instanceof GSpillList && !out.isPretty()) {
+            // rows spilled to disk are copied as they are, the pretty output needs them unmarshalled and indented
+            ((GSpillList) content).copySpilled(out);
+            content = ((GSpillList) content).inMemory();
+        }
+        for (final Object obj : content) {
+            write(obj);
+        }
+    }
+
+    /**
+     * Write table end tag
+     */
+    void endTable() throws IOException {
+        out.end("w:tbl");
+    }
+
+    private void writeP(final P p, final Object obj) throws IOException, JAXBException {
+        if (!isKnown(p)) {
+            fallback(obj);
+            return;
+        }
+        open("w:p");
+        writePPr(p.getPPr());
+        for (final Object child : p.getContent()) {
+            write(child);
+        }
+        out.end("w:p");
+    }
+
+    private void writePPr(final PPr pPr) throws IOException, JAXBException {
+        if (null == pPr) {
+            return;
+        }
+        if (!isKnown(pPr)) {
+            fallback(new JAXBElement<PPr>(new QName(W_NS, "pPr"), PPr.class, pPr));
+            return;
+        }
+        out.start("w:pPr");
+        if (null != pPr.getPStyle()) {
+            out.start("w:pStyle");
+            attribute("w:val", pPr.getPStyle().getVal());
+            out.end("w:pStyle");
+        }
+        writeJc("w:jc", pPr.getJc());
+        final ParaRPr rPr = pPr.getRPr();
+        if (null != rPr) {
+            if (!isKnown(rPr)) {
+                fallback(new JAXBElement<ParaRPr>(new QName(W_NS, "rPr"), ParaRPr.class, rPr));
+            } else {
+                writeRPrContent(rPr);
+            }
+        }
+        out.end("w:pPr");
+    }
+
+    private void writeR(final R r, final Object obj) throws IOException, JAXBException {
+        if (!isKnown(r)) {
+            fallback(obj);
+            return;
+        }
+        open("w:r");
+        final RPr rPr = r.getRPr();
+        if (null != rPr) {
+            if (isKnown(rPr)) {
+                writeRPrContent(rPr);
+            } else {
+                fallback(new JAXBElement<RPr>(new QName(W_NS, "rPr"), RPr.class, rPr));
+            }
+        }
+        for (final Object child : r.getContent()) {
+            final Object value = unwrap(child);
+            if (value instanceof Text) {
+                writeText((Text) value);
+            } else if (value instanceof Br) {
+                writeBr((Br) value);
+            } else {
+                fallback(child);
+            }
+        }
+        out.end("w:r");
+    }
+
+    private void writeRPrContent(final RPrAbstract rPr) throws IOException {
+        out.start("w:rPr");
+        if (null != rPr.getRStyle()) {
+            out.start("w:rStyle");
+            attribute("w:val", rPr.getRStyle().getVal());
+            out.end("w:rStyle");
+        }
+        final RFonts rFonts = rPr.getRFonts();
+        if (null != rFonts) {
+            out.start("w:rFonts");
+            attribute("w:hint", null == rFonts.getHint() ? null : rFonts.getHint().value());
+            attribute("w:ascii", rFonts.getAscii());
+            attribute("w:hAnsi", rFonts.getHAnsi());
+            attribute("w:eastAsia", rFonts.getEastAsia());
+            attribute("w:cs", rFonts.getCs());
+            attribute("w:asciiTheme", null == rFonts.getAsciiTheme() ? null : rFonts.getAsciiTheme().value());
+            attribute("w:hAnsiTheme", null == rFonts.getHAnsiTheme() ? null : rFonts.getHAnsiTheme().value());
+            attribute("w:eastAsiaTheme",
+                null == rFonts.getEastAsiaTheme() ? null : rFonts.getEastAsiaTheme().value());
+            attribute("w:cstheme", null == rFonts.getCstheme() ? null : rFonts.getCstheme().value());
+            out.end("w:rFonts");
+        }
+        writeBoolean("w:b", rPr.getB());
+        writeBoolean("w:i", rPr.getI());
+        final Color color = rPr.getColor();
+        if (null != color) {
+            out.start("w:color");
+            attribute("w:val", color.getVal());
+            attribute("w:themeColor", null == color.getThemeColor() ? null : color.getThemeColor().value());
+            attribute("w:themeTint", color.getThemeTint());
+            attribute("w:themeShade", color.getThemeShade());
+            out.end("w:color");
+        }
+        writeHps("w:sz", rPr.getSz());
+        writeHps("w:szCs", rPr.getSzCs());
+        out.end("w:rPr");
+    }
+
+    private void writeText(final Text text) throws IOException {
+        out.start("w:t");
+        attribute("xml:space", text.getSpace());
+        if (null != text.getValue()) {
+            out.text(text.getValue());
+        }
+        out.end("w:t");
+    }
+
+    private void writeBr(final Br br) throws IOException {
+        out.start("w:br");
+        attribute("w:type", null == br.getType() ? null : br.getType().value());
+        attribute("w:clear", null == br.getClear() ? null : br.getClear().value());
+        out.end("w:br");
+    }
+
+    private void writeTbl(final Tbl tbl) throws IOException, JAXBException {
+        startTable(tbl);
+        endTable();
+    }
+
+    private void writeTblPr(final TblPr tblPr) throws IOException, JAXBException {
+        if (null == tblPr) {
+            return;
+        }
+        if (!isKnown(tblPr)) {
+            fallback(new JAXBElement<TblPr>(new QName(W_NS, "tblPr"), TblPr.class, tblPr));
+            return;
+        }
+        out.start("w:tblPr");
+        writeWidth("w:tblW", tblPr.getTblW());
+        writeJc("w:jc", tblPr.getJc());
+        final TblBorders borders = tblPr.getTblBorders();
+        if (null != borders) {
+            out.start("w:tblBorders");
+            writeBorder("w:top", borders.getTop());
+            writeBorder("w:left", borders.getLeft());
+            writeBorder("w:bottom", borders.getBottom());
+            writeBorder("w:right", borders.getRight());
+            writeBorder("w:insideH", borders.getInsideH());
+            writeBorder("w:insideV", borders.getInsideV());
+            out.end("w:tblBorders");
+        }
+        if (null != tblPr.getTblLayout()) {
+            out.start("w:tblLayout");
+            attribute("w:type",
+                null == tblPr.getTblLayout().getType() ? null : tblPr.getTblLayout().getType().value());
+            out.end("w:tblLayout");
+        }
+        final CTTblLook look = tblPr.getTblLook();
+        if (null != look) {
+            out.start("w:tblLook");
+            attribute("w:firstRow", null == look.getFirstRow() ? null : look.getFirstRow().value());
+            attribute("w:lastRow", null == look.getLastRow() ? null : look.getLastRow().value());
+            attribute("w:firstColumn", null == look.getFirstColumn() ? null : look.getFirstColumn().value());
+            attribute("w:lastColumn", null == look.getLastColumn() ? null : look.getLastColumn().value());
+            attribute("w:noHBand", null == look.getNoHBand() ? null : look.getNoHBand().value());
+            attribute("w:noVBand", null == look.getNoVBand() ? null : look.getNoVBand().value());
+            attribute("w:val", look.getVal());
+            out.end("w:tblLook");
+        }
+        out.end("w:tblPr");
+    }
+
+    private void writeTblGrid(final TblGrid tblGrid) throws IOException, JAXBException {
+        if (null == tblGrid) {
+            return;
+        }
+        if (null != tblGrid.getTblGridChange()) {
+            fallback(new JAXBElement<TblGrid>(new QName(W_NS, "tblGrid"), TblGrid.class, tblGrid));
+            return;
+        }
+        out.start("w:tblGrid");
+        for (final TblGridCol gridCol : tblGrid.getGridCol()) {
+            out.start("w:gridCol");
+            attribute("w:w", gridCol.getW());
+            out.end("w:gridCol");
+        }
+        out.end("w:tblGrid");
+    }
+
+    private void writeTr(final Tr tr, final Object obj) throws IOException, JAXBException {
+        if (!isKnown(tr)) {
+            fallback(obj);
+            return;
+        }
+        open("w:tr");
+        writeTrPr(tr.getTrPr());
+        for (final Object child : tr.getContent()) {
+            write(child);
+        }
+        out.end("w:tr");
+    }
+
+    private void writeTrPr(final TrPr trPr) throws IOException, JAXBException {
+        if (null == trPr) {
+            return;
+        }
+        if (!isKnown(trPr)) {
+            fallback(new JAXBElement<TrPr>(new QName(W_NS, "trPr"), TrPr.class, trPr));
+            return;
+        }
+        out.start("w:trPr");
+        for (final JAXBElement<?> element : trPr.getCnfStyleOrDivIdOrGridBefore()) {
+            final String name = element.getName().getLocalPart();
+            final Object value = element.getValue();
+            if (W_NS.equals(element.getName().getNamespaceURI()) && value instanceof CTHeight) {
+                final CTHeight height = (CTHeight) value;
+                out.start("w:" + name);
+                attribute("w:val", height.getVal());
+                attribute("w:hRule", null == height.getHRule() ? null : height.getHRule().value());
+                out.end("w:" + name);
+            } else if (W_NS.equals(element.getName().getNamespaceURI()) && value instanceof BooleanDefaultTrue) {
+                writeBoolean("w:" + name, (BooleanDefaultTrue) value);
+            } else if (W_NS.equals(element.getName().getNamespaceURI()) && value instanceof Jc) {
+                writeJc("w:" + name, (Jc) value);
+            } else {
+                fallback(element);
+            }
+        }
+        out.end("w:trPr");
+    }
+
+    private void writeTc(final Tc tc) throws IOException, JAXBException {
+        open("w:tc");
+        writeTcPr(tc.getTcPr());
+        for (final Object child : tc.getContent()) {
+            write(child);
+        }
+        out.end("w:tc");
+    }
+
+    private void writeTcPr(final TcPr tcPr) throws IOException, JAXBException {
+        if (null == tcPr) {
+            return;
+        }
+        if (!isKnown(tcPr)) {
+            fallback(new JAXBElement<TcPr>(new QName(W_NS, "tcPr"), TcPr.class, tcPr));
+            return;
+        }
+        out.start("w:tcPr");
+        writeWidth("w:tcW", tcPr.getTcW());
+        if (null != tcPr.getGridSpan()) {
+            out.start("w:gridSpan");
+            attribute("w:val", tcPr.getGridSpan().getVal());
+            out.end("w:gridSpan");
+        }
+        if (null != tcPr.getVMerge()) {
+            out.start("w:vMerge");
+            attribute("w:val", tcPr.getVMerge().getVal());
+            out.end("w:vMerge");
+        }
+        final TcPrInner.TcBorders borders = tcPr.getTcBorders();
+        if (null != borders) {
+            out.start("w:tcBorders");
+            writeBorder("w:top", borders.getTop());
+            writeBorder("w:left", borders.getLeft());
+            writeBorder("w:bottom", borders.getBottom());
+            writeBorder("w:right", borders.getRight());
+            writeBorder("w:insideH", borders.getInsideH());
+            writeBorder("w:insideV", borders.getInsideV());
+            writeBorder("w:tl2br", borders.getTl2Br());
+            writeBorder("w:tr2bl", borders.getTr2Bl());
+            out.end("w:tcBorders");
+        }
+        final CTShd shd = tcPr.getShd();
+        if (null != shd) {
+            out.start("w:shd");
+            attribute("w:val", null == shd.getVal() ? null : shd.getVal().value());
+            attribute("w:color", shd.getColor());
+            attribute("w:themeColor", null == shd.getThemeColor() ? null : shd.getThemeColor().value());
+            attribute("w:themeTint", shd.getThemeTint());
+            attribute("w:themeShade", shd.getThemeShade());
+            attribute("w:fill", shd.getFill());
+            attribute("w:themeFill", null == shd.getThemeFill() ? null : shd.getThemeFill().value());
+            attribute("w:themeFillTint", shd.getThemeFillTint());
+            attribute("w:themeFillShade", shd.getThemeFillShade());
+            out.end("w:shd");
+        }
+        if (null != tcPr.getVAlign()) {
+            out.start("w:vAlign");
+            attribute("w:val", null == tcPr.getVAlign().getVal() ? null : tcPr.getVAlign().getVal().value());
+            out.end("w:vAlign");
+        }
+        out.end("w:tcPr");
+    }
+
+    private void writeBorder(final String qName, final CTBorder border) throws IOException {
+        if (null == border) {
+            return;
+        }
+        out.start(qName);
+        attribute("w:val", null == border.getVal() ? null : border.getVal().value());
+        attribute("w:color", border.getColor());
+        attribute("w:themeColor", null == border.getThemeColor() ? null : border.getThemeColor().value());
+        attribute("w:themeTint", border.getThemeTint());
+        attribute("w:themeShade", border.getThemeShade());
+        attribute("w:sz", border.getSz());
+        attribute("w:space", border.getSpace());
+        // isShadow() and isFrame() are true when the attribute is not set
+        if (!border.isShadow()) {
+            out.attribute("w:shadow", "false");
+        }
+        if (!border.isFrame()) {
+            out.attribute("w:frame", "false");
+        }
+        out.end(qName);
+    }
+
+    private void writeWidth(final String qName, final TblWidth width) throws IOException {
+        if (null == width) {
+            return;
+        }
+        out.start(qName);
+        attribute("w:w", width.getW());
+        attribute("w:type", width.getType());
+        out.end(qName);
+    }
+
+    private void writeJc(final String qName, final Jc jc) throws IOException {
+        if (null == jc) {
+            return;
+        }
+        out.start(qName);
+        attribute("w:val", null == jc.getVal() ? null : jc.getVal().value());
+        out.end(qName);
+    }
+
+    private void writeHps(final String qName, final HpsMeasure hps) throws IOException {
+        if (null == hps) {
+            return;
+        }
+        out.start(qName);
+        attribute("w:val", hps.getVal());
+        out.end(qName);
+    }
+
+    private void writeBoolean(final String qName, final BooleanDefaultTrue value) throws IOException {
+        if (null == value) {
+            return;
+        }
+        out.start(qName);
+        if (!value.isVal()) {
+            out.attribute("w:val", "false");
+        }
+        out.end(qName);
+    }
+
+    private void attribute(final String qName, final String sValue) throws IOException {
+        if (null != sValue) {
+            out.attribute(qName, sValue);
+        }
+    }
+
+    private void attribute(final String qName, final BigInteger value) throws IOException {
+        if (null != value) {
+            out.attribute(qName, value.toString());
+        }
+    }
+
+    /**
+     * Start an element which can be the root of the serialized fragment
+     */
+    private void open(final String qName) throws IOException {
+        out.start(qName);
+        if (null != rootNamespaces && 1 == out.getDepth()) {
+            out.raw(rootNamespaces);
+        }
+    }
+
+    /**
+     * Marshal the object with the JAXB marshaller of the current thread
+     */
+    private void fallback(final Object obj) throws IOException, JAXBException {
+        final Map<String, String> scope;
+        if (0 == out.getDepth() && null != rootNamespaces) {
+            scope = Collections.emptyMap();
+        } else {
+            scope = inScope;
+        }
+        final Marshaller marshaller = GJaxbPool.marshaller();
+        try {
+            marshaller.marshal(obj, new GXmlFragmentHandler(out, scope));
+        } finally {
+            GJaxbPool.release(marshaller);
+        }
+    }
+
+    /**
+     * @return the value of the JAXBElement if it is one of the elements handled by the serializer
+     */
+    private static Object unwrap(final Object obj) {
+        if (obj instanceof JAXBElement) {
+            final JAXBElement<?> element = (JAXBElement<?>) obj;
+            final String name = element.getName().getLocalPart();
+            final Object value = element.getValue();
+            if (W_NS.equals(element.getName().getNamespaceURI())
+                && (value instanceof P && "p".equals(name) || value instanceof Tbl && "tbl".equals(name)
+                || value instanceof Tr && "tr".equals(name) || value instanceof Tc && "tc".equals(name)
+                || value instanceof R && "r".equals(name) || value instanceof Text && "t".equals(name)
+                || value instanceof Br && "br".equals(name))) {
+                return value;
+            }
+        }
+        return obj;
+    }
+
+    /*
+     * The isKnown methods check that an object has only the attributes and properties written by this serializer
+     * (GCopier and GStyleExtractor use them too)
+     */
+
+    static boolean isKnown(final P p) {
+        return null == p.getRsidRPr() && null == p.getRsidR() && null == p.getRsidDel() && null == p.getRsidP()
+            && null == p.getRsidRDefault() && null == p.getParaId() && null == p.getTextId();
+    }
+
+    static boolean isKnown(final R r) {
+        return null == r.getRsidRPr() && null == r.getRsidDel() && null == r.getRsidR();
+    }
+
+    static boolean isKnown(final Tr tr) {
+        return null == tr.getTblPrEx() && null == tr.getRsidRPr() && null == tr.getRsidR() && null == tr.getRsidDel()
+            && null == tr.getRsidTr() && null == tr.getParaId() && null == tr.getTextId();
+    }
+
+    static boolean isKnown(final TrPr trPr) {
+        return null == trPr.getIns() && null == trPr.getDel() && null == trPr.getTrPrChange();
+    }
+
+    static boolean isKnown(final PPr pPr) {
+        return null == pPr.getKeepNext() && null == pPr.getKeepLines()
+            && null == pPr.getPageBreakBefore() && null == pPr.getFramePr() && null == pPr.getWidowControl()
+            && null == pPr.getNumPr() && null == pPr.getSuppressLineNumbers() && null == pPr.getPBdr()
+            && null == pPr.getShd() && null == pPr.getTabs() && null == pPr.getSuppressAutoHyphens()
+            && null == pPr.getKinsoku() && null == pPr.getWordWrap() && null == pPr.getOverflowPunct()
+            && null == pPr.getTopLinePunct() && null == pPr.getAutoSpaceDE() && null == pPr.getAutoSpaceDN()
+            && null == pPr.getBidi() && null == pPr.getAdjustRightInd() && null == pPr.getSnapToGrid()
+            && null == pPr.getSpacing() && null == pPr.getInd() && null == pPr.getContextualSpacing()
+            && null == pPr.getMirrorIndents() && null == pPr.getSuppressOverlap()
+            && null == pPr.getTextDirection() && null == pPr.getTextAlignment()
+            && null == pPr.getTextboxTightWrap() && null == pPr.getOutlineLvl() && null == pPr.getDivId()
+            && null == pPr.getCnfStyle() && null == pPr.getCollapsed() && null == pPr.getSectPr()
+            && null == pPr.getPPrChange();
+    }
+
+    static boolean isKnown(final ParaRPr rPr) {
+        return null == rPr.getIns() && null == rPr.getDel() && null == rPr.getMoveFrom() && null == rPr.getMoveTo()
+            && isKnown((RPrAbstract) rPr);
+    }
+
+    static boolean isKnown(final RPrAbstract rPr) {
+        return null == rPr.getBCs() && null == rPr.getICs() && null == rPr.getCaps()
+            && null == rPr.getSmallCaps() && null == rPr.getStrike() && null == rPr.getDstrike()
+            && null == rPr.getOutline() && null == rPr.getShadow() && null == rPr.getEmboss()
+            && null == rPr.getImprint() && null == rPr.getNoProof() && null == rPr.getSnapToGrid()
+            && null == rPr.getVanish() && null == rPr.getWebHidden() && null == rPr.getSpacing()
+            && null == rPr.getW() && null == rPr.getKern() && null == rPr.getPosition()
+            && null == rPr.getHighlight() && null == rPr.getU() && null == rPr.getEffect()
+            && null == rPr.getBdr() && null == rPr.getShd() && null == rPr.getFitText()
+            && null == rPr.getVertAlign() && null == rPr.getRtl() && null == rPr.getCs() && null == rPr.getEm()
+            && null == rPr.getLang() && null == rPr.getEastAsianLayout() && null == rPr.getSpecVanish()
+            && null == rPr.getOMath() && null == rPr.getGlow() && null == rPr.getShadow14()
+            && null == rPr.getReflection() && null == rPr.getTextOutline() && null == rPr.getTextFill()
+            && null == rPr.getScene3D() && null == rPr.getProps3D() && null == rPr.getLigatures()
+            && null == rPr.getNumForm() && null == rPr.getNumSpacing() && null == rPr.getStylisticSets()
+            && null == rPr.getCntxtAlts() && null == rPr.getRPrChange();
+    }
+
+    static boolean isKnown(final TblPr tblPr) {
+        return null == tblPr.getTblStyle() && null == tblPr.getTblpPr() && null == tblPr.getTblOverlap()
+            && null == tblPr.getBidiVisual() && null == tblPr.getTblStyleRowBandSize()
+            && null == tblPr.getTblStyleColBandSize() && null == tblPr.getTblCellSpacing()
+            && null == tblPr.getTblInd() && null == tblPr.getShd() && null == tblPr.getTblCellMar()
+            && null == tblPr.getTblCaption() && null == tblPr.getTblPrChange();
+    }
+
+    static boolean isKnown(final TcPr tcPr) {
+        return null == tcPr.getCnfStyle() && null == tcPr.getHMerge() && null == tcPr.getNoWrap()
+            && null == tcPr.getTcMar() && null == tcPr.getTextDirection() && null == tcPr.getTcFitText()
+            && null == tcPr.getHideMark() && null == tcPr.getCellIns() && null == tcPr.getCellDel()
+            && null == tcPr.getCellMerge() && null == tcPr.getTcPrChange();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+
+/**
+ * Estimate of the serialized size and of the retained heap of document elements, computed without marshalling.
+ * <p>
+ * The estimate follows the JAXB annotations of the docx4j classes: every element, attribute and text contributes
+ * its tag, name and value lengths (compact UTF-8 XML, "w:" prefixes), every object its shallow size on a 64-bit JVM
+ * with compressed references. Objects reachable more than once (for ex. the column properties shared by the cells of
+ * {@link GTbl#fromRows(GColumn[], Iterable)}) count once for the heap, and the read only GFactory instances do not
+ * count at all. Lists longer than {@link #SAMPLE} objects (rows of large tables, paragraphs of a body) are estimated
+ * from their first objects, so the cost does not grow with the number of rows.
+ * <p>
+ * Spilled rows ({@link GTbl#spill(int)}) count for their exact XML size and no heap; rows of a table built from a
+ * source ({@link GTbl#fromSource(Iterable, GRowMapper)}) are not known before serialization and do not count.
+ * <pre>
+ * GSizeEstimate estimate = GSizeEstimate.of(pkg);
+ * if (estimate.getHeapSize() &gt; budget) { ... stream with GDocxWriter ... }
+ * </pre>
+ *
+ * @author gualtiero
+ */
+public final class GSizeEstimate {
+
+    /**
+     * Number of objects of a list which are estimated one by one
+     */
+    public static final int SAMPLE = 64;
+
+    /**
+     * Zero size estimate
+     */
+    public static final GSizeEstimate EMPTY = new GSizeEstimate(0L, 0L, 0L);
+
+    private final long xmlSize;
+    private final long indentedXmlSize;
+    private final long heapSize;
+
+    /**
+     * Constructor
+     *
+     * @param lXmlSize         serialized size (bytes)
+     * @param lIndentedXmlSize serialized size with indentation (bytes)
+     * @param lHeapSize        retained heap (bytes)
+     */
+    GSizeEstimate(final long lXmlSize, final long lIndentedXmlSize, final long lHeapSize) {
+        xmlSize = lXmlSize;
+        indentedXmlSize = lIndentedXmlSize;
+        heapSize = lHeapSize;
+    }
+
+    /**
+     * Estimate an element (GP, GTbl, GTr, GTc or any docx4j object)
+     *
+     * @param element element to be estimated
+     * @return size estimate of the element and of its content
+     */
+    @Nonnull
+    public static GSizeEstimate of(@Nonnull final Object element) {
+
+        Validate.notNull(element, "Element not valid");
+
+        final GSizeEstimator estimator = new GSizeEstimator();
+        estimator.element(element);
+        return estimator.result();
+    }
+
+    /**
+     * Estimate a list of document elements (for ex. the content written by a {@link GDocxWriter})
+     *
+     * @param content elements to be estimated
+     * @return size estimate of the elements, shared objects counted once
+     */
+    @Nonnull
+    public static GSizeEstimate ofContent(@Nonnull final Iterable<?> content) {
+
+        Validate.notNull(content, "Content not valid");
+
+        final GSizeEstimator estimator = new GSizeEstimator();
+        estimator.content(content);
+        return estimator.result();
+    }
+
+    /**
+     * Estimate a whole package: the XML parts (document, styles, numbering,...) and the loaded binary parts (images)
+     *
+     * @param pkg package to be estimated
+     * @return size estimate of the parts (before zip compression)
+     */
+    @Nonnull
+    public static GSizeEstimate of(@Nonnull final WordprocessingMLPackage pkg) {
+
+        Validate.notNull(pkg, "Package not valid");
+
+        final GSizeEstimator estimator = new GSizeEstimator();
+        for (final Part part : pkg.getParts().getParts().values()) {
+            if (part instanceof JaxbXmlPart) {
+                final Object root = ((JaxbXmlPart<?>) part).getJaxbElement();
+                if (null != root) {
+                    estimator.part(root);
+                }
+            } else if (part instanceof BinaryPart && ((BinaryPart) part).isLoaded()) {
+                estimator.binary(((BinaryPart) part).getBuffer().capacity());
+            }
+        }
+        return estimator.result();
+    }
+
+    /**
+     * @param other another estimate (for ex. of a job already running)
+     * @return new estimate, sum of this and the other one
+     */
+    @Nonnull
+    public GSizeEstimate plus(@Nonnull final GSizeEstimate other) {
+
+        Validate.notNull(other, "Estimate not valid");
+
+        return new GSizeEstimate(xmlSize + other.xmlSize, indentedXmlSize + other.indentedXmlSize,
+            heapSize + other.heapSize);
+    }
+
+    /**
+     * @return estimated size (bytes) of the serialized XML without indentation, as written by {@link GDocxWriter} and
+     * {@link GSerializer#write(Object, java.io.Writer)} (uncompressed)
+     */
+    public long getXmlSize() {
+        return xmlSize;
+    }
+
+    /**
+     * @return estimated size (bytes) of the indented XML, as written by the docx4j save, {@link GDocxSaver} and the
+     * xml() methods (uncompressed)
+     */
+    public long getIndentedXmlSize() {
+        return indentedXmlSize;
+    }
+
+    /**
+     * @return estimated heap (bytes) retained by the elements
+     */
+    public long getHeapSize() {
+        return heapSize;
+    }
+
+    @Override
+    public String toString() {
+        return "GSizeEstimate{xmlSize=" + xmlSize + ", indentedXmlSize=" + indentedXmlSize + ", heapSize=" + heapSize
+            + '}';
+    }
+}
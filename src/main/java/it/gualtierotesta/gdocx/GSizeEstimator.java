@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.XmlValue;
+
+/**
+ * Walker computing a {@link GSizeEstimate}.
+ * <p>
+ * The mapped fields of every class (attributes, child elements, content lists and text value) are found once from
+ * the JAXB annotations and kept in a shared map. One instance estimates one set of elements: it remembers the
+ * objects already counted for the heap, so it is not thread safe.
+ *
+ * @author gualtiero
+ */
+final class GSizeEstimator {
+
+    // XML: "<w:" + ">" and "</w:" + ">" around the name, or "<w:" + "/>" for an empty element
+    private static final int START_TAG = 4;
+    private static final int END_TAG = 5;
+    private static final int EMPTY_TAG = 5;
+    // XML: " w:" + "=\"" + "\"" around name and value
+    private static final int ATTRIBUTE = 6;
+    // XML: spaces per level of the indented output
+    private static final int INDENT = 4;
+    // XML declaration and namespace declarations written by docx4j on the root element of a part
+    private static final int PART_HEADER = 2048;
+    // Heap (64-bit JVM, compressed references)
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+    private static final int LIST_SIZE = 24;
+    private static final int STRING_SIZE = 24;
+    private static final int BIGINTEGER_SIZE = 40;
+
+    private static final ConcurrentMap<Class<?>, Shape> SHAPES = new ConcurrentHashMap<Class<?>, Shape>();
+
+    private final Map<Object, Boolean> counted = new IdentityHashMap<Object, Boolean>();
+    private long xml;
+    private long indent;
+    private long heap;
+    private int depth;
+
+    /**
+     * @return the estimate of the elements walked so far
+     */
+    @Nonnull
+    GSizeEstimate result() {
+        return new GSizeEstimate(xml, xml + indent, heap);
+    }
+
+    /**
+     * Add an element (name from its class or JAXBElement)
+     *
+     * @param element document element
+     */
+    void element(@Nonnull final Object element) {
+        element(element, null);
+    }
+
+    /**
+     * Add a list of elements
+     *
+     * @param content document elements
+     */
+    void content(@Nonnull final Iterable<?> content) {
+        if (content instanceof List) {
+            children((List<?>) content, null, true);
+        } else {
+            for (final Object element : content) {
+                element(element, null);
+            }
+        }
+    }
+
+    /**
+     * Add the root element of a part
+     *
+     * @param root JAXB root element
+     */
+    void part(@Nonnull final Object root) {
+        xml += PART_HEADER;
+        element(root, null);
+    }
+
+    /**
+     * Add a binary part
+     *
+     * @param size part size (bytes)
+     */
+    void binary(final long size) {
+        xml += size;
+        heap += align(ARRAY_HEADER + size);
+    }
+
+    private void element(final Object value, @CheckForNull final String name) {
+        if (value instanceof JAXBElement) {
+            final JAXBElement<?> element = (JAXBElement<?>) value;
+            if (count(element)) {
+                heap += align(HEADER + 4 * REFERENCE + 1);
+            }
+            if (null != element.getValue()) {
+                element(element.getValue(), element.getName().getLocalPart());
+            }
+            return;
+        }
+        final Class<?> type = value.getClass();
+        if (isSimple(type)) {
+            final String tag = null == name ? "value" : name;
+            xml += START_TAG + END_TAG + 2 * tag.length() + simple(value, true);
+            indent += line();
+            return;
+        }
+        final Shape shape = shape(type);
+        final String tag = null != name ? name : shape.name;
+        final boolean first = count(value) && !isShared(type);
+        if (first) {
+            heap += shape.size;
+        }
+
+        for (int i = 0; i < shape.attributes.length; i++) {
+            final Object attribute = get(shape.attributes[i], value);
+            if (null != attribute) {
+                xml += ATTRIBUTE + shape.attributeNames[i].length() + simple(attribute, first);
+            }
+        }
+        final long empty = xml;
+        if (null != shape.value) {
+            final Object text = get(shape.value, value);
+            if (null != text) {
+                xml += simple(text, first);
+            }
+        }
+        final long before = xml;
+        depth++;
+        for (int i = 0; i < shape.elements.length; i++) {
+            final Object child = get(shape.elements[i], value);
+            if (child instanceof List) {
+                children((List<?>) child, shape.elementNames[i], first);
+            } else if (null != child) {
+                element(child, shape.elementNames[i]);
+            }
+        }
+        depth--;
+        // a start and an end tag line around child elements, a single line for an empty or text only element
+        indent += xml == before ? line() : 2 * line();
+        xml += xml == empty ? EMPTY_TAG + tag.length() : START_TAG + END_TAG + 2 * tag.length();
+    }
+
+    private void children(final List<?> list, @CheckForNull final String name, final boolean first) {
+        if (list instanceof GLazyRowList) {
+            return;
+        }
+        final List<?> objects;
+        if (list instanceof GSpillList) {
+            final GSpillList spill = (GSpillList) list;
+            xml += spill.getSpilledLength();
+            objects = spill.inMemory();
+        } else {
+            objects = list;
+        }
+        final int size = objects.size();
+        if (first) {
+            heap += list(size);
+        }
+        final Iterator<?> iterator = objects.iterator();
+        if (size <= GSizeEstimate.SAMPLE) {
+            while (iterator.hasNext()) {
+                element(iterator.next(), name);
+            }
+            return;
+        }
+        // the first object counts the properties shared with the next ones, which are the sample of the others
+        element(iterator.next(), name);
+        final long xmlBefore = xml;
+        final long indentBefore = indent;
+        final long heapBefore = heap;
+        for (int i = 1; i < GSizeEstimate.SAMPLE; i++) {
+            element(iterator.next(), name);
+        }
+        final long others = size - GSizeEstimate.SAMPLE;
+        xml += (xml - xmlBefore) * others / (GSizeEstimate.SAMPLE - 1);
+        indent += (indent - indentBefore) * others / (GSizeEstimate.SAMPLE - 1);
+        heap += (heap - heapBefore) * others / (GSizeEstimate.SAMPLE - 1);
+    }
+
+    /**
+     * @return the XML length of a simple value, adding its heap size if first is true
+     */
+    private long simple(final Object value, final boolean first) {
+        if (value instanceof String) {
+            final String s = (String) value;
+            if (first && count(s)) {
+                heap += STRING_SIZE + align(ARRAY_HEADER + (isLatin1(s) ? s.length() : 2L * s.length()));
+            }
+            return utf8Length(s);
+        }
+        if (value instanceof BigInteger) {
+            final BigInteger n = (BigInteger) value;
+            if (first && count(n)) {
+                heap += BIGINTEGER_SIZE + align(ARRAY_HEADER + 4L * ((n.bitLength() + 31) / 32));
+            }
+            return n.bitLength() < 63 ? digits(n.longValue()) : n.toString().length();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 4 : 5;
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name().length();
+        }
+        if (value instanceof Number && first && count(value)) {
+            heap += align(HEADER + 8);
+        }
+        return String.valueOf(value).length();
+    }
+
+    /**
+     * @return newline and indentation (4 spaces per level) of a line at the current depth
+     */
+    private int line() {
+        return 1 + INDENT * depth;
+    }
+
+    private boolean count(final Object value) {
+        return null == counted.put(value, Boolean.TRUE);
+    }
+
+    private static boolean isSimple(final Class<?> type) {
+        return String.class == type || Boolean.class == type || type.isEnum() || Number.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return true for the read only GFactory instances, retained by the GFactory pool and not by the document
+     */
+    private static boolean isShared(final Class<?> type) {
+        return GFrozen.class == type.getEnclosingClass();
+    }
+
+    private static Object get(final Field field, final Object obj) {
+        try {
+            return field.get(obj);
+        } catch (final IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static long list(final int size) {
+        // an ArrayList allocates 10 slots for the first object
+        return LIST_SIZE + (0 == size ? 0L : align(ARRAY_HEADER + (long) REFERENCE * Math.max(size, 10)));
+    }
+
+    private static long align(final long size) {
+        return (size + 7L) & ~7L;
+    }
+
+    private static int digits(final long value) {
+        int digits = 0 > value ? 2 : 1;
+        for (long v = Math.abs(value); v >= 10L; v /= 10L) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static boolean isLatin1(final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return UTF-8 length of the escaped value
+     */
+    private static long utf8Length(final String s) {
+        long length = 0L;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if ('&' == c || '"' == c) {
+                length += 5;
+            } else if ('<' == c || '>' == c) {
+                length += 4;
+            } else if (c < 0x80) {
+                length++;
+            } else if (c < 0x800 || Character.MIN_SURROGATE <= c && Character.MAX_SURROGATE >= c) {
+                // a surrogate pair is 4 bytes
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static Shape shape(final Class<?> type) {
+        Shape shape = SHAPES.get(type);
+        if (null == shape) {
+            shape = new Shape(type);
+            SHAPES.putIfAbsent(type, shape);
+        }
+        return shape;
+    }
+
+    /**
+     * Mapped fields and shallow size of a class
+     */
+    private static final class Shape {
+
+        private final String name;
+        private final long size;
+        private final Field[] attributes;
+        private final String[] attributeNames;
+        private final Field[] elements;
+        private final String[] elementNames;
+        private final Field value;
+
+        Shape(final Class<?> type) {
+            final List<Field> attributeList = new ArrayList<Field>();
+            final List<String> attributeNameList = new ArrayList<String>();
+            final List<Field> elementList = new ArrayList<Field>();
+            final List<String> elementNameList = new ArrayList<String>();
+            String root = null;
+            Field valueField = null;
+            long shallow = HEADER;
+            for (Class<?> c = type; null != c && Object.class != c; c = c.getSuperclass()) {
+                final XmlRootElement rootElement = c.getAnnotation(XmlRootElement.class);
+                if (null == root && null != rootElement && !"##default".equals(rootElement.name())) {
+                    root = rootElement.name();
+                }
+                // the fields of a transient class (for ex. RPrAbstract) are mapped as fields of its subclasses
+                final boolean mapped = isMapped(c);
+                for (final Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    shallow += fieldSize(field.getType());
+                    if (!mapped || Modifier.isTransient(field.getModifiers())
+                        || field.isAnnotationPresent(XmlTransient.class)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    final XmlAttribute attribute = field.getAnnotation(XmlAttribute.class);
+                    final XmlElement element = field.getAnnotation(XmlElement.class);
+                    if (null != attribute) {
+                        attributeList.add(field);
+                        attributeNameList.add(xmlName(attribute.name(), field));
+                    } else if (field.isAnnotationPresent(XmlValue.class)) {
+                        valueField = field;
+                    } else if (List.class.isAssignableFrom(field.getType()) && null == element) {
+                        // content list (XmlElementRef, XmlAnyElement, XmlMixed): names given by the objects
+                        elementList.add(field);
+                        elementNameList.add(null);
+                    } else {
+                        elementList.add(field);
+                        elementNameList.add(xmlName(null == element ? "##default" : element.name(), field));
+                    }
+                }
+            }
+            name = null == root ? decapitalize(type.getSimpleName()) : root;
+            value = valueField;
+            size = align(shallow);
+            attributes = attributeList.toArray(new Field[attributeList.size()]);
+            attributeNames = attributeNameList.toArray(new String[attributeNameList.size()]);
+            elements = elementList.toArray(new Field[elementList.size()]);
+            elementNames = elementNameList.toArray(new String[elementNameList.size()]);
+        }
+
+        /**
+         * @return true if the class itself (not a superclass, XmlAccessorType is inherited) has a JAXB annotation
+         */
+        private static boolean isMapped(final Class<?> type) {
+            for (final Annotation annotation : type.getDeclaredAnnotations()) {
+                final Class<?> annotationType = annotation.annotationType();
+                if (XmlType.class == annotationType || XmlAccessorType.class == annotationType
+                    || XmlTransient.class == annotationType) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String xmlName(final String annotationName, final Field field) {
+            return "##default".equals(annotationName) ? field.getName() : annotationName;
+        }
+
+        private static String decapitalize(final String s) {
+            return s.isEmpty() ? "element" : Character.toLowerCase(s.charAt(0)) + s.substring(1);
+        }
+
+        private static int fieldSize(final Class<?> type) {
+            if (long.class == type || double.class == type) {
+                return 8;
+            }
+            if (int.class == type || float.class == type) {
+                return 4;
+            }
+            if (short.class == type || char.class == type) {
+                return 2;
+            }
+            if (byte.class == type || boolean.class == type) {
+                return 1;
+            }
+            return REFERENCE;
+        }
+    }
+}
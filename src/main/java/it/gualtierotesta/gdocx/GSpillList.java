@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.docx4j.jaxb.Context;
+import org.docx4j.jaxb.JaxbValidationEventHandler;
+
+/**
+ * Content list of a table keeping only the last rows in memory.
+ * <p>
+ * When more than maxRows objects are in memory, all of them but the last one are serialized (compact XML, UTF-8) at
+ * the end of a temporary file and released. The spilled objects are always the first ones of the list: they cannot
+ * be changed or removed, only read again in sequence by the iterator (which unmarshals one object at a time, so the
+ * JAXB marshalling of the table by docx4j never holds the whole table). {@link GSerializer} does not unmarshal them
+ * but copies the XML of the file ({@link #copySpilled(GXmlOutput)}).
+ * <p>
+ * The file stays open until {@link #close()} (or {@link #clear()}) deletes it.
+ *
+ * @author gualtiero
+ */
+final class GSpillList extends AbstractList<Object> implements Closeable {
+
+    private static final Map<String, String> SPILL_SCOPE = Collections.singletonMap("w", GSerializer.W_NS);
+    private static final String ENCODING = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxRows;
+    private final File directory;
+    private final List<Object> memory;
+    private File file;
+    private Writer writer;
+    private GSerializer serializer;
+    private int spilled;
+
+    /**
+     * Constructor
+     *
+     * @param content    current content (moved in the new list)
+     * @param iMaxRows   maximum number of objects kept in memory
+     * @param pDirectory directory of the temporary file (null for the default temporary directory)
+     */
+    GSpillList(@Nonnull final Collection<Object> content, final int iMaxRows, @CheckForNull final File pDirectory) {
+        maxRows = iMaxRows;
+        directory = pDirectory;
+        memory = new ArrayList<Object>(Math.max(content.size(), Math.min(iMaxRows, BUFFER_SIZE)) + 1);
+        memory.addAll(content);
+        spillIfNeeded();
+    }
+
+    @Override
+    public int size() {
+        return spilled + memory.size();
+    }
+
+    /**
+     * Get an object; spilled objects are read again from the beginning of the file (use the iterator)
+     */
+    @Override
+    public Object get(final int index) {
+        if (index >= spilled) {
+            return memory.get(index - spilled);
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        final Iterator<Object> iterator = iterator();
+        for (int i = 0; i < index; i++) {
+            iterator.next();
+        }
+        final Object obj = iterator.next();
+        ((SpilledIterator) iterator).close();
+        return obj;
+    }
+
+    @Override
+    public void add(final int index, final Object element) {
+        memory.add(spilledIndex(index, true), element);
+        modCount++;
+        spillIfNeeded();
+    }
+
+    @Override
+    public Object set(final int index, final Object element) {
+        return memory.set(spilledIndex(index, false), element);
+    }
+
+    @Override
+    public Object remove(final int index) {
+        modCount++;
+        return memory.remove(spilledIndex(index, false));
+    }
+
+    @Override
+    public void clear() {
+        memory.clear();
+        modCount++;
+        close();
+    }
+
+    /**
+     * Delete the temporary file and release its stream; the spilled objects are discarded, the ones in memory kept
+     */
+    @Override
+    public void close() {
+        if (null != file) {
+            modCount++;
+            closeWriter();
+            if (!file.delete()) {
+                // still open on some platforms (for ex. by an iterator not completed)
+                file.deleteOnExit();
+            }
+            file = null;
+            writer = null;
+            serializer = null;
+        }
+        spilled = 0;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new SpilledIterator();
+    }
+
+    /**
+     * @return number of objects serialized to the temporary file
+     */
+    int getSpilled() {
+        return spilled;
+    }
+
+    /**
+     * @return size (bytes) of the XML of the spilled objects
+     */
+    long getSpilledLength() {
+        if (0 == spilled) {
+            return 0L;
+        }
+        try {
+            writer.flush();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Spill file not writable", e);
+        }
+        return file.length();
+    }
+
+    /**
+     * @return objects still in memory (the last ones of the list)
+     */
+    @Nonnull
+    List<Object> inMemory() {
+        return Collections.unmodifiableList(memory);
+    }
+
+    /**
+     * Copy the XML of the spilled objects as content of the current element of an output
+     *
+     * @param out destination output, with the "w" namespace in scope
+     * @throws IOException if the temporary file cannot be read
+     */
+    void copySpilled(@Nonnull final GXmlOutput out) throws IOException {
+        if (0 == spilled) {
+            return;
+        }
+        writer.flush();
+        final Reader reader = new InputStreamReader(new FileInputStream(file), ENCODING);
+        try {
+            final char[] buffer = new char[BUFFER_SIZE];
+            int read = reader.read(buffer);
+            while (0 <= read) {
+                out.content(buffer, 0, read);
+                read = reader.read(buffer);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int spilledIndex(final int index, final boolean bInsert) {
+        if (index < spilled && index >= 0) {
+            throw new UnsupportedOperationException("Object " + index + " already spilled to disk");
+        }
+        if (index < 0 || index > size() || !bInsert && index == size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return index - spilled;
+    }
+
+    private void spillIfNeeded() {
+        if (memory.size() <= maxRows) {
+            return;
+        }
+        final int count = memory.size() - 1;
+        try {
+            if (null == file) {
+                file = File.createTempFile("gdocx", ".xml", directory);
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING),
+                    BUFFER_SIZE);
+                serializer = new GSerializer(new GXmlOutput(writer, false), SPILL_SCOPE, null);
+            }
+            for (int i = 0; i < count; i++) {
+                serializer.write(memory.get(i));
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Error spilling table rows to " + file, e);
+        } catch (final JAXBException e) {
+            throw new RuntimeException("Error marshalling table rows", e);
+        }
+        memory.subList(0, count).clear();
+        spilled += count;
+    }
+
+    private void closeWriter() {
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            // file deleted anyway
+        }
+    }
+
+    /**
+     * Iterator unmarshalling the spilled objects one at a time, then returning the objects in memory
+     */
+    private final class SpilledIterator implements Iterator<Object> {
+
+        private final int expectedModCount = modCount;
+        private final Iterator<Object> memoryIterator = memory.iterator();
+        private XMLStreamReader reader;
+        private InputStream stream;
+        private Unmarshaller unmarshaller;
+        private int read;
+
+        @Override
+        public boolean hasNext() {
+            return read < spilled || memoryIterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (read >= spilled) {
+                close();
+                return memoryIterator.next();
+            }
+            try {
+                if (null == reader) {
+                    open();
+                }
+                while (!reader.isStartElement()) {
+                    if (reader.isEndElement()) {
+                        throw new NoSuchElementException("Spilled object " + read + " not found");
+                    }
+                    reader.next();
+                }
+                final Object obj = unmarshaller.unmarshal(reader);
+                read++;
+                if (read == spilled) {
+                    close();
+                }
+                return obj;
+            } catch (final IOException e) {
+                close();
+                throw new RuntimeException("Error reading spilled table rows from " + file, e);
+            } catch (final XMLStreamException e) {
+                close();
+                throw new RuntimeException("Error reading spilled table rows from " + file, e);
+            } catch (final JAXBException e) {
+                close();
+                throw new RuntimeException("Error unmarshalling spilled table rows", e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+
+        private void open() throws IOException, XMLStreamException, JAXBException {
+            writer.flush();
+            final String wrapper = "<w:tbl xmlns:w=\"" + GSerializer.W_NS + "\">";
+            stream = new SequenceInputStream(new ByteArrayInputStream(wrapper.getBytes(ENCODING)),
+                new SequenceInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE),
+                    new ByteArrayInputStream("</w:tbl>".getBytes(ENCODING))));
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            reader = factory.createXMLStreamReader(stream, ENCODING);
+            reader.nextTag();
+            reader.next();
+            unmarshaller = Context.jc.createUnmarshaller();
+            unmarshaller.setEventHandler(new JaxbValidationEventHandler());
+        }
+
+        void close() {
+            if (null != stream) {
+                try {
+                    if (null != reader) {
+                        reader.close();
+                    }
+                    stream.close();
+                } catch (final XMLStreamException e) {
+                    // nothing more to read
+                } catch (final IOException e) {
+                    // nothing more to read
+                }
+                stream = null;
+            }
+        }
+    }
+}
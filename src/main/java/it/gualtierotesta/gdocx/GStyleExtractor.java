@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.Validate;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.Br;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.RStyle;
+import org.docx4j.wml.Style;
+import org.docx4j.wml.Styles;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Tr;
+
+/**
+ * Move repeated direct formatting to named styles.
+ * <p>
+ * Paragraphs whose runs have all the same run properties get a paragraph style with the paragraph alignment and
+ * the run properties; the runs of the other paragraphs get a character style with their run properties. A style is
+ * created only for property sets found at least {@link #minOccurrences(long)} times; the inline properties are
+ * replaced by {@code pStyle}/{@code rStyle} references, so the document.xml is smaller.
+ * <p>
+ * Only paragraphs without a style and with the properties set by the G* builders (see {@link GSerializer}) are
+ * changed. The pass must be run when the content is complete, just before the save:
+ * <pre>
+ * GStyleExtractor.create(pkg).extract(pkg.getMainDocumentPart().getContent());
+ * pkg.save(file);
+ * </pre>
+ *
+ * @author gualtiero
+ */
+public final class GStyleExtractor {
+
+    private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private static final String PARAGRAPH_PREFIX = "GPara";
+    private static final String CHARACTER_PREFIX = "GChar";
+
+    private final Styles styles;
+    private final String paragraphBase;
+    private final String characterBase;
+    private final Set<String> styleIds = new HashSet<String>();
+    private final Map<String, PPrBase.PStyle> paragraphStyles = new HashMap<String, PPrBase.PStyle>();
+    private final Map<String, RPr> characterStyles = new HashMap<String, RPr>();
+    private final Map<String, Long> counters = new HashMap<String, Long>();
+    private final Map<RPr, String> keys = new IdentityHashMap<RPr, String>();
+    private long minOccurrences = 2L;
+    private int lastId;
+
+    /**
+     * Constructor
+     */
+    private GStyleExtractor(@Nonnull final StyleDefinitionsPart part) {
+        styles = part.getJaxbElement();
+        for (final Style style : styles.getStyle()) {
+            styleIds.add(style.getStyleId());
+        }
+        final Style paragraphDefault = part.getDefaultParagraphStyle();
+        paragraphBase = null == paragraphDefault ? null : paragraphDefault.getStyleId();
+        final Style characterDefault = part.getDefaultCharacterStyle();
+        characterBase = null == characterDefault ? null : characterDefault.getStyleId();
+    }
+
+    /**
+     * Static factory
+     *
+     * @param part style definitions part where the new styles are added
+     * @return new GStyleExtractor instance
+     */
+    @Nonnull
+    public static GStyleExtractor create(@Nonnull final StyleDefinitionsPart part) {
+
+        Validate.notNull(part, "Style definitions part not valid");
+        Validate.notNull(part.getJaxbElement(), "Style definitions not valid");
+
+        return new GStyleExtractor(part);
+    }
+
+    /**
+     * Static factory
+     *
+     * @param pkg package whose style definitions part receives the new styles
+     * @return new GStyleExtractor instance
+     */
+    @Nonnull
+    public static GStyleExtractor create(@Nonnull final WordprocessingMLPackage pkg) {
+
+        Validate.notNull(pkg, "Package not valid");
+
+        return create(pkg.getMainDocumentPart().getStyleDefinitionsPart());
+    }
+
+    /**
+     * Set the minimum number of occurrences of a property set to create a style (default 2)
+     *
+     * @param lMinOccurrences minimum number of occurrences (at least 1)
+     * @return same GStyleExtractor instance
+     */
+    @Nonnull
+    public GStyleExtractor minOccurrences(final long lMinOccurrences) {
+
+        Validate.isTrue(0L < lMinOccurrences, "Minimum occurrences value not valid");
+
+        minOccurrences = lMinOccurrences;
+        return this;
+    }
+
+    /**
+     * Extract the styles of the given content (for ex. the main document part content or a GTbl)
+     * <p>
+     * Styles already created by this instance are reused.
+     *
+     * @param content list of paragraphs, tables, rows or cells
+     * @return same GStyleExtractor instance
+     */
+    @Nonnull
+    public GStyleExtractor extract(@Nonnull final List<?> content) {
+
+        Validate.notNull(content, "Content not valid");
+
+        counters.clear();
+        walk(content, false);
+        walk(content, true);
+        counters.clear();
+        keys.clear();
+        return this;
+    }
+
+    private void walk(final List<?> content, final boolean bReplace) {
+        for (final Object obj : content) {
+            final Object value = XmlUtils.unwrap(obj);
+            if (value instanceof P) {
+                paragraph((P) value, bReplace);
+            } else if (value instanceof Tbl) {
+                walk(((Tbl) value).getContent(), bReplace);
+            } else if (value instanceof Tr) {
+                walk(((Tr) value).getContent(), bReplace);
+            } else if (value instanceof Tc) {
+                walk(((Tc) value).getContent(), bReplace);
+            }
+        }
+    }
+
+    private void paragraph(final P p, final boolean bReplace) {
+        final PPr pPr = p.getPPr();
+        if (null != pPr && (null != pPr.getPStyle() || !GSerializer.isKnown(pPr))) {
+            return;
+        }
+        final String runKey = uniformRunKey(p);
+        if (null != runKey) {
+            final String key = PARAGRAPH_PREFIX + (null == pPr || null == pPr.getJc() ? "" : pPr.getJc().getVal())
+                + runKey;
+            if (!bReplace) {
+                count(key);
+            } else if (minOccurrences <= counters.get(key).longValue()) {
+                applyParagraphStyle(p, key);
+            }
+        } else {
+            for (final Object obj : p.getContent()) {
+                final Object value = XmlUtils.unwrap(obj);
+                if (value instanceof R && null != ((R) value).getRPr()) {
+                    final R r = (R) value;
+                    final String key = key(r.getRPr());
+                    if (null == key) {
+                        continue;
+                    }
+                    if (!bReplace) {
+                        count(CHARACTER_PREFIX + key);
+                    } else if (minOccurrences <= counters.get(CHARACTER_PREFIX + key).longValue()) {
+                        r.setRPr(characterStyle(key, r.getRPr()));
+                        GXmlCache.invalidate(p);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the key of the run properties if all the text runs have the same properties, null otherwise
+     */
+    @CheckForNull
+    private String uniformRunKey(final P p) {
+        String runKey = null;
+        for (final Object obj : p.getContent()) {
+            final Object value = XmlUtils.unwrap(obj);
+            if (!(value instanceof R)) {
+                return null;
+            }
+            final R r = (R) value;
+            if (null == r.getRPr()) {
+                if (!isBreak(r)) {
+                    return null;
+                }
+            } else {
+                final String key = key(r.getRPr());
+                if (null == key || null != runKey && !runKey.equals(key)) {
+                    return null;
+                }
+                runKey = key;
+            }
+        }
+        return runKey;
+    }
+
+    private void applyParagraphStyle(final P p, final String key) {
+        RPr rPr = null;
+        for (final Object obj : p.getContent()) {
+            final R r = (R) XmlUtils.unwrap(obj);
+            if (null != r.getRPr()) {
+                rPr = r.getRPr();
+                r.setRPr(null);
+            }
+        }
+        // The properties may be shared with other paragraphs (see GColumn): they are replaced, not changed
+        final PPr pPr = p.getPPr();
+        PPrBase.PStyle pStyle = paragraphStyles.get(key);
+        if (null == pStyle) {
+            final Style style = newStyle("paragraph", PARAGRAPH_PREFIX, paragraphBase);
+            if (null != pPr && null != pPr.getJc()) {
+                style.setPPr(FACTORY.createPPr());
+                style.getPPr().setJc(GFactory.sharedJc(pPr.getJc().getVal()));
+            }
+            style.setRPr(GJaxbPool.deepCopy(rPr));
+            pStyle = FACTORY.createPPrBasePStyle();
+            pStyle.setVal(style.getStyleId());
+            paragraphStyles.put(key, pStyle);
+        }
+        final PPr styled = FACTORY.createPPr();
+        styled.setPStyle(pStyle);
+        if (null != pPr) {
+            styled.setRPr(pPr.getRPr());
+        }
+        p.setPPr(styled);
+        GXmlCache.invalidate(p);
+    }
+
+    private RPr characterStyle(final String key, final RPr rPr) {
+        RPr reference = characterStyles.get(key);
+        if (null == reference) {
+            final Style style = newStyle("character", CHARACTER_PREFIX, characterBase);
+            style.setRPr(GJaxbPool.deepCopy(rPr));
+            final RStyle rStyle = FACTORY.createRStyle();
+            rStyle.setVal(style.getStyleId());
+            reference = FACTORY.createRPr();
+            reference.setRStyle(rStyle);
+            characterStyles.put(key, reference);
+        }
+        return reference;
+    }
+
+    private Style newStyle(final String sType, final String sPrefix, final String sBasedOn) {
+        String styleId;
+        do {
+            lastId++;
+            styleId = sPrefix + lastId;
+        } while (styleIds.contains(styleId));
+        styleIds.add(styleId);
+
+        final Style style = FACTORY.createStyle();
+        style.setType(sType);
+        style.setStyleId(styleId);
+        style.setCustomStyle(Boolean.TRUE);
+        final Style.Name name = FACTORY.createStyleName();
+        name.setVal(styleId);
+        style.setName(name);
+        if (null != sBasedOn) {
+            final Style.BasedOn basedOn = FACTORY.createStyleBasedOn();
+            basedOn.setVal(sBasedOn);
+            style.setBasedOn(basedOn);
+        }
+        styles.getStyle().add(style);
+        return style;
+    }
+
+    @CheckForNull
+    private String key(final RPr rPr) {
+        if (null != rPr.getRStyle()) {
+            return null;
+        }
+        String key = keys.get(rPr);
+        if (null == key && !keys.containsKey(rPr)) {
+            key = GSerializer.rPrKey(rPr);
+            keys.put(rPr, key);
+        }
+        return key;
+    }
+
+    private void count(final String key) {
+        final Long counter = counters.get(key);
+        counters.put(key, Long.valueOf(null == counter ? 1L : counter.longValue() + 1L));
+    }
+
+    private static boolean isBreak(final R r) {
+        for (final Object obj : r.getContent()) {
+            if (!(XmlUtils.unwrap(obj) instanceof Br)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
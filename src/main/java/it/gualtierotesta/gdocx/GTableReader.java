@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Nonnull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.lang.Validate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+
+/**
+ * Streaming reader of the table rows of a docx, for documents too large to be loaded.
+ * <p>
+ * The main document is read with StAX and never held in memory: every {@link #next()} reads up to the end of the
+ * next row and fills a single {@link GRowView}, which is reused for all the rows. The memory used does not depend
+ * on the number of rows, only on the size of the largest row.
+ * <p>
+ * The rows of all the tables of the document are read in document order; the rows of tables nested in a cell are
+ * not returned, their text is part of the cell text.
+ * <pre>
+ * GTableReader reader = GTableReader.open(file);
+ * try {
+ *     while (reader.next()) {
+ *         GRowView row = reader.row();
+ *         check(row.getTable(), row.getRow(), row.text(0), row.text(1));
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ *
+ * @author gualtiero
+ */
+public final class GTableReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ZipFile zipFile;
+    private final InputStream stream;
+    private final XMLStreamReader reader;
+    private final GRowView view = new GRowView();
+    private int tableDepth;
+    private boolean inRow;
+    private boolean inTcPr;
+    private boolean inRun;
+
+    /**
+     * Constructor
+     */
+    private GTableReader(final ZipFile pZipFile, final InputStream pStream, final XMLStreamReader pReader) {
+        zipFile = pZipFile;
+        stream = pStream;
+        reader = pReader;
+    }
+
+    /**
+     * Static factory
+     *
+     * @param docx document to be read
+     * @return new GTableReader instance, positioned before the first row
+     * @throws Docx4JException if the file is not a valid docx
+     */
+    @Nonnull
+    public static GTableReader open(@Nonnull final File docx) throws Docx4JException {
+
+        Validate.notNull(docx, "File not valid");
+
+        final ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(docx);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error opening " + docx, e);
+        }
+        InputStream stream = null;
+        try {
+            final String entry = GAppendSource.documentEntry(zipFile);
+            if (null == zipFile.getEntry(entry)) {
+                throw new Docx4JException("Main document part not found in " + docx);
+            }
+            stream = new BufferedInputStream(zipFile.getInputStream(zipFile.getEntry(entry)), BUFFER_SIZE);
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            return new GTableReader(zipFile, stream, factory.createXMLStreamReader(stream));
+        } catch (final IOException e) {
+            ZipFile.closeQuietly(zipFile);
+            throw new Docx4JException("Error reading " + docx, e);
+        } catch (final XMLStreamException e) {
+            ZipFile.closeQuietly(zipFile);
+            throw new Docx4JException("Error reading " + docx, e);
+        } catch (final Docx4JException e) {
+            ZipFile.closeQuietly(zipFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next table row
+     *
+     * @return true if a row was read (available from {@link #row()}), false at the end of the document
+     * @throws Docx4JException if the document is not valid XML
+     */
+    public boolean next() throws Docx4JException {
+        try {
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (XMLStreamConstants.START_ELEMENT == event && GSerializer.W_NS.equals(reader.getNamespaceURI())) {
+                    start(reader.getLocalName());
+                } else if (XMLStreamConstants.END_ELEMENT == event
+                    && GSerializer.W_NS.equals(reader.getNamespaceURI()) && end(reader.getLocalName())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (final XMLStreamException e) {
+            throw new Docx4JException("Error reading the main document", e);
+        }
+    }
+
+    /**
+     * @return the last row read by {@link #next()} (same instance for all the rows)
+     */
+    @Nonnull
+    public GRowView row() {
+
+        Validate.isTrue(0L <= view.getRow(), "No row read");
+
+        return view;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (final XMLStreamException e) {
+            throw new IOException("Error closing the main document: " + e.getMessage());
+        } finally {
+            try {
+                stream.close();
+            } finally {
+                zipFile.close();
+            }
+        }
+    }
+
+    private void start(final String name) throws XMLStreamException {
+        if ("tbl".equals(name)) {
+            if (0 == tableDepth++) {
+                view.startTable();
+            }
+        } else if (1 == tableDepth && "tr".equals(name)) {
+            view.startRow();
+            inRow = true;
+        } else if (!inRow) {
+            return;
+        } else if (1 == tableDepth && "tc".equals(name)) {
+            view.startCell();
+        } else if (!view.inCell()) {
+            return;
+        } else if (1 == tableDepth && "tcPr".equals(name)) {
+            inTcPr = true;
+        } else if (inTcPr) {
+            properties(name);
+        } else if ("p".equals(name)) {
+            view.startParagraph();
+        } else if ("r".equals(name)) {
+            inRun = true;
+        } else if (inRun && "t".equals(name)) {
+            view.append(reader.getElementText());
+        } else if (inRun && "tab".equals(name)) {
+            view.append('\t');
+        } else if (inRun && ("br".equals(name) || "cr".equals(name))) {
+            view.append('\n');
+        }
+    }
+
+    private void properties(final String name) {
+        if ("gridSpan".equals(name)) {
+            final String span = value();
+            try {
+                view.gridSpan(null == span ? 1L : Long.parseLong(span.trim()));
+            } catch (final NumberFormatException e) {
+                // not valid, as not set
+            }
+        } else if ("vMerge".equals(name)) {
+            final String merge = value();
+            view.vMerge(null == merge ? "continue" : merge);
+        } else if ("shd".equals(name)) {
+            view.shading(reader.getAttributeValue(GSerializer.W_NS, "color"),
+                reader.getAttributeValue(GSerializer.W_NS, "fill"));
+        }
+    }
+
+    /**
+     * @return true at the end of a row
+     */
+    private boolean end(final String name) {
+        if ("tbl".equals(name)) {
+            tableDepth--;
+        } else if ("tcPr".equals(name)) {
+            inTcPr = false;
+        } else if ("r".equals(name)) {
+            inRun = false;
+        } else if (1 == tableDepth && inRow && "tr".equals(name)) {
+            inRow = false;
+            return true;
+        }
+        return false;
+    }
+
+    private String value() {
+        return reader.getAttributeValue(GSerializer.W_NS, "val");
+    }
+}
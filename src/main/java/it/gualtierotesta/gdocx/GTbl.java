@@ -17,23 +17,30 @@
  */
 package it.gualtierotesta.gdocx;
 
-import java.math.BigInteger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang.Validate;
-import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
 import org.docx4j.wml.CTBorder;
 import org.docx4j.wml.CTTblLayoutType;
 import org.docx4j.wml.CTTblLook;
-import org.docx4j.wml.Jc;
 import org.docx4j.wml.JcEnumeration;
 import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
 import org.docx4j.wml.STBorder;
 import org.docx4j.wml.STTblLayoutType;
 import org.docx4j.wml.Tbl;
 import org.docx4j.wml.TblBorders;
-import org.docx4j.wml.TblGridCol;
 import org.docx4j.wml.TblWidth;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Text;
+import org.docx4j.wml.Tr;
 
 /**
  * GDocx extension to object Tbl
@@ -44,12 +51,14 @@ import org.docx4j.wml.TblWidth;
 public class GTbl extends Tbl {
 
     private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private GXmlCache xmlCache;
 
     /**
      * Constructor
      */
     private GTbl() {
         tblPr = FACTORY.createTblPr();
+        GMetrics.created(GTbl.class);
     }
 
     /**
@@ -62,6 +71,150 @@ public class GTbl extends Tbl {
         return new GTbl();
     }
 
+    /**
+     * Static factory for a table filled with the given row values.
+     * <p>
+     * Each row is an array with one value per column: a P or Tbl value is added to the cell as is, any other value
+     * is written as text (with String.valueOf) in a paragraph with the column formatting; missing or null values
+     * give an empty paragraph. Cells and paragraphs are plain docx4j objects sharing the properties of the column
+     * templates, so only the contents are allocated for every cell. If all the columns have a "dxa" width, the table
+     * grid is set with these widths.
+     *
+     * @param aColumns column templates
+     * @param rows     row values (at most one value per column)
+     * @return new GTbl instance
+     */
+    @Nonnull
+    public static GTbl fromRows(@Nonnull final GColumn[] aColumns, @Nonnull final Iterable<Object[]> rows) {
+
+        Validate.notEmpty(aColumns, "Columns array not valid");
+        Validate.noNullElements(aColumns, "Columns array not valid");
+        Validate.notNull(rows, "Rows not valid");
+
+        final GTbl tbl = new GTbl();
+        final int columns = aColumns.length;
+        final long[] grid = new long[columns];
+        boolean dxaWidths = true;
+        for (int i = 0; i < columns && dxaWidths; i++) {
+            final TblWidth width = aColumns[i].getTcPr().getTcW();
+            dxaWidths = null != width && "dxa".equals(width.getType()) && null != width.getW();
+            grid[i] = dxaWidths ? width.getW().longValue() : 0L;
+        }
+        if (dxaWidths) {
+            tbl.grid(grid);
+        }
+
+        final List<Object> content = tbl.getContent();
+        if (rows instanceof Collection) {
+            ensureCapacity(content, ((Collection<?>) rows).size());
+        }
+        for (final Object[] values : rows) {
+            Validate.isTrue(null != values && values.length <= columns, "Row values not valid");
+            final Tr tr = FACTORY.createTr();
+            final List<Object> cells = tr.getContent();
+            ensureCapacity(cells, columns);
+            for (int i = 0; i < columns; i++) {
+                final Tc tc = FACTORY.createTc();
+                tc.setTcPr(aColumns[i].getTcPr());
+                tc.getContent().add(cellContent(aColumns[i], i < values.length ? values[i] : null));
+                cells.add(tc);
+            }
+            content.add(tr);
+        }
+        return tbl;
+    }
+
+    /**
+     * Static factory for a table whose rows are built from the source values only when the table is serialized.
+     * <p>
+     * Each serialization (xml(), {@link GDocxWriter}, docx4j save,...) reads the source again and maps every value
+     * to a row, which is written and then discarded: the table never holds its rows, and the source is read while
+     * the XML is written. The content of the table is read only.
+     *
+     * @param source source values (read again for every serialization)
+     * @param mapper value to row (for ex. GTr) conversion
+     * @param <T>    type of the source values
+     * @return new GTbl instance
+     */
+    @Nonnull
+    public static <T> GTbl fromSource(@Nonnull final Iterable<T> source,
+            @Nonnull final GRowMapper<? super T> mapper) {
+
+        Validate.notNull(source, "Source not valid");
+        Validate.notNull(mapper, "Row mapper not valid");
+
+        final GTbl tbl = new GTbl();
+        tbl.content = new GLazyRowList<T>(source, mapper);
+        return tbl;
+    }
+
+    /**
+     * Static factory for a table whose rows are built from the values of an iterator (for ex. a cursor) when the
+     * table is serialized (see {@link #fromSource(Iterable, GRowMapper)}); the table can be serialized only once.
+     *
+     * @param source source values
+     * @param mapper value to row (for ex. GTr) conversion
+     * @param <T>    type of the source values
+     * @return new GTbl instance
+     */
+    @Nonnull
+    public static <T> GTbl fromSource(@Nonnull final Iterator<T> source,
+            @Nonnull final GRowMapper<? super T> mapper) {
+
+        Validate.notNull(source, "Source not valid");
+
+        return fromSource(new GLazyRowList.Once<T>(source), mapper);
+    }
+
+    /**
+     * Keep at most the given number of rows in memory. When more rows are added, the previous ones are serialized
+     * to a temporary file and released, so the heap used by a very large table does not grow with the number of rows.
+     * <p>
+     * The spilled rows are written back when the table is serialized: copied as they are by {@link GDocxWriter} and
+     * {@link GSerializer#write(Object, java.io.Writer)}, unmarshalled one at a time by the docx4j save. They can no
+     * longer be changed: add a row to the table only when it is complete. The temporary file stays open until
+     * {@link #dispose()} (or {@code getContent().clear()}) deletes it: call it when the document is saved.
+     *
+     * @param iMaxRows maximum number of rows kept in memory (at least 1)
+     * @return same GTbl instance
+     */
+    @Nonnull
+    public GTbl spill(final int iMaxRows) {
+        return spill(iMaxRows, null);
+    }
+
+    /**
+     * Keep at most the given number of rows in memory, spilling the previous ones to a temporary file in the given
+     * directory (see {@link #spill(int)})
+     *
+     * @param iMaxRows  maximum number of rows kept in memory (at least 1)
+     * @param directory directory of the temporary file (null for the default temporary directory)
+     * @return same GTbl instance
+     */
+    @Nonnull
+    public GTbl spill(final int iMaxRows, @CheckForNull final File directory) {
+
+        Validate.isTrue(0 < iMaxRows, "Maximum number of rows not valid");
+        Validate.isTrue(null == directory || directory.isDirectory(), "Directory not valid");
+        Validate.isTrue(!(content instanceof GSpillList), "Table already spilling");
+        Validate.isTrue(!(content instanceof GLazyRowList), "Rows of the table built from a source");
+
+        content = new GSpillList(getContent(), iMaxRows, directory);
+        GXmlCache.changed(this);
+        return this;
+    }
+
+    /**
+     * Delete the temporary file of a spilled table (see {@link #spill(int)}) and release its stream. The spilled rows
+     * are discarded, so the table must not be serialized again; nothing is done if the table is not spilling.
+     */
+    public void dispose() {
+        if (content instanceof GSpillList) {
+            ((GSpillList) content).close();
+            GXmlCache.changed(this);
+        }
+    }
+
     /**
      * Add an object to the table
      *
@@ -74,6 +227,7 @@ public class GTbl extends Tbl {
         Validate.notNull(obj, "Object not valid");
 
         getContent().add(obj);
+        GXmlCache.added(obj, this);
         return this;
     }
 
@@ -88,9 +242,8 @@ public class GTbl extends Tbl {
 
         Validate.notNull(eAlign, "Alignment not valid");
 
-        final Jc jc = FACTORY.createJc();
-        jc.setVal(eAlign);
-        tblPr.setJc(jc);
+        tblPr.setJc(GFactory.sharedJc(eAlign));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -109,10 +262,8 @@ public class GTbl extends Tbl {
         Validate.isTrue(0L <= lWidth, "Width value not valid");
         Validate.notEmpty(sType, "Type not valid");
 
-        final TblWidth tblWidth = FACTORY.createTblWidth();
-        tblWidth.setType(sType);
-        tblWidth.setW(BigInteger.valueOf(lWidth));
-        tblPr.setTblW(tblWidth);
+        tblPr.setTblW(GFactory.sharedWidth(lWidth, sType));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -140,6 +291,7 @@ public class GTbl extends Tbl {
         final CTTblLayoutType ctTblLayoutType = FACTORY.createCTTblLayoutType();
         ctTblLayoutType.setType(eType);
         tblPr.setTblLayout(ctTblLayoutType);
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -157,6 +309,7 @@ public class GTbl extends Tbl {
         final CTTblLook ctTblLook = FACTORY.createCTTblLook();
         ctTblLook.setVal(sLookValue);
         tblPr.setTblLook(ctTblLook);
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -174,11 +327,10 @@ public class GTbl extends Tbl {
         if (0 < aValues.length) {
             tblGrid = FACTORY.createTblGrid();
             for (final long value : aValues) {
-                final TblGridCol gridCol = FACTORY.createTblGridCol();
-                gridCol.setW(BigInteger.valueOf(value));
-                tblGrid.getGridCol().add(gridCol);
+                tblGrid.getGridCol().add(GFactory.sharedGridCol(value));
             }
         }
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -193,7 +345,8 @@ public class GTbl extends Tbl {
      */
     public GTbl borderTop(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTblBorders().setTop(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTblBorders().setTop(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -208,7 +361,8 @@ public class GTbl extends Tbl {
      */
     public GTbl borderBottom(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTblBorders().setBottom(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTblBorders().setBottom(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -222,21 +376,83 @@ public class GTbl extends Tbl {
      * @return same GTbl instance
      */
     public GTbl borders(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor, final Long lSpace) {
-        final CTBorder ctBorder = GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace);
+        final CTBorder ctBorder = GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace);
         getTblBorders().setTop(ctBorder);
         getTblBorders().setBottom(ctBorder);
         getTblBorders().setInsideH(ctBorder);
         getTblBorders().setInsideV(ctBorder);
         getTblBorders().setLeft(ctBorder);
         getTblBorders().setRight(ctBorder);
+        GXmlCache.changed(this);
         return this;
     }
 
     /**
-     * @return the XML of the current instance
+     * Copy this table with its rows and cells; the property values (borders, widths,...) are not duplicated but
+     * shared with this instance.
+     *
+     * @return new GTbl instance, equal to this one
+     */
+    @Nonnull
+    public GTbl copy() {
+        return copy(new GCopier());
+    }
+
+    /**
+     * Copy with the given copier (see {@link GCopier})
+     */
+    GTbl copy(@Nonnull final GCopier copier) {
+        return copier.tbl(this, new GTbl());
+    }
+
+    /**
+     * @return the XML of the current instance (cached until a builder method changes this element or one of the
+     * G* elements it contains; changes made with the docx4j methods are not detected)
      */
     public String xml() {
-        return XmlUtils.marshaltoString(this, false, true);
+        if (null == xmlCache) {
+            xmlCache = new GXmlCache();
+        }
+        return xmlCache.xml(this);
+    }
+
+    /**
+     * @return the estimated XML size and retained heap of this table and its content, computed without
+     * serializing it (see {@link GSizeEstimate})
+     */
+    @Nonnull
+    public GSizeEstimate estimate() {
+        return GSizeEstimate.of(this);
+    }
+
+    /**
+     * @return the cache of {@link #xml()} (null if xml() has never been called)
+     */
+    GXmlCache xmlCache() {
+        return xmlCache;
+    }
+
+    private static Object cellContent(final GColumn column, final Object value) {
+        if (value instanceof P || value instanceof Tbl) {
+            return value;
+        }
+        final P p = FACTORY.createP();
+        p.setPPr(column.getPPr());
+        if (null != value) {
+            final Text text = FACTORY.createText();
+            text.setValue(String.valueOf(value));
+            final R run = FACTORY.createR();
+            run.setRPr(column.getRPr());
+            run.getContent().add(text);
+            p.getContent().add(run);
+        }
+        return p;
+    }
+
+    private static void ensureCapacity(final List<Object> list, final int capacity) {
+        if (list instanceof ArrayList) {
+            ((ArrayList<Object>) list).ensureCapacity(capacity);
+        }
     }
 
     private TblBorders getTblBorders() {
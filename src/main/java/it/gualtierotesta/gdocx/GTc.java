@@ -17,19 +17,13 @@
  */
 package it.gualtierotesta.gdocx;
 
-import java.math.BigInteger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang.Validate;
-import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
-import org.docx4j.wml.CTShd;
-import org.docx4j.wml.CTVerticalJc;
 import org.docx4j.wml.ObjectFactory;
 import org.docx4j.wml.STBorder;
-import org.docx4j.wml.STShd;
 import org.docx4j.wml.STVerticalJc;
-import org.docx4j.wml.TblWidth;
 import org.docx4j.wml.Tc;
 import org.docx4j.wml.TcPrInner;
 
@@ -42,12 +36,14 @@ import org.docx4j.wml.TcPrInner;
 public class GTc extends Tc {
 
     private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private GXmlCache xmlCache;
 
     /**
      * Constructor
      */
     private GTc() {
         tcPr = FACTORY.createTcPr();
+        GMetrics.created(GTc.class);
     }
 
     /**
@@ -72,6 +68,7 @@ public class GTc extends Tc {
         Validate.notNull(obj, "Object not valid");
 
         getContent().add(obj);
+        GXmlCache.added(obj, this);
         return this;
     }
 
@@ -86,9 +83,8 @@ public class GTc extends Tc {
 
         Validate.isTrue(0L < lSpan, "Grid span value not valid");
 
-        final TcPrInner.GridSpan gridSpan = FACTORY.createTcPrInnerGridSpan();
-        gridSpan.setVal(BigInteger.valueOf(lSpan));
-        tcPr.setGridSpan(gridSpan);
+        tcPr.setGridSpan(GFactory.sharedGridSpan(lSpan));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -105,11 +101,8 @@ public class GTc extends Tc {
         Validate.notEmpty(sColor, "String color not valid");
         Validate.notEmpty(sFill, "String fill not valid");
 
-        final CTShd cTShd = FACTORY.createCTShd();
-        cTShd.setVal(STShd.CLEAR);
-        cTShd.setColor(sColor);
-        cTShd.setFill(sFill);
-        tcPr.setShd(cTShd);
+        tcPr.setShd(GFactory.sharedShd(sColor, sFill));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -125,9 +118,8 @@ public class GTc extends Tc {
 
         Validate.notNull(eVertAlign, "Vertical alignment not valid");
 
-        final CTVerticalJc ctvj = FACTORY.createCTVerticalJc();
-        ctvj.setVal(eVertAlign);
-        tcPr.setVAlign(ctvj);
+        tcPr.setVAlign(GFactory.sharedVAlign(eVertAlign));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -144,10 +136,8 @@ public class GTc extends Tc {
         Validate.isTrue(0L < lWidth, "Width value not valid");
         Validate.notEmpty(sType, "Type not valid");
 
-        final TblWidth cellWidth = FACTORY.createTblWidth();
-        cellWidth.setType(sType);
-        cellWidth.setW(BigInteger.valueOf(lWidth));
-        tcPr.setTcW(cellWidth);
+        tcPr.setTcW(GFactory.sharedWidth(lWidth, sType));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -162,7 +152,8 @@ public class GTc extends Tc {
      */
     public GTc borderTop(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTcBorders().setTop(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTcBorders().setTop(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -177,7 +168,8 @@ public class GTc extends Tc {
      */
     public GTc borderBottom(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTcBorders().setBottom(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTcBorders().setBottom(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -192,7 +184,8 @@ public class GTc extends Tc {
      */
     public GTc borderLeft(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTcBorders().setLeft(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTcBorders().setLeft(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -207,7 +200,8 @@ public class GTc extends Tc {
      */
     public GTc borderRight(final long lSize, @Nonnull final STBorder eBorderLine, final String sColor,
             final Long lSpace) {
-        getTcBorders().setRight(GFactory.buildBorder(lSize, eBorderLine, sColor, lSpace));
+        getTcBorders().setRight(GFactory.sharedBorder(lSize, eBorderLine, sColor, lSpace));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -218,19 +212,53 @@ public class GTc extends Tc {
      * @return same GTc instance
      */
     public GTc vmerge(@CheckForNull final String sMergeVal) {
-        final TcPrInner.VMerge vmerge = FACTORY.createTcPrInnerVMerge();
-        if (null != sMergeVal) {
-            vmerge.setVal(sMergeVal);
-        }
-        tcPr.setVMerge(vmerge);
+        tcPr.setVMerge(GFactory.sharedVMerge(sMergeVal));
+        GXmlCache.changed(this);
         return this;
     }
 
     /**
-     * @return the XML of the current instance
+     * Copy this table cell with its content. As for {@link GP#copy()}, only the property values are shared.
+     *
+     * @return new GTc instance, equal to this one
+     */
+    @Nonnull
+    public GTc copy() {
+        return copy(new GCopier());
+    }
+
+    /**
+     * Copy with the given copier (see {@link GCopier})
+     */
+    GTc copy(@Nonnull final GCopier copier) {
+        return copier.tc(this, new GTc());
+    }
+
+    /**
+     * @return the XML of the current instance (cached until a builder method changes this element or one of the
+     * G* elements it contains; changes made with the docx4j methods are not detected)
      */
     public String xml() {
-        return XmlUtils.marshaltoString(this, false, true);
+        if (null == xmlCache) {
+            xmlCache = new GXmlCache();
+        }
+        return xmlCache.xml(this);
+    }
+
+    /**
+     * @return the estimated XML size and retained heap of this cell and its content, computed without
+     * serializing it (see {@link GSizeEstimate})
+     */
+    @Nonnull
+    public GSizeEstimate estimate() {
+        return GSizeEstimate.of(this);
+    }
+
+    /**
+     * @return the cache of {@link #xml()} (null if xml() has never been called)
+     */
+    GXmlCache xmlCache() {
+        return xmlCache;
     }
 
     /**
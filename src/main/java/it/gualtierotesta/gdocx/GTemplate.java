@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.Validate;
+import org.docx4j.TraversalUtil;
+import org.docx4j.XmlUtils;
+import org.docx4j.finders.ClassFinder;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Tbl;
+import org.docx4j.wml.Text;
+
+/**
+ * Compiled docx template for high volume mail merge.
+ * <p>
+ * The template is a docx whose main document contains {@code ${name}} placeholders, also split across runs with
+ * different formatting (the text takes the formatting of the run where the placeholder starts). The compilation
+ * marshals the document once and splits it into static byte segments and slots; the other parts are compressed
+ * once. A merge only writes the segments, the escaped values and the precompressed parts, without any JAXB tree:
+ * <pre>
+ * GTemplate template = GTemplate.compile(new File("letter.docx"));
+ * for (final Customer customer : customers) {
+ *     Map&lt;String, Object&gt; values = new HashMap&lt;String, Object&gt;();
+ *     values.put("name", customer.getName());
+ *     values.put("orders", ordersTable(customer));
+ *     template.merge(values, outputFor(customer));
+ * }
+ * </pre>
+ * A placeholder alone in its paragraph is a block slot: its value can also be a paragraph or table (for ex. GP or
+ * GTbl) or a list of them, which replaces the whole paragraph. Other values are written as text ({@code null} as
+ * empty text). Headers and footers are copied without changes.
+ * <p>
+ * A compiled template is immutable and thread safe: the same instance can merge documents concurrently.
+ *
+ * @author gualtiero
+ */
+public final class GTemplate {
+
+    private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^{}$]+)\\}");
+    // Private use characters, never found in a template
+    private static final char INLINE_START = '\uE000';
+    private static final char INLINE_END = '\uE001';
+    private static final char BLOCK_START = '\uE002';
+    private static final char BLOCK_END = '\uE003';
+    private static final Pattern SLOT = Pattern.compile(INLINE_START + "(\\d+)" + INLINE_END
+        + "|<w:p>\\s*<w:r>\\s*<w:t>" + BLOCK_START + "(\\d+)" + BLOCK_END + "</w:t>\\s*</w:r>\\s*</w:p>");
+    private static final String BODY_START = "<w:body>";
+
+    private final List<StaticPart> parts;
+    private final int documentIndex;
+    private final String documentEntry;
+    private final byte[][] segments;
+    private final Slot[] slots;
+    private final Map<String, String> inScope;
+    private final Set<String> placeholders;
+    private final int staticLength;
+
+    /**
+     * Constructor
+     */
+    private GTemplate(final List<StaticPart> pParts, final int iDocumentIndex, final String sDocumentEntry,
+        final byte[][] aSegments, final Slot[] aSlots, final Map<String, String> pInScope) {
+        parts = pParts;
+        documentIndex = iDocumentIndex;
+        documentEntry = sDocumentEntry;
+        segments = aSegments;
+        slots = aSlots;
+        inScope = pInScope;
+        final Set<String> names = new LinkedHashSet<String>();
+        int length = 0;
+        for (final byte[] segment : segments) {
+            length += segment.length;
+        }
+        for (final Slot slot : slots) {
+            names.add(slot.name);
+        }
+        placeholders = Collections.unmodifiableSet(names);
+        staticLength = length;
+    }
+
+    /**
+     * Compile a template package. The package is not changed.
+     *
+     * @param template template package
+     * @return new GTemplate instance
+     * @throws Docx4JException if the template cannot be saved or is not valid
+     */
+    @Nonnull
+    public static GTemplate compile(@Nonnull final WordprocessingMLPackage template) throws Docx4JException {
+
+        Validate.notNull(template, "Template package not valid");
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        template.save(baos);
+        return compile(baos.toByteArray());
+    }
+
+    /**
+     * Compile a template file
+     *
+     * @param file template docx file
+     * @return new GTemplate instance
+     * @throws Docx4JException if the template cannot be read or is not valid
+     */
+    @Nonnull
+    public static GTemplate compile(@Nonnull final File file) throws Docx4JException {
+
+        Validate.notNull(file, "File not valid");
+
+        return compile(WordprocessingMLPackage.load(file));
+    }
+
+    /**
+     * @return the names of the placeholders found in the template, in document order
+     */
+    @Nonnull
+    public Set<String> placeholders() {
+        return placeholders;
+    }
+
+    /**
+     * Merge the values into a new document
+     *
+     * @param values value of every placeholder (text, paragraph, table or list of paragraphs and tables)
+     * @param os     destination stream (not closed)
+     * @throws Docx4JException if the document cannot be written
+     */
+    public void merge(@Nonnull final Map<String, ?> values, @Nonnull final OutputStream os) throws Docx4JException {
+
+        Validate.notNull(values, "Values not valid");
+        Validate.notNull(os, "Output stream not valid");
+
+        final boolean measure = GMetrics.isEnabled();
+        final long start = measure ? System.nanoTime() : 0L;
+        try {
+            final byte[] document = document(values);
+            final long marshalEnd = measure ? System.nanoTime() : 0L;
+            final CRC32 crc = new CRC32();
+            crc.update(document);
+            final byte[] compressed = GZipPartStore.deflate(document, 0, document.length,
+                Deflater.DEFAULT_COMPRESSION);
+            final long compressEnd = measure ? System.nanoTime() : 0L;
+
+            final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(os);
+            for (int i = 0; i < parts.size(); i++) {
+                if (i == documentIndex) {
+                    write(zos, new StaticPart(documentEntry, ZipEntry.DEFLATED, crc.getValue(), document.length,
+                        compressed));
+                }
+                write(zos, parts.get(i));
+            }
+            if (documentIndex == parts.size()) {
+                write(zos, new StaticPart(documentEntry, ZipEntry.DEFLATED, crc.getValue(), document.length,
+                    compressed));
+            }
+            zos.finish();
+            zos.flush();
+            if (measure) {
+                final long end = System.nanoTime();
+                long bytes = compressed.length;
+                for (final StaticPart part : parts) {
+                    bytes += part.data.length;
+                }
+                GMetrics.saved(marshalEnd - start, compressEnd - marshalEnd, end - compressEnd, end - start,
+                    bytes);
+            }
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing the merged document", e);
+        } catch (final JAXBException e) {
+            throw new Docx4JException("Error marshalling a placeholder value", e);
+        }
+    }
+
+    /**
+     * Merge the values into a new document
+     *
+     * @param values value of every placeholder (text, paragraph, table or list of paragraphs and tables)
+     * @return the docx file content
+     * @throws Docx4JException if the document cannot be written
+     */
+    @Nonnull
+    public byte[] merge(@Nonnull final Map<String, ?> values) throws Docx4JException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(staticLength);
+        merge(values, baos);
+        return baos.toByteArray();
+    }
+
+    private byte[] document(final Map<String, ?> values) throws IOException, JAXBException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(staticLength + 64 * slots.length);
+        final Writer writer = new OutputStreamWriter(baos, UTF8);
+        final GXmlOutput out = new GXmlOutput(writer, false);
+        GSerializer serializer = null;
+        for (int i = 0; i < slots.length; i++) {
+            baos.write(segments[i]);
+            final Slot slot = slots[i];
+            Validate.isTrue(values.containsKey(slot.name), "Value of placeholder " + slot.name + " not found");
+            final Object value = values.get(slot.name);
+            if (isElement(value)) {
+                Validate.isTrue(slot.block, "Placeholder " + slot.name + " is not alone in its paragraph");
+                if (null == serializer) {
+                    serializer = new GSerializer(out, inScope, null);
+                }
+                if (value instanceof Iterable) {
+                    for (final Object obj : (Iterable<?>) value) {
+                        Validate.isTrue(isElement(obj) && !(obj instanceof Iterable),
+                            "Value of placeholder " + slot.name + " not valid");
+                        serializer.write(obj);
+                    }
+                } else {
+                    serializer.write(value);
+                }
+                out.flush();
+            } else {
+                if (slot.block) {
+                    baos.write(slot.prefix);
+                }
+                if (null != value) {
+                    out.text(value.toString());
+                    out.flush();
+                }
+                if (slot.block) {
+                    baos.write(slot.suffix);
+                }
+            }
+        }
+        baos.write(segments[slots.length]);
+        return baos.toByteArray();
+    }
+
+    private static boolean isElement(@CheckForNull final Object value) {
+        final Object unwrapped = value instanceof JAXBElement ? ((JAXBElement<?>) value).getValue() : value;
+        return unwrapped instanceof P || unwrapped instanceof Tbl || value instanceof Iterable;
+    }
+
+    private static void write(final ZipArchiveOutputStream zos, final StaticPart part) throws IOException {
+        final ZipArchiveEntry entry = new ZipArchiveEntry(part.name);
+        entry.setMethod(part.method);
+        entry.setCrc(part.crc);
+        entry.setSize(part.size);
+        entry.setCompressedSize(part.data.length);
+        zos.addRawArchiveEntry(entry, new ByteArrayInputStream(part.data));
+    }
+
+    private static GTemplate compile(final byte[] docx) throws Docx4JException {
+
+        // Private copy of the template, changed by the compilation
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+        final MainDocumentPart mdp = pkg.getMainDocumentPart();
+        final String sDocumentEntry = mdp.getPartName().getName().substring(1);
+        final String original = xml(mdp);
+        if (0 <= original.indexOf(INLINE_START) || 0 <= original.indexOf(BLOCK_START)) {
+            throw new Docx4JException("Template contains reserved characters");
+        }
+        final Map<String, String> namespaces = GSerializer.namespaces(
+            original.substring(0, Math.max(0, original.indexOf(BODY_START))));
+
+        final ClassFinder finder = new ClassFinder(P.class);
+        new TraversalUtil(mdp.getContent(), finder);
+        final List<Slot> slotList = new ArrayList<Slot>();
+        try {
+            for (final Object obj : finder.results) {
+                paragraph((P) obj, slotList, namespaces);
+            }
+        } catch (final IOException e) {
+            throw new Docx4JException("Error compiling the template", e);
+        } catch (final JAXBException e) {
+            throw new Docx4JException("Error compiling the template", e);
+        }
+
+        final String xml = xml(mdp);
+        final List<byte[]> segmentList = new ArrayList<byte[]>(slotList.size() + 1);
+        final Slot[] aSlots = new Slot[slotList.size()];
+        final boolean[] found = new boolean[aSlots.length];
+        final Matcher matcher = SLOT.matcher(xml);
+        int last = 0;
+        int count = 0;
+        while (matcher.find()) {
+            final boolean block = null != matcher.group(2);
+            final int index = Integer.parseInt(block ? matcher.group(2) : matcher.group(1));
+            if (found[index] || block != slotList.get(index).block) {
+                throw new Docx4JException("Placeholder " + slotList.get(index).name + " not valid");
+            }
+            found[index] = true;
+            segmentList.add(xml.substring(last, matcher.start()).getBytes(UTF8));
+            aSlots[count] = slotList.get(index);
+            last = matcher.end();
+            count++;
+        }
+        for (int i = 0; i < found.length; i++) {
+            if (!found[i]) {
+                throw new Docx4JException("Placeholder " + slotList.get(i).name + " not found");
+            }
+        }
+        segmentList.add(xml.substring(last).getBytes(UTF8));
+
+        return new GTemplate(staticParts(docx, sDocumentEntry), documentIndex(docx, sDocumentEntry),
+            sDocumentEntry, segmentList.toArray(new byte[segmentList.size()][]), aSlots,
+            Collections.unmodifiableMap(namespaces));
+    }
+
+    /**
+     * Replace the placeholders of a paragraph with slot markers
+     */
+    private static void paragraph(final P p, final List<Slot> slotList, final Map<String, String> namespaces)
+        throws IOException, JAXBException {
+
+        final List<Text> texts = new ArrayList<Text>();
+        texts(p.getContent(), texts);
+        final StringBuilder sb = new StringBuilder();
+        for (final Text text : texts) {
+            sb.append(null == text.getValue() ? "" : text.getValue());
+        }
+        final String paragraphText = sb.toString();
+        final Matcher matcher = PLACEHOLDER.matcher(paragraphText);
+        final List<int[]> found = new ArrayList<int[]>();
+        final List<String> names = new ArrayList<String>();
+        while (matcher.find()) {
+            found.add(new int[]{matcher.start(), matcher.end()});
+            names.add(matcher.group(1).trim());
+        }
+        if (found.isEmpty()) {
+            return;
+        }
+
+        final boolean block = 1 == found.size() && 0 == found.get(0)[0] && paragraphText.length() == found.get(0)[1]
+            && p.getParent() instanceof ContentAccessor;
+        final int first = slotList.size();
+        // From the last to the first placeholder, so the offsets of the previous ones stay valid
+        for (int i = found.size() - 1; 0 <= i; i--) {
+            final int index = first + i;
+            replace(texts, found.get(i)[0], found.get(i)[1], block
+                ? String.valueOf(INLINE_START) + 0 + INLINE_END
+                : String.valueOf(INLINE_START) + index + INLINE_END);
+        }
+        if (block) {
+            final StringWriter sw = new StringWriter();
+            final GXmlOutput out = new GXmlOutput(sw, false);
+            new GSerializer(out, namespaces, null).write(p);
+            out.flush();
+            final String paragraphXml = sw.toString();
+            final String marker = String.valueOf(INLINE_START) + 0 + INLINE_END;
+            final int split = paragraphXml.indexOf(marker);
+            slotList.add(new Slot(names.get(0), true, paragraphXml.substring(0, split).getBytes(UTF8),
+                paragraphXml.substring(split + marker.length()).getBytes(UTF8)));
+            // The paragraph is replaced by a marker paragraph, found in the document XML by the SLOT pattern
+            final Text text = FACTORY.createText();
+            text.setValue(String.valueOf(BLOCK_START) + first + BLOCK_END);
+            final R r = FACTORY.createR();
+            r.getContent().add(text);
+            final P markerP = FACTORY.createP();
+            markerP.getContent().add(r);
+            final List<Object> content = ((ContentAccessor) p.getParent()).getContent();
+            for (int i = 0; i < content.size(); i++) {
+                if (XmlUtils.unwrap(content.get(i)) == p) {
+                    content.set(i, markerP);
+                    return;
+                }
+            }
+            throw new IOException("Paragraph of placeholder " + names.get(0) + " not found");
+        }
+        for (final String name : names) {
+            slotList.add(new Slot(name, false, null, null));
+        }
+    }
+
+    /**
+     * @return the main document XML, not indented (marshalled to a String, so it does not depend on the default
+     * charset of the JVM)
+     */
+    private static String xml(final MainDocumentPart mdp) {
+        return XmlUtils.marshaltoString(mdp.getJaxbElement(), true, false, mdp.getJAXBContext());
+    }
+
+    /**
+     * Replace the characters from start to end of the texts of a paragraph: the replacement goes in the first text,
+     * the other texts lose the replaced characters
+     */
+    private static void replace(final List<Text> texts, final int start, final int end, final String replacement) {
+        int offset = 0;
+        boolean replaced = false;
+        for (final Text text : texts) {
+            final String value = null == text.getValue() ? "" : text.getValue();
+            final int textStart = offset;
+            final int textEnd = offset + value.length();
+            offset = textEnd;
+            if (textEnd <= start || textStart >= end) {
+                continue;
+            }
+            final int from = Math.max(start, textStart) - textStart;
+            final int to = Math.min(end, textEnd) - textStart;
+            final StringBuilder sb = new StringBuilder(value.length());
+            sb.append(value, 0, from);
+            if (!replaced) {
+                sb.append(replacement);
+                replaced = true;
+            }
+            sb.append(value, to, value.length());
+            text.setValue(sb.toString());
+            text.setSpace("preserve");
+        }
+    }
+
+    /**
+     * Collect the texts of a paragraph, without the ones of nested paragraphs (for ex. in text boxes)
+     */
+    private static void texts(final List<Object> content, final List<Text> texts) {
+        for (final Object obj : content) {
+            final Object value = XmlUtils.unwrap(obj);
+            if (value instanceof Text) {
+                texts.add((Text) value);
+            } else if (value instanceof ContentAccessor && !(value instanceof P) && !(value instanceof Tbl)) {
+                texts(((ContentAccessor) value).getContent(), texts);
+            }
+        }
+    }
+
+    /**
+     * Parts of the template, without the main document, compressed once
+     */
+    private static List<StaticPart> staticParts(final byte[] docx, final String sDocumentEntry)
+        throws Docx4JException {
+
+        final List<StaticPart> result = new ArrayList<StaticPart>();
+        final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx));
+        try {
+            ZipEntry entry = zis.getNextEntry();
+            while (null != entry) {
+                if (!sDocumentEntry.equals(entry.getName())) {
+                    final byte[] data = IOUtils.toByteArray(zis);
+                    final CRC32 crc = new CRC32();
+                    crc.update(data);
+                    if (ZipEntry.STORED == entry.getMethod()) {
+                        result.add(new StaticPart(entry.getName(), ZipEntry.STORED, crc.getValue(), data.length,
+                            data));
+                    } else {
+                        result.add(new StaticPart(entry.getName(), ZipEntry.DEFLATED, crc.getValue(), data.length,
+                            GZipPartStore.deflate(data, 0, data.length, Deflater.BEST_COMPRESSION)));
+                    }
+                }
+                entry = zis.getNextEntry();
+            }
+        } catch (final IOException e) {
+            throw new Docx4JException("Error reading the template", e);
+        } finally {
+            IOUtils.closeQuietly(zis);
+        }
+        return result;
+    }
+
+    /**
+     * @return the position of the main document between the static parts
+     */
+    private static int documentIndex(final byte[] docx, final String sDocumentEntry) throws Docx4JException {
+        final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx));
+        try {
+            int index = 0;
+            ZipEntry entry = zis.getNextEntry();
+            while (null != entry && !sDocumentEntry.equals(entry.getName())) {
+                index++;
+                entry = zis.getNextEntry();
+            }
+            return index;
+        } catch (final IOException e) {
+            throw new Docx4JException("Error reading the template", e);
+        } finally {
+            IOUtils.closeQuietly(zis);
+        }
+    }
+
+    /**
+     * Template slot
+     */
+    private static final class Slot {
+
+        private final String name;
+        private final boolean block;
+        private final byte[] prefix;
+        private final byte[] suffix;
+
+        Slot(final String sName, final boolean bBlock, final byte[] aPrefix, final byte[] aSuffix) {
+            name = sName;
+            block = bBlock;
+            prefix = aPrefix;
+            suffix = aSuffix;
+        }
+    }
+
+    /**
+     * Zip entry copied without changes, already compressed
+     */
+    private static final class StaticPart {
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+
+        StaticPart(final String sName, final int iMethod, final long lCrc, final long lSize, final byte[] aData) {
+            name = sName;
+            method = iMethod;
+            crc = lCrc;
+            size = lSize;
+            data = aData;
+        }
+    }
+}
@@ -19,12 +19,10 @@
 package it.gualtierotesta.gdocx;
 
 import org.apache.commons.lang.Validate;
-import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
 import org.docx4j.wml.*;
 
 import javax.annotation.Nonnull;
-import java.math.BigInteger;
 
 /**
  * Extension to object Tr
@@ -35,12 +33,14 @@ import java.math.BigInteger;
 public class GTr extends Tr {
 
     private static final ObjectFactory FACTORY = Context.getWmlObjectFactory();
+    private GXmlCache xmlCache;
 
     /**
      * Constructor
      */
     private GTr() {
         trPr = FACTORY.createTrPr();
+        GMetrics.created(GTr.class);
     }
 
     /**
@@ -66,6 +66,7 @@ public class GTr extends Tr {
         Validate.notNull(obj, "Object not valid");
 
         getContent().add(obj);
+        GXmlCache.added(obj, this);
         return this;
     }
 
@@ -80,10 +81,9 @@ public class GTr extends Tr {
 
         Validate.isTrue(0L < lHeight, "Height value not valid");
 
-        final CTHeight cth = FACTORY.createCTHeight();
-        cth.setVal(BigInteger.valueOf(lHeight));
-        cth.setHRule(STHeightRule.EXACT);
-        trPr.getCnfStyleOrDivIdOrGridBefore().add(FACTORY.createCTTrPrBaseTrHeight(cth));
+        trPr.getCnfStyleOrDivIdOrGridBefore().add(
+            FACTORY.createCTTrPrBaseTrHeight(GFactory.sharedHeight(lHeight, STHeightRule.EXACT)));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -100,10 +100,9 @@ public class GTr extends Tr {
         Validate.isTrue(0L < lHeight, "Height value not valid");
         Validate.notNull(eRule, "Rule not valid");
 
-        final CTHeight cth = FACTORY.createCTHeight();
-        cth.setVal(BigInteger.valueOf(lHeight));
-        cth.setHRule(eRule);
-        trPr.getCnfStyleOrDivIdOrGridBefore().add(FACTORY.createCTTrPrBaseTrHeight(cth));
+        trPr.getCnfStyleOrDivIdOrGridBefore().add(
+            FACTORY.createCTTrPrBaseTrHeight(GFactory.sharedHeight(lHeight, eRule)));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -118,9 +117,8 @@ public class GTr extends Tr {
 
         Validate.notNull(eAlign, "Alignment not valid");
 
-        final Jc jc = FACTORY.createJc();
-        jc.setVal(eAlign);
-        trPr.getCnfStyleOrDivIdOrGridBefore().add(FACTORY.createCTTrPrBaseJc(jc));
+        trPr.getCnfStyleOrDivIdOrGridBefore().add(FACTORY.createCTTrPrBaseJc(GFactory.sharedJc(eAlign)));
+        GXmlCache.changed(this);
         return this;
     }
 
@@ -132,13 +130,51 @@ public class GTr extends Tr {
     @Nonnull
     public GTr cansplit() {
         trPr.getCnfStyleOrDivIdOrGridBefore().add(FACTORY.createCTTrPrBaseCantSplit(GFactory.BOOLEAN_TRUE));
+        GXmlCache.changed(this);
         return this;
     }
 
     /**
-     * @return the XML of the current instance
+     * Copy this table row with its cells. As for {@link GP#copy()}, only the property values are shared.
+     *
+     * @return new GTr instance, equal to this one
+     */
+    @Nonnull
+    public GTr copy() {
+        return copy(new GCopier());
+    }
+
+    /**
+     * Copy with the given copier (see {@link GCopier})
+     */
+    GTr copy(@Nonnull final GCopier copier) {
+        return copier.tr(this, new GTr());
+    }
+
+    /**
+     * @return the XML of the current instance (cached until a builder method changes this element or one of the
+     * G* elements it contains; changes made with the docx4j methods are not detected)
      */
     public String xml() {
-        return XmlUtils.marshaltoString(this, false, true);
+        if (null == xmlCache) {
+            xmlCache = new GXmlCache();
+        }
+        return xmlCache.xml(this);
+    }
+
+    /**
+     * @return the estimated XML size and retained heap of this row and its content, computed without
+     * serializing it (see {@link GSizeEstimate})
+     */
+    @Nonnull
+    public GSizeEstimate estimate() {
+        return GSizeEstimate.of(this);
+    }
+
+    /**
+     * @return the cache of {@link #xml()} (null if xml() has never been called)
+     */
+    GXmlCache xmlCache() {
+        return xmlCache;
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.JcEnumeration;
+import org.docx4j.wml.STBorder;
+import org.docx4j.wml.STHeightRule;
+import org.docx4j.wml.STVerticalJc;
+
+/**
+ * Warm-up of the JAXB context and of the classes used by the builders and by the save.
+ * <p>
+ * The first document of a JVM pays for the creation of the docx4j JAXB context and the loading of some thousands of
+ * classes, which takes seconds. {@link #warmup()} moves that cost to the application startup (for ex. before a
+ * worker accepts requests), building, serializing, saving and loading a small document with all the G* builders,
+ * {@link GDocxSaver} and {@link GDocxWriter}.
+ * <p>
+ * The class loading itself can be cut with a class data sharing archive: the {@code appcds} profile of the build
+ * runs {@link #main(String[])} as training run and dumps the loaded classes in {@code target/gdocx.jsa} (Java 13+).
+ *
+ * @author gualtiero
+ */
+public final class GWarmup {
+
+    private static final Object LOCK = new Object();
+    private static volatile boolean done;
+
+    /**
+     * Constructor
+     */
+    private GWarmup() {
+        // Static class
+    }
+
+    /**
+     * Load and initialize everything used to build and save a document. Only the first call does the work, the
+     * others (also concurrent ones) wait for it and return.
+     *
+     * @throws Docx4JException if the sample document cannot be saved or loaded
+     */
+    public static void warmup() throws Docx4JException {
+        if (done) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (!done) {
+                run();
+                done = true;
+            }
+        }
+    }
+
+    /**
+     * Warm-up from the command line, used as training run of the class data sharing archive
+     *
+     * @param args not used
+     * @throws Docx4JException if the sample document cannot be saved or loaded
+     */
+    public static void main(final String[] args) throws Docx4JException {
+        final long start = System.nanoTime();
+        warmup();
+        System.out.println("GDocx warm-up completed in " + (System.nanoTime() - start) / 1000000L + " ms");
+    }
+
+    private static void run() throws Docx4JException {
+        Context.getWmlObjectFactory();
+        final GP paragraph = GP.create().text("Warm-up", "GDocx").font("Arial", 10L).bold().italic().color("FF0000")
+            .align(JcEnumeration.CENTER);
+        final GTbl table = GTbl.create().borders(4L, STBorder.SINGLE, "000000", null).widthAuto().grid(1000L, 1000L)
+            .add(GTr.create().height(300L, STHeightRule.AT_LEAST).align(JcEnumeration.CENTER).cansplit()
+                .add(GTc.create().width(1000L, "dxa").shd("auto", "EEEEEE").valign(STVerticalJc.CENTER)
+                    .borderTop(4L, STBorder.SINGLE, "000000", 0L).vmerge("restart").add(paragraph.copy()))
+                .add(GTc.create().width(1000L, "dxa").add(GP.create().text("Cell"))))
+            .add(GTr.create().add(GTc.create().gridspan(2L).add(GP.create())));
+        paragraph.xml();
+        table.xml();
+        table.estimate();
+        XmlUtils.marshaltoString(table, true, false);
+
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(paragraph);
+        pkg.getMainDocumentPart().getContent().add(table);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pkg.save(baos);
+        GDocxSaver.create().parallelism(1).save(pkg, new ByteArrayOutputStream());
+        WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray())).getMainDocumentPart().getContent();
+
+        final GDocxWriter writer = GDocxWriter.create(new ByteArrayOutputStream());
+        try {
+            writer.add(paragraph.copy());
+            writer.startTable(GTbl.create().grid(1000L));
+            writer.addRow(GTr.create().add(GTc.create().add(GP.create().text("Row"))));
+            writer.endTable();
+            writer.close();
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing the warm-up document", e);
+        }
+    }
+}
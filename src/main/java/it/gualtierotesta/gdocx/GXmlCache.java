@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.lang.ref.SoftReference;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.docx4j.XmlUtils;
+import org.jvnet.jaxb2_commons.ppp.Child;
+
+/**
+ * Last result of the xml() method of a G* element.
+ * <p>
+ * The builder methods call {@link #changed(Object)}, which clears the cache of the element and of its containers,
+ * found following the docx4j parent references (set by the add methods). The XML is held by a soft reference and
+ * only if it is shorter than {@link #MAX_LENGTH}, so the cache never keeps large tables in memory. The XML of a table
+ * whose rows are read from a source ({@link GTbl#fromSource(Iterable, GRowMapper)}) or spilled to disk
+ * ({@link GTbl#spill(int)}) is never cached: the source can change without a builder call.
+ *
+ * @author gualtiero
+ */
+final class GXmlCache {
+
+    /**
+     * Maximum length (in chars) of a cached XML
+     */
+    static final int MAX_LENGTH = 256 * 1024;
+
+    private volatile SoftReference<String> xml;
+
+    /**
+     * @param element element owning this cache
+     * @return the cached XML of the element, serialized again if it has been changed or collected
+     */
+    @Nonnull
+    String xml(@Nonnull final Object element) {
+        final boolean measure = GMetrics.isEnabled();
+        final long start = measure ? System.nanoTime() : 0L;
+        final SoftReference<String> reference = xml;
+        String result = null == reference ? null : reference.get();
+        final boolean cached = null != result;
+        if (!cached) {
+            result = GSerializer.xml(element);
+            if (MAX_LENGTH >= result.length() && isCacheable(element)) {
+                xml = new SoftReference<String>(result);
+            }
+        }
+        if (measure) {
+            final long nanos = System.nanoTime() - start;
+            GMetrics.xml(element.getClass(), GMetrics.utf8Length(result), cached, nanos);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the XML is cached
+     */
+    boolean isCached() {
+        final SoftReference<String> reference = xml;
+        return null != reference && null != reference.get();
+    }
+
+    /**
+     * Clear the cache of the element and of all its containers, after a change made by a builder method
+     *
+     * @param element changed element
+     */
+    static void changed(@Nonnull final Object element) {
+        GMetrics.changed(element.getClass());
+        invalidate(element);
+    }
+
+    /**
+     * Clear the cache of the element and of all its containers
+     *
+     * @param element changed element
+     */
+    static void invalidate(@Nonnull final Object element) {
+        Object current = element;
+        while (null != current) {
+            final GXmlCache cache = cacheOf(current);
+            if (null != cache) {
+                cache.xml = null;
+            }
+            current = current instanceof Child ? ((Child) current).getParent() : null;
+        }
+    }
+
+    /**
+     * Set the container of an element added to a G* element, so that its changes are propagated
+     *
+     * @param obj    added object (can be a JAXBElement)
+     * @param parent container
+     */
+    static void added(@Nonnull final Object obj, @Nonnull final Object parent) {
+        final Object value = XmlUtils.unwrap(obj);
+        if (value instanceof Child) {
+            ((Child) value).setParent(parent);
+        }
+        changed(parent);
+    }
+
+    private static boolean isCacheable(final Object element) {
+        if (element instanceof GTbl) {
+            final Object content = ((GTbl) element).getContent();
+            return !(content instanceof GLazyRowList) && !(content instanceof GSpillList);
+        }
+        return true;
+    }
+
+    @CheckForNull
+    private static GXmlCache cacheOf(final Object obj) {
+        if (obj instanceof GP) {
+            return ((GP) obj).xmlCache();
+        } else if (obj instanceof GTc) {
+            return ((GTc) obj).xmlCache();
+        } else if (obj instanceof GTr) {
+            return ((GTr) obj).xmlCache();
+        } else if (obj instanceof GTbl) {
+            return ((GTbl) obj).xmlCache();
+        }
+        return null;
+    }
+}
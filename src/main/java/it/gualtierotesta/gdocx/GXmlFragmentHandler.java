@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler which writes the events produced by a JAXB fragment marshalling to a {@link GXmlOutput}.
+ * <p>
+ * Namespace declarations already in scope on the enclosing document (for ex. the w:document root) are not
+ * repeated on the fragment root.
+ *
+ * @author gualtiero
+ */
+final class GXmlFragmentHandler extends DefaultHandler {
+
+    private final GXmlOutput out;
+    private final Map<String, String> inScope;
+    private final List<String> pending = new ArrayList<String>();
+
+    /**
+     * Constructor
+     *
+     * @param pOut     destination output
+     * @param pInScope namespace declarations (prefix to uri) already in scope
+     */
+    GXmlFragmentHandler(@Nonnull final GXmlOutput pOut, @Nonnull final Map<String, String> pInScope) {
+        out = pOut;
+        inScope = pInScope;
+    }
+
+    @Override
+    public void startPrefixMapping(final String prefix, final String uri) {
+        if (!uri.equals(inScope.get(prefix))) {
+            pending.add(prefix);
+            pending.add(uri);
+        }
+    }
+
+    @Override
+    public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+        throws SAXException {
+        try {
+            out.start(qName);
+            for (int i = 0; i < pending.size(); i += 2) {
+                final String prefix = pending.get(i);
+                out.attribute(0 == prefix.length() ? "xmlns" : "xmlns:" + prefix, pending.get(i + 1));
+            }
+            pending.clear();
+            for (int i = 0; i < atts.getLength(); i++) {
+                out.attribute(atts.getQName(i), atts.getValue(i));
+            }
+        } catch (final IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+        try {
+            out.end(qName);
+        } catch (final IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) throws SAXException {
+        try {
+            out.text(new String(ch, start, length));
+        } catch (final IOException e) {
+            throw new SAXException(e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.annotation.Nonnull;
+
+/**
+ * Minimal XML text output used by the gdocx serializers.
+ * <p>
+ * Empty elements are closed as {@code <x/>}; with pretty print enabled the indentation is the same used by the
+ * JAXB reference implementation (4 spaces, text only elements on a single line).
+ *
+ * @author gualtiero
+ */
+final class GXmlOutput {
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    private static final String INDENT = "    ";
+    private static final String[] INDENTS = new String[16];
+
+    static {
+        final StringBuilder sb = new StringBuilder("\n");
+        for (int i = 0; i < INDENTS.length; i++) {
+            INDENTS[i] = sb.toString();
+            sb.append(INDENT);
+        }
+    }
+
+    private final Writer writer;
+    private final boolean pretty;
+    private int depth;
+    private boolean startTagOpen;
+    private boolean seenText;
+    private boolean started;
+
+    /**
+     * Constructor
+     *
+     * @param pWriter destination writer
+     * @param bPretty true to indent the elements
+     */
+    GXmlOutput(@Nonnull final Writer pWriter, final boolean bPretty) {
+        writer = pWriter;
+        pretty = bPretty;
+    }
+
+    /**
+     * @return the number of open elements
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return true if the elements are indented
+     */
+    boolean isPretty() {
+        return pretty;
+    }
+
+    /**
+     * Write the XML declaration
+     */
+    void declaration() throws IOException {
+        writer.write(DECLARATION);
+        started = true;
+    }
+
+    /**
+     * Write an element start tag, left open for attributes
+     *
+     * @param qName qualified element name (for ex. "w:p")
+     */
+    void start(@Nonnull final String qName) throws IOException {
+        closeStartTag();
+        if (pretty) {
+            indent();
+        }
+        writer.write('<');
+        writer.write(qName);
+        startTagOpen = true;
+        seenText = false;
+        started = true;
+        depth++;
+    }
+
+    /**
+     * Write an attribute of the current start tag
+     *
+     * @param qName  qualified attribute name (for ex. "w:val")
+     * @param sValue attribute value (escaped)
+     */
+    void attribute(@Nonnull final String qName, @Nonnull final String sValue) throws IOException {
+        writer.write(' ');
+        writer.write(qName);
+        writer.write("=\"");
+        escape(sValue, true);
+        writer.write('"');
+    }
+
+    /**
+     * Write already formatted attributes (for ex. namespace declarations) in the current start tag
+     *
+     * @param sAttributes attributes text, starting with a space
+     */
+    void raw(@Nonnull final String sAttributes) throws IOException {
+        writer.write(sAttributes);
+    }
+
+    /**
+     * Write already serialized elements as content of the current element
+     *
+     * @param chars  XML text
+     * @param offset offset of the first char to be written
+     * @param length number of chars to be written
+     */
+    void content(@Nonnull final char[] chars, final int offset, final int length) throws IOException {
+        closeStartTag();
+        writer.write(chars, offset, length);
+        started = true;
+    }
+
+    /**
+     * Write text content of the current element
+     *
+     * @param sText text (escaped)
+     */
+    void text(@Nonnull final String sText) throws IOException {
+        closeStartTag();
+        escape(sText, false);
+        seenText = true;
+    }
+
+    /**
+     * Write the end tag of the current element
+     *
+     * @param qName qualified element name
+     */
+    void end(@Nonnull final String qName) throws IOException {
+        depth--;
+        if (startTagOpen) {
+            writer.write("/>");
+            startTagOpen = false;
+        } else {
+            if (pretty && !seenText) {
+                indent();
+            }
+            writer.write("</");
+            writer.write(qName);
+            writer.write('>');
+        }
+        seenText = false;
+    }
+
+    /**
+     * Close the pending start tag (if any) and flush the writer
+     */
+    void flush() throws IOException {
+        closeStartTag();
+        writer.flush();
+    }
+
+    /**
+     * Complete the output (final new line when pretty printing)
+     */
+    void finish() throws IOException {
+        closeStartTag();
+        if (pretty) {
+            writer.write('\n');
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            writer.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void indent() throws IOException {
+        if (depth < INDENTS.length) {
+            writer.write(INDENTS[depth], started ? 0 : 1, INDENTS[depth].length() - (started ? 0 : 1));
+        } else {
+            if (started) {
+                writer.write('\n');
+            }
+            for (int i = 0; i < depth; i++) {
+                writer.write(INDENT);
+            }
+        }
+    }
+
+    private void escape(final String sValue, final boolean bAttribute) throws IOException {
+        final int length = sValue.length();
+        int last = 0;
+        for (int i = 0; i < length; i++) {
+            final String replacement;
+            switch (sValue.charAt(i)) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = bAttribute ? "&quot;" : null;
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (null != replacement) {
+                writer.write(sValue, last, i - last);
+                writer.write(replacement);
+                last = i + 1;
+            }
+        }
+        writer.write(sValue, last, length - last);
+    }
+}
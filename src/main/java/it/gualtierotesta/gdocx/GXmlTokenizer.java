@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import javax.annotation.Nonnull;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Minimal XML tokenizer, splitting a document in text, tags and other markup without parsing it.
+ * <p>
+ * The tokens are returned as they are in the source (attribute quotes, entities, whitespace), so a document can be
+ * copied unchanged or cut at element boundaries. The position of every token is tracked in UTF-8 bytes.
+ *
+ * @author gualtiero
+ */
+final class GXmlTokenizer {
+
+    static final int EOF = 0;
+    static final int TEXT = 1;
+    static final int START = 2;
+    static final int END = 3;
+    static final int EMPTY = 4;
+    static final int OTHER = 5;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final StringBuilder token = new StringBuilder(256);
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long offset;
+    private long tokenOffset;
+
+    /**
+     * Constructor
+     *
+     * @param pReader source (UTF-8 decoded, for the byte positions)
+     */
+    GXmlTokenizer(@Nonnull final Reader pReader) {
+        reader = pReader;
+    }
+
+    /**
+     * Read the next token (text, tag, comment, processing instruction or CDATA section)
+     *
+     * @return the token kind
+     * @throws IOException if the source cannot be read or ends inside a tag
+     */
+    int next() throws IOException {
+        token.setLength(0);
+        tokenOffset = offset;
+        int c = readOrEof();
+        if (0 > c) {
+            return EOF;
+        }
+        if ('<' != c) {
+            while (0 <= c && '<' != c) {
+                token.append((char) c);
+                c = readOrEof();
+            }
+            if (0 <= c) {
+                // the '<' starts the next token
+                position--;
+                offset--;
+            }
+            return TEXT;
+        }
+        token.append('<');
+        c = read();
+        token.append((char) c);
+        if ('?' == c) {
+            readUntil("?>", 4);
+            return OTHER;
+        }
+        if ('!' == c) {
+            token.append((char) read()).append((char) read());
+            if (startsWith("<!--")) {
+                readUntil("-->", 7);
+            } else if (startsWith("<![")) {
+                readUntil("]]>", 12);
+            } else {
+                readUntil(">", 3);
+            }
+            return OTHER;
+        }
+        // tag: a '>' inside a quoted attribute value does not end it
+        char quote = 0;
+        while ('>' != c || 0 != quote) {
+            if (0 == quote && ('"' == c || '\'' == c)) {
+                quote = (char) c;
+            } else if (quote == c) {
+                quote = 0;
+            }
+            c = read();
+            token.append((char) c);
+        }
+        if ('/' == token.charAt(1)) {
+            return END;
+        }
+        return '/' == token.charAt(token.length() - 2) ? EMPTY : START;
+    }
+
+    /**
+     * @return text of the last token
+     */
+    @Nonnull
+    StringBuilder token() {
+        return token;
+    }
+
+    /**
+     * @return position (in UTF-8 bytes) of the start of the last token
+     */
+    long tokenOffset() {
+        return tokenOffset;
+    }
+
+    /**
+     * @return position (in UTF-8 bytes) of the end of the last token
+     */
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * @return qualified name of the tag in the last token
+     */
+    @Nonnull
+    String name() {
+        final int start = '/' == token.charAt(1) ? 2 : 1;
+        int end = start;
+        while (end < token.length()) {
+            final char c = token.charAt(end);
+            if ('>' == c || '/' == c || Character.isWhitespace(c)) {
+                break;
+            }
+            end++;
+        }
+        return token.substring(start, end);
+    }
+
+    /**
+     * Copy the rest of the source, after the last token
+     *
+     * @param writer destination
+     * @throws IOException if the source cannot be read
+     */
+    void copyRest(@Nonnull final Writer writer) throws IOException {
+        writer.write(buffer, position, limit - position);
+        position = limit;
+        IOUtils.copy(reader, writer);
+    }
+
+    /**
+     * @param kind token kind
+     * @return true for the start tag of an element (empty or not)
+     */
+    static boolean isStart(final int kind) {
+        return START == kind || EMPTY == kind;
+    }
+
+    private void readUntil(final String terminator, final int iMinLength) throws IOException {
+        while (token.length() < iMinLength || !endsWith(terminator)) {
+            token.append((char) read());
+        }
+    }
+
+    private int read() throws IOException {
+        final int c = readOrEof();
+        if (0 > c) {
+            throw new IOException("Unterminated tag in the main document");
+        }
+        return c;
+    }
+
+    private int readOrEof() throws IOException {
+        if (position == limit) {
+            final int read = reader.read(buffer);
+            if (0 >= read) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        final char c = buffer[position++];
+        // a surrogate pair is 4 bytes, 2 for each char
+        offset += 0x80 > c ? 1 : 0x800 > c || 0xD800 <= c && 0xDFFF >= c ? 2 : 3;
+        return c;
+    }
+
+    private boolean startsWith(final String prefix) {
+        return token.length() >= prefix.length() && token.indexOf(prefix) == 0;
+    }
+
+    private boolean endsWith(final String suffix) {
+        final int start = token.length() - suffix.length();
+        return 0 <= start && token.indexOf(suffix, start) == start;
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.parts.CustomXmlDataStoragePart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.OleObjectBinaryPart;
+import org.docx4j.openpackaging.parts.XmlPart;
+
+/**
+ * Write only part store used by {@link GDocxSaver}.
+ * <p>
+ * The parts are collected while docx4j walks the package; in {@link #finishSave()} the JAXB parts are marshalled and
+ * all the parts are compressed on the executor, then the entries are written in the original order. A part larger
+ * than the block size is deflated in independent blocks (each one primed with the last 32 KB of the previous block
+ * as dictionary) which are concatenated in a single deflate stream, as pigz does.
+ * <p>
+ * When saving for a {@link GDocxEditor}, the unchanged parts are copied from the opened file as raw zip entries.
+ *
+ * @author gualtiero
+ */
+final class GZipPartStore implements PartStore {
+
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    private static final String PACKAGE_RELS = "_rels/.rels";
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Deflater.SYNC_FLUSH, available since Java 7
+    private static final int SYNC_FLUSH = 2;
+    @CheckForNull
+    private static final Method SYNC_DEFLATE = syncDeflateMethod();
+
+    private final ExecutorService executor;
+    private final int level;
+    private final boolean stored;
+    private final int blockSize;
+    private final GDocxEditor editor;
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private PartStore sourcePartStore;
+    private OutputStream outputStream;
+    // Phase times and written size, collected only for the metrics listener
+    private final boolean measure = GMetrics.isEnabled();
+    private final AtomicLong marshalNanos = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private long writeNanos;
+    private long writtenBytes;
+
+    /**
+     * Constructor
+     *
+     * @param pExecutor  executor running the marshalling and compression tasks
+     * @param iLevel     deflate level (0-9)
+     * @param bStored    true to store the entries without compression
+     * @param iBlockSize size of the independently compressed blocks
+     * @param pEditor    editor whose file has the unchanged parts (null if none)
+     */
+    GZipPartStore(@Nonnull final ExecutorService pExecutor, final int iLevel, final boolean bStored,
+        final int iBlockSize, @CheckForNull final GDocxEditor pEditor) {
+        executor = pExecutor;
+        level = iLevel;
+        stored = bStored;
+        blockSize = iBlockSize;
+        editor = pEditor;
+    }
+
+    /**
+     * @return true if the parts larger than the block size can be split (the JVM supports the deflate sync flush)
+     */
+    static boolean isBlockSplitSupported() {
+        return null != SYNC_DEFLATE;
+    }
+
+    @Override
+    public InputStream loadPart(final String sPartName) throws Docx4JException {
+        throw new UnsupportedOperationException("Write only part store");
+    }
+
+    @Override
+    public long getPartSize(final String sPartName) throws Docx4JException {
+        throw new UnsupportedOperationException("Write only part store");
+    }
+
+    @Override
+    public void setOutputStream(final OutputStream pOutputStream) throws Docx4JException {
+        outputStream = pOutputStream;
+    }
+
+    @Override
+    public void setSourcePartStore(final PartStore pSourcePartStore) {
+        sourcePartStore = pSourcePartStore;
+    }
+
+    @Override
+    public void saveContentTypes(final ContentTypeManager ctm) throws Docx4JException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            ctm.marshal(os);
+        } catch (final Exception e) {
+            throw new Docx4JException("Error marshalling Content_Types", e);
+        }
+        entries.add(new Entry(CONTENT_TYPES, false, new Bytes(os.toByteArray())));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void saveJaxbXmlPart(final JaxbXmlPart part) throws Docx4JException {
+        final String sName = part.getPartName().getName();
+        final String sEntryName = PACKAGE_RELS.equals(sName) ? sName : sName.substring(1);
+        if (copied(sEntryName, part)) {
+            return;
+        }
+        Callable<byte[]> content = null == editor ? null : editor.content(part);
+        if (null != content) {
+            // Main document rebuilt from its unchanged body elements
+            content = measured(content);
+        } else if (part.isUnmarshalled()) {
+            // Marshalled later, together with the other parts
+            content = new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    final long start = measure ? System.nanoTime() : 0L;
+                    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+                    part.marshal(os);
+                    if (measure) {
+                        marshalNanos.addAndGet(System.nanoTime() - start);
+                    }
+                    return os.toByteArray();
+                }
+            };
+        } else {
+            content = new Bytes(sourceBytes(sEntryName));
+        }
+        entries.add(new Entry(sEntryName, false, content));
+    }
+
+    @Override
+    public void saveCustomXmlDataStoragePart(final CustomXmlDataStoragePart part) throws Docx4JException {
+        if (copied(part.getPartName().getName().substring(1), part)) {
+            return;
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            part.getData().writeDocument(os);
+        } catch (final Exception e) {
+            throw new Docx4JException("Error marshalling CustomXmlDataStoragePart " + part.getPartName(), e);
+        }
+        entries.add(new Entry(part.getPartName().getName().substring(1), false, new Bytes(os.toByteArray())));
+    }
+
+    @Override
+    public void saveXmlPart(final XmlPart part) throws Docx4JException {
+        if (copied(part.getPartName().getName().substring(1), part)) {
+            return;
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            XmlUtils.getTransformerFactory().newTransformer()
+                .transform(new DOMSource(part.getDocument()), new StreamResult(os));
+        } catch (final Exception e) {
+            throw new Docx4JException("Error marshalling XmlPart " + part.getPartName(), e);
+        }
+        entries.add(new Entry(part.getPartName().getName().substring(1), false, new Bytes(os.toByteArray())));
+    }
+
+    @Override
+    public void saveBinaryPart(final Part part) throws Docx4JException {
+        final String sEntryName = part.getPartName().getName().substring(1);
+        if (copied(sEntryName, part)) {
+            return;
+        }
+        final byte[] bytes;
+        if (((BinaryPart) part).isLoaded()) {
+            bytes = ((BinaryPart) part).getBytes();
+        } else {
+            bytes = sourceBytes(sEntryName);
+        }
+        // Same as docx4j: embedded OLE objects are never compressed
+        entries.add(new Entry(sEntryName, part instanceof OleObjectBinaryPart, new Bytes(bytes)));
+    }
+
+    @Override
+    public void finishSave() throws Docx4JException {
+
+        final List<Future<byte[]>> contents = new ArrayList<Future<byte[]>>(entries.size());
+        final List<List<Future<byte[]>>> blocks = new ArrayList<List<Future<byte[]>>>(entries.size());
+        try {
+            for (final Entry entry : entries) {
+                contents.add(null == entry.raw ? executor.submit(entry.content) : null);
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                final Entry entry = entries.get(i);
+                if (null == entry.raw) {
+                    entry.data = get(contents.get(i), entry.name);
+                    blocks.add(compress(entry));
+                } else {
+                    blocks.add(Collections.<Future<byte[]>>emptyList());
+                }
+            }
+            final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(outputStream);
+            for (int i = 0; i < entries.size(); i++) {
+                write(zos, entries.get(i), blocks.get(i));
+            }
+            final long start = measure ? System.nanoTime() : 0L;
+            zos.finish();
+            zos.flush();
+            if (measure) {
+                writeNanos += System.nanoTime() - start;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Docx4JException("Save interrupted", e);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error writing the zip file", e);
+        } finally {
+            for (final Future<byte[]> future : contents) {
+                if (null != future) {
+                    future.cancel(true);
+                }
+            }
+            for (final List<Future<byte[]>> futures : blocks) {
+                for (final Future<byte[]> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Report the phase times of the completed save to the metrics listener (if it was registered at the start)
+     *
+     * @param totalNanos duration of the save
+     */
+    void reportMetrics(final long totalNanos) {
+        if (measure) {
+            GMetrics.saved(marshalNanos.get(), compressNanos.get(), writeNanos, totalNanos, writtenBytes);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        entries.clear();
+    }
+
+    /**
+     * Add the entry of the editor file if the part is unchanged
+     *
+     * @return true if the part is copied
+     */
+    private boolean copied(final String sEntryName, final Part part) {
+        final ZipArchiveEntry raw = null == editor ? null : editor.unchanged(sEntryName, part);
+        if (null != raw) {
+            entries.add(new Entry(sEntryName, raw));
+        }
+        return null != raw;
+    }
+
+    private Callable<byte[]> measured(final Callable<byte[]> content) {
+        if (!measure) {
+            return content;
+        }
+        return new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                final long start = System.nanoTime();
+                final byte[] bytes = content.call();
+                marshalNanos.addAndGet(System.nanoTime() - start);
+                return bytes;
+            }
+        };
+    }
+
+    private byte[] sourceBytes(final String sEntryName) throws Docx4JException {
+        if (null == sourcePartStore) {
+            throw new Docx4JException("part store has changed, and sourcePartStore not set");
+        }
+        InputStream is = null;
+        try {
+            is = sourcePartStore.loadPart(sEntryName);
+            if (null == is) {
+                throw new Docx4JException("part '" + sEntryName + "' not found");
+            }
+            return IOUtils.toByteArray(is);
+        } catch (final IOException e) {
+            throw new Docx4JException("Error reading part " + sEntryName, e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    private List<Future<byte[]>> compress(final Entry entry) {
+        final byte[] data = entry.data;
+        final long crcStart = measure ? System.nanoTime() : 0L;
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.crc = crc.getValue();
+        if (measure) {
+            compressNanos.addAndGet(System.nanoTime() - crcStart);
+        }
+        if (stored || entry.forceStored) {
+            return Collections.emptyList();
+        }
+        final int iBlockSize = isBlockSplitSupported() ? blockSize : Integer.MAX_VALUE;
+        final List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+        int offset = 0;
+        do {
+            final int length = Math.min(iBlockSize, data.length - offset);
+            final int start = offset;
+            futures.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    if (!measure) {
+                        return deflate(data, start, length, level);
+                    }
+                    final long begin = System.nanoTime();
+                    final byte[] block = deflate(data, start, length, level);
+                    compressNanos.addAndGet(System.nanoTime() - begin);
+                    return block;
+                }
+            }));
+            offset += length;
+        } while (offset < data.length);
+        return futures;
+    }
+
+    private void write(final ZipArchiveOutputStream zos, final Entry entry, final List<Future<byte[]>> futures)
+        throws IOException, InterruptedException, Docx4JException {
+
+        if (null != entry.raw) {
+            final long start = measure ? System.nanoTime() : 0L;
+            final InputStream raw = editor.rawInputStream(entry.raw);
+            try {
+                zos.addRawArchiveEntry(new ZipArchiveEntry(entry.raw), raw);
+            } finally {
+                raw.close();
+            }
+            if (measure) {
+                writeNanos += System.nanoTime() - start;
+                writtenBytes += entry.raw.getCompressedSize();
+            }
+            return;
+        }
+        final ZipArchiveEntry zipEntry = new ZipArchiveEntry(entry.name);
+        zipEntry.setSize(entry.data.length);
+        zipEntry.setCrc(entry.crc);
+        final InputStream raw;
+        if (futures.isEmpty()) {
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setCompressedSize(entry.data.length);
+            raw = new ByteArrayInputStream(entry.data);
+        } else {
+            final List<InputStream> streams = new ArrayList<InputStream>(futures.size());
+            long compressedSize = 0L;
+            for (final Future<byte[]> future : futures) {
+                final byte[] block = get(future, entry.name);
+                compressedSize += block.length;
+                streams.add(new ByteArrayInputStream(block));
+            }
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            zipEntry.setCompressedSize(compressedSize);
+            raw = new SequenceInputStream(Collections.enumeration(streams));
+        }
+        final long start = measure ? System.nanoTime() : 0L;
+        zos.addRawArchiveEntry(zipEntry, raw);
+        if (measure) {
+            writeNanos += System.nanoTime() - start;
+            writtenBytes += zipEntry.getCompressedSize();
+        }
+        entry.data = null;
+    }
+
+    /**
+     * Deflate a block of data as part of a raw deflate stream
+     *
+     * @param data   whole part data
+     * @param offset start of the block
+     * @param length length of the block; the last block ends at the end of the data
+     * @param iLevel deflate level
+     * @return compressed block, terminated by a final block or byte aligned by a sync flush
+     */
+    @Nonnull
+    static byte[] deflate(@Nonnull final byte[] data, final int offset, final int length, final int iLevel) {
+
+        final boolean last = offset + length == data.length;
+        final Deflater deflater = new Deflater(iLevel, true);
+        try {
+            if (0 < offset) {
+                final int dictionary = Math.min(offset, DICTIONARY_SIZE);
+                deflater.setDictionary(data, offset - dictionary, dictionary);
+            }
+            deflater.setInput(data, offset, length);
+            final ByteArrayOutputStream os = new ByteArrayOutputStream(length / 4 + 64);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    os.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int count;
+                do {
+                    count = ((Integer) SYNC_DEFLATE.invoke(deflater, buffer, Integer.valueOf(0),
+                        Integer.valueOf(buffer.length), Integer.valueOf(SYNC_FLUSH))).intValue();
+                    os.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return os.toByteArray();
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static <T> T get(final Future<T> future, final String sEntryName)
+        throws InterruptedException, Docx4JException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            throw new Docx4JException("Error saving part " + sEntryName, e.getCause());
+        }
+    }
+
+    @CheckForNull
+    private static Method syncDeflateMethod() {
+        try {
+            return Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Zip entry to be written
+     */
+    private static final class Entry {
+
+        private final String name;
+        private final boolean forceStored;
+        private final Callable<byte[]> content;
+        private final ZipArchiveEntry raw;
+        private byte[] data;
+        private long crc;
+
+        Entry(final String sName, final boolean bForceStored, final Callable<byte[]> pContent) {
+            name = sName;
+            forceStored = bForceStored;
+            content = pContent;
+            raw = null;
+        }
+
+        /**
+         * Entry copied from the editor file
+         */
+        Entry(final String sName, final ZipArchiveEntry pRaw) {
+            name = sName;
+            forceStored = false;
+            content = null;
+            raw = pRaw;
+        }
+    }
+
+    /**
+     * Content already serialized
+     */
+    private static final class Bytes implements Callable<byte[]> {
+
+        private final byte[] bytes;
+
+        Bytes(final byte[] pBytes) {
+            bytes = pBytes;
+        }
+
+        @Override
+        public byte[] call() {
+            return bytes;
+        }
+    }
+}
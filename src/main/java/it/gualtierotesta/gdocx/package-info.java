@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Fluent like extension to the docx4j library.
+ * <p>
+ * <b>Thread safety</b>
+ * <ul>
+ * <li>Builder instances (GP, GTbl, GTr, GTc, GColumn) are not thread safe: each one must be built by a single
+ * thread and then safely published (for ex. as the result of a Future, see {@link it.gualtierotesta.gdocx.GDocumentAssembler})
+ * before being used by another thread.</li>
+ * <li>Different builder instances can be built concurrently: the static factories, the static docx4j
+ * ObjectFactory used by the builders (it has no state) and {@link it.gualtierotesta.gdocx.GFactory} (concurrent
+ * pools of read only instances, read only constants) are thread safe.</li>
+ * <li>{@link it.gualtierotesta.gdocx.GSerializer} static methods are thread safe; the xml() and copy() methods can
+ * be called concurrently on instances no more modified.</li>
+ * <li>{@link it.gualtierotesta.gdocx.GDocxWriter} and {@link it.gualtierotesta.gdocx.GStyleExtractor} instances,
+ * as the docx4j packages and parts, must be used by one thread at a time.</li>
+ * </ul>
+ */
+package it.gualtierotesta.gdocx;
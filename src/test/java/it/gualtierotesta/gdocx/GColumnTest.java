@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.wml.JcEnumeration;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GColumn
+ *
+ * @author gualtiero
+ */
+public class GColumnTest {
+
+    @Test
+    public void testCreate() {
+        final GTc cell = GTc.create().width(1000L, "dxa");
+        final GP paragraph = GP.create().bold().align(JcEnumeration.RIGHT);
+
+        final GColumn iut = GColumn.create(cell, paragraph);
+
+        assertThat(iut.getTcPr()).isSameAs(cell.getTcPr());
+        assertThat(iut.getPPr()).isSameAs(paragraph.getPPr());
+        assertThat(iut.getRPr().getB()).isNotNull();
+    }
+
+    @Test
+    public void testCreateCellOnly() {
+        final GColumn iut = GColumn.create(GTc.create());
+
+        assertThat(iut.getPPr()).isNull();
+        assertThat(iut.getRPr()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateNullCell() {
+        GColumn.create(null);
+    }
+}
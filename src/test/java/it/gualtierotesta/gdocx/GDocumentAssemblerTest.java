@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.STBorder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GDocumentAssembler
+ *
+ * @author gualtiero
+ */
+public class GDocumentAssemblerTest {
+
+    private static final int SECTIONS = 64;
+
+    @Test
+    public void parallelSameAsSequential() throws Exception {
+        final GDocumentAssembler iut = GDocumentAssembler.create().parallelism(8);
+        final List<Object> expected = new ArrayList<Object>();
+        for (int i = 0; i < SECTIONS; i++) {
+            iut.add(new TableSection(i));
+            new TableSection(i).build(expected);
+        }
+
+        final List<Object> result = iut.build();
+
+        assertThat(result).hasSize(expected.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertThat(GSerializer.xml(result.get(i))).isEqualTo(GSerializer.xml(expected.get(i)));
+        }
+    }
+
+    @Test
+    public void assembleWithExecutor() throws Exception {
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        final MainDocumentPart mdp = pkg.getMainDocumentPart();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            GDocumentAssembler.create().executor(executor).add(new TableSection(1)).add(new TableSection(2))
+                    .assemble(mdp);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(mdp.getContent()).hasSize(4);
+        assertThat(((GP) mdp.getContent().get(0)).xml()).contains("Section 1");
+        assertThat(((GP) mdp.getContent().get(2)).xml()).contains("Section 2");
+    }
+
+    @Test(expected = Docx4JException.class)
+    public void sectionError() throws Exception {
+        GDocumentAssembler.create().add(new TableSection(1)).add(new GSection() {
+            @Override
+            public void build(final List<Object> content) {
+                throw new IllegalStateException("Section error");
+            }
+        }).build();
+    }
+
+    private static final class TableSection implements GSection {
+
+        private final int index;
+
+        TableSection(final int iIndex) {
+            index = iIndex;
+        }
+
+        @Override
+        public void build(final List<Object> content) {
+            content.add(GP.create().text("Section " + index).font("Arial", 14L).bold());
+            final GTbl tbl = GTbl.create().borders(4L, STBorder.SINGLE, "000000", null).widthAuto();
+            for (int r = 0; r < 20; r++) {
+                final GTr tr = GTr.create();
+                for (int c = 0; c < 5; c++) {
+                    tr.add(GTc.create().width(1000L + c, "dxa").shd("auto", 0 == r % 2 ? "EEEEEE" : "FFFFFF")
+                            .add(GP.create().text(index + "-" + r + "-" + c).font("Arial", 8L + c)));
+                }
+                tbl.add(tr);
+            }
+            content.add(tbl);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GDocumentRenderer
+ *
+ * @author gualtiero
+ */
+public class GDocumentRendererTest {
+
+    @Test
+    public void renderWithBoundedConcurrency() throws Exception {
+        final GDocumentRenderer iut = GDocumentRenderer.create().maxDocuments(2);
+        final CountingJob job = new CountingJob(0L);
+        final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+        final List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for (int i = 0; i < 12; i++) {
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                outputs.add(baos);
+                results.add(iut.submit(job, baos));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            iut.shutdown();
+        }
+
+        assertThat(job.max.get()).isLessThanOrEqualTo(2);
+        assertThat(iut.metrics().getSubmitted()).isEqualTo(12L);
+        assertThat(iut.metrics().getCompleted()).isEqualTo(12L);
+        assertThat(iut.isVirtual()).isEqualTo(null != GDocumentRenderer.virtualThreadExecutor());
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(
+            new ByteArrayInputStream(outputs.get(11).toByteArray()));
+        assertThat(pkg.getMainDocumentPart().getXML()).contains("Rendered");
+    }
+
+    @Test
+    public void deadlineExpired() throws Exception {
+        final GDocumentRenderer iut = GDocumentRenderer.create().maxDocuments(1).deadline(50L, TimeUnit.MILLISECONDS);
+        try {
+            final Future<Void> slow = iut.submit(new CountingJob(200L), new ByteArrayOutputStream());
+            final Future<Void> queued = iut.submit(new CountingJob(0L), new ByteArrayOutputStream());
+            assertThat(cause(slow)).isInstanceOf(TimeoutException.class);
+            assertThat(cause(queued)).isInstanceOf(TimeoutException.class);
+        } finally {
+            iut.shutdown();
+        }
+
+        assertThat(iut.metrics().getTimedOut()).isEqualTo(2L);
+        assertThat(iut.metrics().getCompleted()).isZero();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void configureAfterStart() {
+        final GDocumentRenderer iut = GDocumentRenderer.create();
+        iut.submit(new CountingJob(0L), new ByteArrayOutputStream());
+        iut.shutdown();
+        iut.maxDocuments(4);
+    }
+
+    private static Throwable cause(final Future<Void> result) throws InterruptedException {
+        try {
+            result.get();
+            return null;
+        } catch (final ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    /**
+     * Job tracking the maximum number of concurrent builds
+     */
+    private static final class CountingJob implements GDocumentJob {
+
+        private final long sleep;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger max = new AtomicInteger();
+
+        CountingJob(final long lSleep) {
+            sleep = lSleep;
+        }
+
+        @Override
+        public WordprocessingMLPackage build() throws Exception {
+            final int current = running.incrementAndGet();
+            try {
+                synchronized (max) {
+                    max.set(Math.max(max.get(), current));
+                }
+                Thread.sleep(0L == sleep ? 5L : sleep);
+                final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+                pkg.getMainDocumentPart().getContent().add(GP.create().text("Rendered"));
+                return pkg;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.Tbl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GDocxEditor
+ *
+ * @author gualtiero
+ */
+public class GDocxEditorTest {
+
+    @Test
+    public void saveChangedTable() throws Exception {
+        // given
+        final File docx = create();
+        final GDocxEditor iut = GDocxEditor.open(docx);
+        final Body body = iut.getPackage().getMainDocumentPart().getJaxbElement().getBody();
+        final Tbl tbl = (Tbl) XmlUtils.unwrap(body.getContent().get(1));
+        // when
+        tbl.getContent().add(GTr.create().add(GTc.create().add(GP.create().text("New row"))));
+        iut.changed(tbl.getContent().get(0));
+        body.getContent().add(GP.create().text("Appended"));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        iut.save(GDocxSaver.create(), baos);
+        // then
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+        final Body saved = pkg.getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(saved.getContent()).hasSize(4);
+        assertThat(((Tbl) XmlUtils.unwrap(saved.getContent().get(1))).getContent()).hasSize(3);
+        assertThat(XmlUtils.marshaltoString(saved, true, false)).contains("New row").contains("Appended")
+            .contains("First").contains("Last");
+        assertThat(saved.getSectPr()).isNotNull();
+
+        final String original = entry(docx, "word/document.xml");
+        final String document = entry(copy(baos), "word/document.xml");
+        // the unchanged paragraphs are copied as they were (indented by the docx4j save)
+        final String first = original.substring(original.indexOf("<w:p>"), original.indexOf("</w:p>") + 6);
+        assertThat(first).contains("\n");
+        assertThat(document).contains(first);
+        assertRawCopy(docx, baos, "word/styles.xml");
+    }
+
+    @Test
+    public void saveUnchanged() throws Exception {
+        // given
+        final File docx = create();
+        final GDocxEditor iut = GDocxEditor.open(docx);
+        // when
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        iut.save(GDocxSaver.create(), baos);
+        // then
+        assertRawCopy(docx, baos, "word/document.xml");
+        assertRawCopy(docx, baos, "word/styles.xml");
+    }
+
+    @Test
+    public void saveInPlaceTwice() throws Exception {
+        // given
+        final File docx = create();
+        final GDocxEditor iut = GDocxEditor.open(docx);
+        final Body body = iut.getPackage().getMainDocumentPart().getJaxbElement().getBody();
+        // when
+        body.getContent().remove(0);
+        iut.save();
+        body.getContent().add(0, GP.create().text("Replaced"));
+        iut.save();
+        // then
+        final Body saved = WordprocessingMLPackage.load(docx).getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(saved.getContent()).hasSize(3);
+        assertThat(XmlUtils.marshaltoString(saved.getContent().get(0), true, false)).contains("Replaced");
+        assertThat(XmlUtils.unwrap(saved.getContent().get(1))).isInstanceOf(Tbl.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void changedNotInBody() throws Exception {
+        GDocxEditor.open(create()).changed(GP.create());
+    }
+
+    private static File create() throws Exception {
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(GP.create().text("First"));
+        pkg.getMainDocumentPart().getContent().add(GTbl.create().grid(100L)
+            .add(GTr.create().add(GTc.create().add(GP.create().text("R1C1"))))
+            .add(GTr.create().add(GTc.create().add(GP.create().text("R2C1")))));
+        pkg.getMainDocumentPart().getContent().add(GP.create().text("Last"));
+        final File docx = File.createTempFile("editor", ".docx");
+        docx.deleteOnExit();
+        pkg.save(docx);
+        return docx;
+    }
+
+    private static String entry(final File docx, final String sName) throws Exception {
+        final ZipFile zipFile = new ZipFile(docx);
+        try {
+            final InputStream is = zipFile.getInputStream(zipFile.getEntry(sName));
+            try {
+                return IOUtils.toString(is, "UTF-8");
+            } finally {
+                is.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static File copy(final ByteArrayOutputStream baos) throws Exception {
+        final File copy = File.createTempFile("saved", ".docx");
+        copy.deleteOnExit();
+        FileUtils.writeByteArrayToFile(copy, baos.toByteArray());
+        return copy;
+    }
+
+    private static void assertRawCopy(final File docx, final ByteArrayOutputStream baos, final String sName)
+        throws Exception {
+        final ZipFile before = new ZipFile(docx);
+        final ZipFile after = new ZipFile(copy(baos));
+        try {
+            final ZipArchiveEntry original = before.getEntry(sName);
+            final ZipArchiveEntry saved = after.getEntry(sName);
+            assertThat(saved.getCrc()).isEqualTo(original.getCrc());
+            assertThat(IOUtils.toByteArray(after.getRawInputStream(saved)))
+                .isEqualTo(IOUtils.toByteArray(before.getRawInputStream(original)));
+        } finally {
+            before.close();
+            after.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Document;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GDocxSaver
+ *
+ * @author gualtiero
+ */
+public class GDocxSaverTest {
+
+    private static WordprocessingMLPackage pkg;
+    private static String expected;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        pkg = WordprocessingMLPackage.createPackage();
+        for (int i = 0; i < 2000; i++) {
+            pkg.getMainDocumentPart().getContent().add(GP.create().text("Paragraph " + i).bold());
+        }
+        expected = XmlUtils.marshaltoString(pkg.getMainDocumentPart().getJaxbElement());
+    }
+
+    @Test
+    public void saveDefault() throws Exception {
+        final byte[] docx = save(GDocxSaver.create());
+
+        assertThat(reload(docx)).isEqualTo(expected);
+        assertThat(entries(docx)).contains("[Content_Types].xml", "_rels/.rels", "word/document.xml");
+    }
+
+    @Test
+    public void saveStored() throws Exception {
+        final byte[] stored = save(GDocxSaver.create().stored());
+        final byte[] deflated = save(GDocxSaver.create().level(Deflater.BEST_SPEED));
+
+        assertThat(reload(stored)).isEqualTo(expected);
+        assertThat(reload(deflated)).isEqualTo(expected);
+        assertThat(stored.length).isGreaterThan(deflated.length * 4);
+    }
+
+    @Test
+    public void saveSplitBlocks() throws Exception {
+        final byte[] docx = save(GDocxSaver.create().blockSize(64 * 1024).parallelism(4));
+
+        assertThat(reload(docx)).isEqualTo(expected);
+    }
+
+    @Test
+    public void resaveLoadedPackage() throws Exception {
+        final byte[] docx = save(GDocxSaver.create());
+        final WordprocessingMLPackage loaded = WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        GDocxSaver.create().save(loaded, os);
+
+        assertThat(reload(os.toByteArray())).isEqualTo(expected);
+    }
+
+    @Test
+    public void deflateBlocks() throws Exception {
+        final byte[] data = new byte[300000];
+        final Random random = new Random(1L);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += 100000) {
+            os.write(GZipPartStore.deflate(data, offset, 100000, Deflater.DEFAULT_COMPRESSION));
+        }
+
+        final Inflater inflater = new Inflater(true);
+        inflater.setInput(os.toByteArray());
+        final byte[] result = new byte[data.length];
+        assertThat(inflater.inflate(result)).isEqualTo(data.length);
+        assertThat(inflater.finished()).isTrue();
+        assertThat(result).isEqualTo(data);
+    }
+
+    private static byte[] save(final GDocxSaver saver) throws Exception {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        saver.save(pkg, os);
+        return os.toByteArray();
+    }
+
+    private static String reload(final byte[] docx) throws Exception {
+        final WordprocessingMLPackage loaded = WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+        final Document document = loaded.getMainDocumentPart().getJaxbElement();
+        return XmlUtils.marshaltoString(document);
+    }
+
+    private static List<String> entries(final byte[] docx) throws Exception {
+        // ZipInputStream checks the sizes and the CRC of every entry
+        final List<String> names = new ArrayList<String>();
+        final ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx));
+        final byte[] buffer = new byte[4096];
+        ZipEntry entry;
+        while (null != (entry = zis.getNextEntry())) {
+            while (-1 != zis.read(buffer)) {
+                // skip
+            }
+            names.add(entry.getName());
+        }
+        zis.close();
+        return names;
+    }
+}
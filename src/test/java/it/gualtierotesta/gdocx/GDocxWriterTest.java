@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.apache.commons.io.FileUtils;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.P;
+import org.docx4j.wml.STBorder;
+import org.docx4j.wml.SectPr;
+import org.docx4j.wml.Tbl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GDocxWriter
+ *
+ * @author gualtiero
+ */
+public class GDocxWriterTest {
+
+    private static final String HELLO_WORLD = "Hello, world";
+
+    @Test
+    public void writeParagraphsAndTable() throws Exception {
+        // given
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // when
+        final GDocxWriter iut = GDocxWriter.create(baos);
+        iut.add(GP.create().text(HELLO_WORLD).bold());
+        iut.startTable(GTbl.create().borders(4L, STBorder.SINGLE, "FF0000", null).grid(100L, 200L)
+                .add(GTr.create().add(GTc.create().add(GP.create().text("R1C1")))));
+        for (int i = 2; i <= 10; i++) {
+            iut.addRow(GTr.create().add(GTc.create().add(GP.create().text("R" + i + "C1"))));
+        }
+        iut.endTable();
+        iut.add(GP.create().text("The end"));
+        iut.close();
+        // then
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+        final Body body = pkg.getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(body.getContent()).hasSize(3);
+        assertThat(body.getContent().get(0)).isInstanceOf(P.class);
+        assertThat(XmlUtils.unwrap(body.getContent().get(1))).isInstanceOf(Tbl.class);
+        assertThat(((Tbl) XmlUtils.unwrap(body.getContent().get(1))).getContent()).hasSize(10);
+        assertThat(body.getSectPr()).isNotNull();
+        assertThat(pkg.getMainDocumentPart().getStyleDefinitionsPart()).isNotNull();
+        final String xml = XmlUtils.marshaltoString(body, true, false);
+        assertThat(xml).contains(HELLO_WORLD).contains("R10C1").contains("<w:gridCol w:w=\"200\"/>");
+    }
+
+    @Test
+    public void escapeText() throws Exception {
+        // given
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final String text = "a < b & \"c\" > d";
+        // when
+        final GDocxWriter iut = GDocxWriter.create(baos);
+        iut.add(GP.create().text(text));
+        iut.close();
+        // then
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+        final String xml = XmlUtils.marshaltoString(pkg.getMainDocumentPart().getJaxbElement(), true, false);
+        assertThat(xml).contains("a &lt; b &amp; \"c\" &gt; d");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addRowWithoutTable() throws Exception {
+        final GDocxWriter iut = GDocxWriter.create(new ByteArrayOutputStream());
+        iut.addRow(GTr.create());
+    }
+
+    @Test
+    public void createClosesStreamOnFailure() throws Exception {
+        // given
+        final FailingOutputStream os = new FailingOutputStream();
+        // when
+        try {
+            GDocxWriter.create(os);
+        } catch (final Docx4JException e) {
+            // expected
+        }
+        // then
+        assertThat(os.closed).isTrue();
+    }
+
+    @Test
+    public void appendToDocument() throws Exception {
+        // given
+        final WordprocessingMLPackage original = WordprocessingMLPackage.createPackage();
+        original.getMainDocumentPart().getContent().add(GP.create().text(HELLO_WORLD));
+        final File docx = save(original);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // when
+        final GDocxWriter iut = GDocxWriter.append(docx, baos);
+        iut.add(GP.create().text("Appended"));
+        iut.startTable(GTbl.create().grid(100L));
+        iut.addRow(GTr.create().add(GTc.create().add(GP.create().text("R1C1"))));
+        iut.endTable();
+        iut.close();
+        // then
+        final File appended = File.createTempFile("appended", ".docx");
+        appended.deleteOnExit();
+        FileUtils.writeByteArrayToFile(appended, baos.toByteArray());
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(appended);
+        final Body body = pkg.getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(body.getContent()).hasSize(3);
+        assertThat(XmlUtils.marshaltoString(body.getContent().get(0), true, false)).contains(HELLO_WORLD);
+        assertThat(XmlUtils.marshaltoString(body.getContent().get(1), true, false)).contains("Appended");
+        assertThat(XmlUtils.unwrap(body.getContent().get(2))).isInstanceOf(Tbl.class);
+        assertThat(body.getSectPr()).isNotNull();
+        final ZipFile before = new ZipFile(docx);
+        final ZipFile after = new ZipFile(appended);
+        try {
+            final String styles = "word/styles.xml";
+            assertThat(after.getEntry(styles).getCrc()).isEqualTo(before.getEntry(styles).getCrc());
+            assertThat(after.getEntry(styles).getCompressedSize()).isEqualTo(
+                before.getEntry(styles).getCompressedSize());
+            assertThat(after.size()).isEqualTo(before.size());
+        } finally {
+            before.close();
+            after.close();
+        }
+    }
+
+    @Test
+    public void appendInPlaceWithoutSectionProperties() throws Exception {
+        // given
+        final WordprocessingMLPackage original = WordprocessingMLPackage.createPackage();
+        original.getMainDocumentPart().getJaxbElement().getBody().setSectPr(null);
+        final File docx = save(original);
+        // when
+        for (int i = 1; i <= 2; i++) {
+            final GDocxWriter iut = GDocxWriter.append(docx);
+            iut.add(GP.create().text("Line " + i));
+            iut.close();
+        }
+        // then
+        final Body body = WordprocessingMLPackage.load(docx).getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(body.getContent()).hasSize(2);
+        assertThat(XmlUtils.marshaltoString(body.getContent().get(1), true, false)).contains("Line 2");
+        assertThat(body.getSectPr()).isNull();
+    }
+
+    @Test
+    public void appendKeepsLastSectionProperties() throws Exception {
+        // given
+        final WordprocessingMLPackage original = WordprocessingMLPackage.createPackage();
+        final SectPr sectPr = original.getMainDocumentPart().getJaxbElement().getBody().getSectPr();
+        original.getMainDocumentPart().getContent().add(GP.create().text(HELLO_WORLD));
+        final File docx = save(original);
+        // when
+        final GDocxWriter iut = GDocxWriter.append(docx);
+        iut.add(GP.create().text("Appended"));
+        iut.close();
+        // then
+        final Body body = WordprocessingMLPackage.load(docx).getMainDocumentPart().getJaxbElement().getBody();
+        assertThat(body.getContent()).hasSize(2);
+        assertThat(body.getSectPr()).isNotNull();
+        assertThat(body.getSectPr().getPgSz().getW()).isEqualTo(sectPr.getPgSz().getW());
+    }
+
+    private static final class FailingOutputStream extends OutputStream {
+
+        private boolean closed;
+
+        @Override
+        public void write(final int b) throws IOException {
+            throw new IOException("Disk full");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static File save(final WordprocessingMLPackage pkg) throws Exception {
+        final File docx = File.createTempFile("original", ".docx");
+        docx.deleteOnExit();
+        pkg.save(docx);
+        return docx;
+    }
+}
@@ -19,7 +19,14 @@
 package it.gualtierotesta.gdocx;
 
 import org.docx4j.wml.CTBorder;
+import org.docx4j.wml.CTHeight;
+import org.docx4j.wml.CTShd;
+import org.docx4j.wml.JcEnumeration;
 import org.docx4j.wml.STBorder;
+import org.docx4j.wml.STHeightRule;
+import org.docx4j.wml.STShd;
+import org.docx4j.wml.TblGridCol;
+import org.docx4j.wml.TblWidth;
 import org.junit.Test;
 
 import java.awt.*;
@@ -65,4 +72,133 @@ public class GFactoryTest {
         assertThat(iut.getColor()).isNull();
         assertThat(iut.getSz()).isNull();
     }
+
+    @Test
+    public void sharedShdIsInterned() {
+        // when
+        final CTShd iut = GFactory.sharedShd("auto", COLOR);
+        // then
+        assertThat(iut).isSameAs(GFactory.sharedShd("auto", COLOR));
+        assertThat(iut).isNotSameAs(GFactory.sharedShd("auto", "FFFFFF"));
+        assertThat(iut.getVal()).isEqualTo(STShd.CLEAR);
+        assertThat(iut.getColor()).isEqualTo("auto");
+        assertThat(iut.getFill()).isEqualTo(COLOR);
+    }
+
+    @Test
+    public void sharedWidthIsInterned() {
+        // when
+        final TblWidth iut = GFactory.sharedWidth(1200L, "dxa");
+        // then
+        assertThat(iut).isSameAs(GFactory.sharedWidth(1200L, "dxa"));
+        assertThat(iut).isNotSameAs(GFactory.sharedWidth(1200L, "pct"));
+        assertThat(iut.getW()).isEqualTo(BigInteger.valueOf(1200L)).isSameAs(GFactory.sharedInteger(1200L));
+    }
+
+    @Test
+    public void measureTablesAndPools() {
+        // when
+        final TblGridCol gridCol = GFactory.sharedGridCol(2000L);
+        final CTHeight height = GFactory.sharedHeight(400L, STHeightRule.AT_LEAST);
+        final TblGridCol wide = GFactory.sharedGridCol(GFactory.MAX_TWIPS + 1L);
+        // then
+        assertThat(GFactory.sharedInteger(GFactory.MAX_TWIPS)).isSameAs(GFactory.sharedInteger(GFactory.MAX_TWIPS));
+        assertThat(GFactory.sharedInteger(GFactory.MAX_TWIPS + 1L)).isEqualTo(BigInteger.valueOf(32768L))
+            .isSameAs(GFactory.sharedInteger(GFactory.MAX_TWIPS + 1L));
+        assertThat(GFactory.sharedHpsMeasure(24L)).isSameAs(GFactory.sharedHpsMeasure(24L));
+        assertThat(GFactory.sharedHpsMeasure(GFactory.MAX_HALF_POINTS + 2L).getVal())
+            .isEqualTo(BigInteger.valueOf(3278L));
+        assertThat(gridCol).isSameAs(GFactory.sharedGridCol(2000L));
+        assertThat(gridCol.getW()).isSameAs(GFactory.sharedInteger(2000L));
+        assertThat(wide.getW()).isEqualTo(BigInteger.valueOf(32768L));
+        assertThat(height).isSameAs(GFactory.sharedHeight(400L, STHeightRule.AT_LEAST));
+        assertThat(height).isNotSameAs(GFactory.sharedHeight(400L, STHeightRule.EXACT));
+        assertThat(height.getVal()).isEqualTo(BigInteger.valueOf(400L));
+        assertThat(height.getHRule()).isEqualTo(STHeightRule.AT_LEAST);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedGridColIsReadOnly() {
+        GFactory.sharedGridCol(1000L).setW(BigInteger.ONE);
+    }
+
+    @Test
+    public void sharedBorderSameValuesAsBuildBorder() {
+        // when
+        final CTBorder iut = GFactory.sharedBorder(4L, STBorder.SINGLE, COLOR, 12L);
+        final CTBorder nil = GFactory.sharedBorder(12L, STBorder.NIL, COLOR, null);
+        // then
+        assertThat(iut).isSameAs(GFactory.sharedBorder(4L, STBorder.SINGLE, COLOR, 12L));
+        assertThat(iut.getVal()).isEqualTo(STBorder.SINGLE);
+        assertThat(iut.getColor()).isEqualTo(COLOR);
+        assertThat(iut.getSz()).isEqualTo(BigInteger.valueOf(4L));
+        assertThat(iut.getSpace()).isEqualTo(BigInteger.valueOf(12L));
+        assertThat(nil.getColor()).isNull();
+        assertThat(nil.getSz()).isNull();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedInstanceIsReadOnly() {
+        GFactory.sharedBorder(4L, STBorder.SINGLE, COLOR, null).setColor("000000");
+    }
+
+    @Test
+    public void buildersUseSharedInstances() {
+        // when
+        final GTc first = GTc.create().shd("auto", COLOR).width(500L, "dxa");
+        final GTc second = GTc.create().shd("auto", COLOR).width(500L, "dxa");
+        final GP p1 = GP.create().font("Arial", 10L).color(COLOR).align(JcEnumeration.CENTER);
+        final GP p2 = GP.create().font("Arial", 10L).color(COLOR).align(JcEnumeration.CENTER);
+        // then
+        assertThat(first.getTcPr().getShd()).isSameAs(second.getTcPr().getShd());
+        assertThat(first.getTcPr().getTcW()).isSameAs(second.getTcPr().getTcW());
+        assertThat(p1.getPPr().getJc()).isSameAs(p2.getPPr().getJc());
+        assertThat(p1.xml()).isEqualTo(p2.xml());
+        assertThat(GTbl.create().grid(1000L, 2000L).getTblGrid().getGridCol().get(1))
+            .isSameAs(GTbl.create().grid(2000L).getTblGrid().getGridCol().get(0));
+        final GTr row = GTr.create().height(300L);
+        assertThat(row.xml()).contains("w:val=\"300\"").contains("w:hRule=\"exact\"");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedGridSpanIsReadOnly() {
+        // when
+        final GTc cell = GTc.create().gridspan(3L).vmerge("restart");
+        // then
+        assertThat(cell.getTcPr().getGridSpan()).isSameAs(GFactory.sharedGridSpan(3L));
+        assertThat(cell.getTcPr().getVMerge()).isSameAs(GFactory.sharedVMerge("restart"));
+        assertThat(GFactory.sharedVMerge(null).getVal()).isNull();
+        cell.getTcPr().getGridSpan().setVal(BigInteger.ONE);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void booleanConstantsAreReadOnly() {
+        GFactory.BOOLEAN_TRUE.setVal(Boolean.FALSE);
+    }
+
+    @Test
+    public void sharedInstancesAcrossThreads() throws Exception {
+        final int threads = 8;
+        final Object[] results = new Object[threads];
+        final Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        GFactory.sharedWidth(j, "dxa");
+                    }
+                    results[index] = GFactory.sharedWidth(999L, "dxa");
+                }
+            });
+            workers[i].start();
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        for (final Object result : results) {
+            assertThat(result).isSameAs(GFactory.sharedWidth(999L, "dxa"));
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GFiles
+ *
+ * @author gualtiero
+ */
+public class GFilesTest {
+
+    private static final String CONTENT = "Hello, world";
+
+    @Test
+    public void replace() throws Exception {
+        // given
+        final File directory = directory();
+        final File target = new File(directory, "target.docx");
+        final File temporary = new File(directory, "target.tmp");
+        FileUtils.writeStringToFile(target, "Old", "UTF-8");
+        FileUtils.writeStringToFile(temporary, CONTENT, "UTF-8");
+        // when
+        GFiles.replace(temporary, target);
+        // then
+        assertThat(directory.list()).containsOnly("target.docx");
+        assertThat(FileUtils.readFileToString(target, "UTF-8")).isEqualTo(CONTENT);
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void replaceKeepsTargetOnFailure() throws Exception {
+        // given
+        final File directory = directory();
+        final File target = new File(directory, "target.docx");
+        FileUtils.writeStringToFile(target, CONTENT, "UTF-8");
+        // when
+        boolean failed = false;
+        try {
+            GFiles.replace(new File(directory, "missing.tmp"), target);
+        } catch (final IOException e) {
+            failed = true;
+        }
+        // then
+        assertThat(failed).isTrue();
+        assertThat(directory.list()).containsOnly("target.docx");
+        assertThat(FileUtils.readFileToString(target, "UTF-8")).isEqualTo(CONTENT);
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private static File directory() throws IOException {
+        final File directory = File.createTempFile("replace", "");
+        assertThat(directory.delete() && directory.mkdir()).isTrue();
+        return directory;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.BooleanDefaultTrue;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.RPr;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GJaxbPool
+ *
+ * @author gualtiero
+ */
+public class GJaxbPoolTest {
+
+    @Test
+    public void marshallerReused() throws Exception {
+        final Marshaller first = GJaxbPool.marshaller();
+        final Marshaller nested = GJaxbPool.marshaller();
+        GJaxbPool.release(nested);
+        GJaxbPool.release(first);
+        final Marshaller second = GJaxbPool.marshaller();
+        GJaxbPool.release(second);
+
+        assertThat(nested).isNotSameAs(first);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void writerCleared() {
+        final StringWriter first = GJaxbPool.writer();
+        first.write("content");
+        GJaxbPool.release(first);
+        final StringWriter second = GJaxbPool.writer();
+        GJaxbPool.release(second);
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.toString()).isEmpty();
+    }
+
+    @Test
+    public void deepCopy() {
+        final RPr rPr = Context.getWmlObjectFactory().createRPr();
+        rPr.setB(new BooleanDefaultTrue());
+        final RPr copy = GJaxbPool.deepCopy(rPr);
+
+        assertThat(copy).isNotSameAs(rPr);
+        assertThat(XmlUtils.marshaltoString(copy, true, false)).isEqualTo(XmlUtils.marshaltoString(rPr, true, false));
+    }
+
+    @Test
+    public void deepCopyJAXBElement() {
+        final JAXBElement<?> element = Context.getWmlObjectFactory().createPBookmarkEnd(
+            Context.getWmlObjectFactory().createCTMarkupRange());
+        final JAXBElement<?> copy = GJaxbPool.deepCopy(element);
+
+        assertThat(copy.getName()).isEqualTo(element.getName());
+        assertThat(copy.getValue()).isNotSameAs(element.getValue());
+    }
+
+    @Test
+    public void concurrentXml() throws Exception {
+        final GP p = GP.create().text("Hello, world");
+        final PPrBase.Spacing spacing = Context.getWmlObjectFactory().createPPrBaseSpacing();
+        spacing.setAfter(BigInteger.TEN);
+        p.getPPr().setSpacing(spacing);
+        final String expected = XmlUtils.marshaltoString(p, false, true);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return GSerializer.xml(p);
+                    }
+                }));
+            }
+            for (final Future<String> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
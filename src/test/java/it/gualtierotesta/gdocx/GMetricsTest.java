@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GMetrics
+ *
+ * @author gualtiero
+ */
+public class GMetricsTest {
+
+    @After
+    public void tearDown() {
+        GMetrics.unregister();
+    }
+
+    @Test
+    public void elementEvents() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        GMetrics.register(listener);
+
+        final GP p = GP.create().text("Metrics Città").bold();
+        GTbl.create().add(GTr.create().add(GTc.create().add(p)));
+        final String xml = p.xml();
+        p.xml();
+
+        assertThat(listener.events).containsSubsequence("created GP", "changed GP", "changed GP");
+        assertThat(listener.events).contains("created GTbl", "created GTr", "created GTc");
+        final int bytes = xml.getBytes("UTF-8").length;
+        assertThat(bytes).isEqualTo(xml.length() + 1);
+        assertThat(listener.events).contains("xml GP " + bytes + " false", "xml GP " + bytes + " true");
+    }
+
+    @Test
+    public void saveEvent() throws Exception {
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(GP.create().text("Saved"));
+        final RecordingListener listener = new RecordingListener();
+        GMetrics.register(listener);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        GDocxSaver.create().save(pkg, baos);
+
+        assertThat(listener.saves).isEqualTo(1);
+        assertThat(listener.savedBytes).isPositive().isLessThanOrEqualTo(baos.size());
+        assertThat(listener.totalNanos).isPositive();
+    }
+
+    @Test
+    public void writerAndTemplateSaveEvents() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        GMetrics.register(listener);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final GDocxWriter writer = GDocxWriter.create(baos);
+        writer.add(GP.create().text("Written"));
+        writer.close();
+
+        assertThat(listener.saves).isEqualTo(1);
+        assertThat(listener.savedBytes).isEqualTo(baos.size());
+
+        final WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+        template.getMainDocumentPart().getContent().add(GP.create().text("Dear ${name}"));
+        final byte[] merged = GTemplate.compile(template).merge(Collections.singletonMap("name", "Rossi"));
+
+        assertThat(listener.saves).isEqualTo(2);
+        assertThat(listener.savedBytes).isPositive().isLessThan(merged.length);
+        assertThat(listener.totalNanos).isPositive();
+    }
+
+    @Test
+    public void listenerErrorIgnored() {
+        GMetrics.register(new RecordingListener() {
+            @Override
+            public void created(final Class<?> type) {
+                throw new IllegalStateException("Listener failure");
+            }
+        });
+
+        assertThat(GP.create().text("Still built").xml()).contains("Still built");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void registerTwice() {
+        GMetrics.register(new RecordingListener());
+        GMetrics.register(new RecordingListener());
+    }
+
+    /**
+     * Listener recording the element events as strings
+     */
+    private static class RecordingListener implements GMetricsListener {
+
+        private final List<String> events = new ArrayList<String>();
+        private int saves;
+        private long savedBytes;
+        private long totalNanos;
+
+        @Override
+        public void created(final Class<?> type) {
+            events.add("created " + type.getSimpleName());
+        }
+
+        @Override
+        public void changed(final Class<?> type) {
+            events.add("changed " + type.getSimpleName());
+        }
+
+        @Override
+        public void xml(final Class<?> type, final int bytes, final boolean cached, final long nanos) {
+            events.add("xml " + type.getSimpleName() + ' ' + bytes + ' ' + cached);
+        }
+
+        @Override
+        public void saved(final long marshalNanos, final long compressNanos, final long writeNanos,
+            final long lTotalNanos, final long bytes) {
+            saves++;
+            savedBytes = bytes;
+            totalNanos = lTotalNanos;
+        }
+    }
+}
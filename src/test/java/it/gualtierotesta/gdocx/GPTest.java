@@ -18,7 +18,9 @@
 
 package it.gualtierotesta.gdocx;
 
+import org.docx4j.jaxb.Context;
 import org.docx4j.wml.JcEnumeration;
+import org.docx4j.wml.R;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -56,6 +58,24 @@ public class GPTest {
         assertThat(iut.xml()).isNotEmpty().contains(exp);
     }
 
+    @Test
+    public void testTextSingleRun() {
+        final GP iut = GP.create().text("line 1", "line 2", "line 3").text("more");
+
+        assertThat(iut.getContent()).hasSize(1);
+        assertThat(((R) iut.getContent().get(0)).getContent()).hasSize(6);
+        assertThat(iut.xml()).contains("<w:t>line 1</w:t>").contains("<w:br/>").contains("<w:t>line 3</w:t>");
+    }
+
+    @Test
+    public void testTextAfterOtherRun() {
+        final GP iut = GP.create().text("first");
+        iut.getContent().add(Context.getWmlObjectFactory().createR());
+        iut.text("second");
+
+        assertThat(iut.getContent()).hasSize(3);
+    }
+
     @Test
     public void testFont() {
         final String fontName = "Tahoma";
@@ -116,4 +136,38 @@ public class GPTest {
         assertThat(iut).isNotNull().isInstanceOf(GP.class);
         assertThat(iut.xml()).isNotEmpty().startsWith(exp);
     }
+
+    @Test
+    public void testCopy() {
+        final GP iut = GP.create().text(HELLO_WORLD, "second").font("Arial", 10L).bold()
+                .align(JcEnumeration.CENTER);
+
+        final GP copy = iut.copy();
+
+        assertThat(copy).isNotSameAs(iut);
+        assertThat(copy.xml()).isEqualTo(iut.xml());
+        assertThat(copy.getContent().get(0)).isNotSameAs(iut.getContent().get(0));
+        assertThat(copy.getPPr()).isNotSameAs(iut.getPPr());
+        assertThat(copy.getPPr().getJc()).isSameAs(iut.getPPr().getJc());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final GP iut = GP.create().text(HELLO_WORLD);
+        final String xml = iut.xml();
+
+        final GP copy = iut.copy().italic().text("added");
+
+        assertThat(iut.xml()).isEqualTo(xml);
+        assertThat(copy.xml()).contains("<w:i/>").contains("<w:t>added</w:t>");
+    }
+
+    @Test
+    public void testXmlCache() {
+        final GP iut = GP.create().text(HELLO_WORLD);
+        final String xml = iut.xml();
+
+        assertThat(iut.xml()).isSameAs(xml);
+        assertThat(iut.bold().xml()).isNotEqualTo(xml).contains("<w:b/>");
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.StyleDefinitionsPart;
+import org.docx4j.wml.Style;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GPackagePool
+ *
+ * @author gualtiero
+ */
+public class GPackagePoolTest {
+
+    @Test
+    public void newPackagesAreIndependent() throws Exception {
+        // given
+        final GPackagePool iut = GPackagePool.create();
+        // when
+        final WordprocessingMLPackage first = iut.newPackage();
+        final WordprocessingMLPackage second = iut.newPackage();
+        first.getMainDocumentPart().getContent().add(GP.create().text("First"));
+        final StyleDefinitionsPart styles = first.getMainDocumentPart().getStyleDefinitionsPart();
+        final Style style = new Style();
+        style.setStyleId("Corporate");
+        styles.getJaxbElement().getStyle().add(style);
+        // then
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getMainDocumentPart().getStyleDefinitionsPart().isUnmarshalled()).isFalse();
+        assertThat(second.getMainDocumentPart().getContent()).isEmpty();
+        assertThat(second.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Corporate")).isNull();
+        assertThat(iut.newPackage().getMainDocumentPart().getJaxbElement().getBody().getSectPr()).isNotNull();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        first.save(baos);
+        final WordprocessingMLPackage saved = WordprocessingMLPackage.load(
+            new ByteArrayInputStream(baos.toByteArray()));
+        assertThat(saved.getMainDocumentPart().getXML()).contains("First");
+        assertThat(saved.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Corporate")).isNotNull();
+    }
+
+    @Test
+    public void createFromTemplate() throws Exception {
+        // given
+        final WordprocessingMLPackage template = WordprocessingMLPackage.createPackage();
+        template.getMainDocumentPart().getContent().add(GP.create().text("Template body"));
+        final Style style = new Style();
+        style.setStyleId("Corporate");
+        template.getMainDocumentPart().getStyleDefinitionsPart().getJaxbElement().getStyle().add(style);
+        final File docx = File.createTempFile("template", ".docx");
+        docx.deleteOnExit();
+        template.save(docx);
+        // when
+        final GPackagePool iut = GPackagePool.create(docx);
+        final WordprocessingMLPackage pkg = iut.newPackage();
+        pkg.getMainDocumentPart().getContent().add(GP.create().text("Report"));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GDocxSaver.create().save(pkg, baos);
+        // then
+        final WordprocessingMLPackage saved = WordprocessingMLPackage.load(
+            new ByteArrayInputStream(baos.toByteArray()));
+        assertThat(saved.getMainDocumentPart().getContent()).hasSize(1);
+        assertThat(saved.getMainDocumentPart().getXML()).contains("Report").doesNotContain("Template body");
+        assertThat(saved.getMainDocumentPart().getStyleDefinitionsPart().getStyleById("Corporate")).isNotNull();
+        assertThat(template.getMainDocumentPart().getContent()).hasSize(1);
+    }
+}
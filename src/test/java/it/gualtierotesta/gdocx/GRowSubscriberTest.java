@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Tbl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GRowSubscriber
+ *
+ * @author gualtiero
+ */
+public class GRowSubscriberTest {
+
+    private static final GRowMapper<Integer> MAPPER = new GRowMapper<Integer>() {
+        @Override
+        public Object row(final Integer value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative value");
+            }
+            return GTr.create().add(GTc.create().add(GP.create().text("Row " + value)));
+        }
+    };
+
+    @Test
+    public void writeWithBackpressure() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final GRowSubscriber<Integer> iut = GRowSubscriber.create(GDocxWriter.create(baos), GTbl.create(), MAPPER, 8);
+        final Publisher publisher = new Publisher(iut, 100, -1);
+
+        publisher.run();
+        iut.result().get();
+
+        assertThat(publisher.maxDemand).isLessThanOrEqualTo(8);
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+        final Tbl tbl = (Tbl) XmlUtils.unwrap(pkg.getMainDocumentPart().getContent().get(0));
+        assertThat(tbl.getContent()).hasSize(100);
+    }
+
+    @Test
+    public void rowErrorCancels() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final GRowSubscriber<Integer> iut = GRowSubscriber.create(GDocxWriter.create(baos), GTbl.create(), MAPPER);
+        final Publisher publisher = new Publisher(iut, 100, 10);
+
+        publisher.run();
+
+        assertThat(publisher.cancelled).isTrue();
+        assertThat(iut.result().isDone()).isTrue();
+        try {
+            iut.result().get();
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+            return;
+        }
+        throw new AssertionError("Error expected");
+    }
+
+    /**
+     * Synchronous publisher of the numbers 0..count-1, sending -1 at the given position
+     */
+    private static final class Publisher implements GRowSubscription {
+
+        private final GRowSubscriber<Integer> subscriber;
+        private final int count;
+        private final int errorAt;
+        private long demand;
+        private long maxDemand;
+        private int next;
+        private boolean cancelled;
+
+        Publisher(final GRowSubscriber<Integer> pSubscriber, final int iCount, final int iErrorAt) {
+            subscriber = pSubscriber;
+            count = iCount;
+            errorAt = iErrorAt;
+        }
+
+        void run() {
+            subscriber.onSubscribe(this);
+            while (!cancelled && next < count && 0 < demand) {
+                demand--;
+                subscriber.onNext(next == errorAt ? -1 : next);
+                next++;
+            }
+            if (!cancelled && next == count) {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void request(final long n) {
+            demand += n;
+            maxDemand = Math.max(maxDemand, demand);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.JcEnumeration;
+import org.docx4j.wml.PPrBase;
+import org.docx4j.wml.R;
+import org.docx4j.wml.RStyle;
+import org.docx4j.wml.STBorder;
+import org.docx4j.wml.STHeightRule;
+import org.docx4j.wml.STTblLayoutType;
+import org.docx4j.wml.STVerticalJc;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GSerializer
+ *
+ * @author gualtiero
+ */
+public class GSerializerTest {
+
+    private static final String HELLO_WORLD = "Hello, world";
+
+    @Test
+    public void paragraphSameAsJaxb() {
+        final GP iut = GP.create().text(HELLO_WORLD, "a < b & c > \"d\"").font("Tahoma", 12L).bold().italic()
+                .color("FF0000").align(JcEnumeration.CENTER);
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void emptyParagraphSameAsJaxb() {
+        final GP iut = GP.create();
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void styleReferencesSameAsJaxb() {
+        final GP iut = GP.create().text("one", "two").bold().align(JcEnumeration.RIGHT);
+        final PPrBase.PStyle pStyle = Context.getWmlObjectFactory().createPPrBasePStyle();
+        pStyle.setVal("Heading1");
+        iut.getPPr().setPStyle(pStyle);
+        final RStyle rStyle = Context.getWmlObjectFactory().createRStyle();
+        rStyle.setVal("Strong");
+        ((R) iut.getContent().get(0)).getRPr().setRStyle(rStyle);
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void tableSameAsJaxb() {
+        final GTbl iut = GTbl.create().borders(4L, STBorder.SINGLE, "FF0000", 0L).widthAuto()
+                .layout(STTblLayoutType.FIXED).look("01E0").grid(100L, 200L).align(JcEnumeration.CENTER)
+                .add(GTr.create().height(300L).cansplit().align(JcEnumeration.LEFT)
+                        .add(GTc.create().width(100L, "dxa").shd("auto", "FFFF00").gridspan(2L).vmerge("restart")
+                                .valign(STVerticalJc.CENTER).borderTop(4L, STBorder.NIL, null, null)
+                                .borderLeft(8L, STBorder.DOUBLE, "00FF00", 2L).add(GP.create().text("c")))
+                        .add(GTc.create().vmerge(null).add(GP.create().text("d"))))
+                .add(GTr.create().height(200L, STHeightRule.AT_LEAST));
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void unknownContentSameAsJaxb() {
+        final CTBookmark bookmark = Context.getWmlObjectFactory().createCTBookmark();
+        bookmark.setId(BigInteger.ONE);
+        bookmark.setName("mark");
+        final GP iut = GP.create().text(HELLO_WORLD);
+        iut.getContent().add(Context.getWmlObjectFactory().createPBookmarkStart(bookmark));
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void unknownPropertySameAsJaxb() {
+        final GP iut = GP.create().text(HELLO_WORLD).align(JcEnumeration.RIGHT);
+        final PPrBase.Spacing spacing = Context.getWmlObjectFactory().createPPrBaseSpacing();
+        spacing.setAfter(BigInteger.TEN);
+        iut.getPPr().setSpacing(spacing);
+
+        assertThat(GSerializer.xml(iut)).isEqualTo(XmlUtils.marshaltoString(iut, false, true));
+    }
+
+    @Test
+    public void writeCompact() throws Exception {
+        final StringWriter sw = new StringWriter();
+        GSerializer.write(GP.create().text(HELLO_WORLD), sw);
+
+        assertThat(sw.toString()).startsWith("<w:p ").contains(" xmlns:w=\"")
+                .endsWith("><w:pPr><w:rPr/></w:pPr><w:r><w:rPr/><w:t>Hello, world</w:t></w:r></w:p>");
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.STBorder;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+
+/**
+ * Test unit for class GSizeEstimate
+ *
+ * @author gualtiero
+ */
+public class GSizeEstimateTest {
+
+    @Test
+    public void paragraphExact() throws Exception {
+        final GP p = GP.create().text("Price < 10 & more", "second line").bold().fontSize(12);
+
+        final GSizeEstimate estimate = p.estimate();
+
+        assertThat(estimate.getXmlSize()).isEqualTo(compactLength(p));
+        assertThat(estimate.getIndentedXmlSize()).isGreaterThan(estimate.getXmlSize());
+        assertThat(estimate.getHeapSize()).isPositive();
+    }
+
+    @Test
+    public void largeTableSampled() throws Exception {
+        final GTbl tbl = table(1000);
+
+        final GSizeEstimate estimate = tbl.estimate();
+
+        final long actual = compactLength(tbl);
+        assertThat((double) estimate.getXmlSize()).isCloseTo(actual, within(actual * 0.05));
+        final long indented = tbl.xml().length();
+        assertThat((double) estimate.getIndentedXmlSize()).isCloseTo(indented, within(indented * 0.05));
+    }
+
+    @Test
+    public void sharedPropertiesCountedOnce() {
+        final GColumn[] columns = {GColumn.create(GTc.create().width(2000L, "dxa"), GP.create().bold())};
+        final List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[]{"Row " + i});
+        }
+        final GSizeEstimate shared = GTbl.fromRows(columns, rows).estimate();
+        final GTbl tbl = GTbl.create();
+        for (int i = 0; i < 10; i++) {
+            tbl.add(GTr.create().add(GTc.create().width(2000L, "dxa").add(GP.create().text("Row " + i).bold())));
+        }
+        final GSizeEstimate own = tbl.estimate();
+
+        assertThat(shared.getHeapSize()).isLessThan(own.getHeapSize());
+    }
+
+    @Test
+    public void spilledRows() throws Exception {
+        final GTbl tbl = table(300);
+        final GSizeEstimate inMemory = tbl.estimate();
+        tbl.spill(10);
+
+        final GSizeEstimate spilled = tbl.estimate();
+
+        assertThat((double) spilled.getXmlSize()).isCloseTo(inMemory.getXmlSize(),
+            within(inMemory.getXmlSize() * 0.05));
+        assertThat(spilled.getHeapSize()).isLessThan(inMemory.getHeapSize() / 10);
+        tbl.dispose();
+    }
+
+    @Test
+    public void sourceRowsNotCounted() {
+        final GTbl tbl = GTbl.fromSource(Arrays.asList(1, 2, 3), new GRowMapper<Integer>() {
+            @Override
+            public Object row(final Integer value) {
+                throw new AssertionError("Rows must not be built");
+            }
+        });
+
+        assertThat(tbl.estimate().getXmlSize()).isEqualTo(GTbl.create().estimate().getXmlSize());
+    }
+
+    @Test
+    public void packageAndSum() throws Exception {
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        final GTbl tbl = table(10);
+        pkg.getMainDocumentPart().getContent().add(tbl);
+
+        final GSizeEstimate estimate = GSizeEstimate.of(pkg);
+
+        assertThat(estimate.getXmlSize()).isGreaterThan(tbl.estimate().getXmlSize());
+        final GSizeEstimate sum = estimate.plus(tbl.estimate());
+        assertThat(sum.getHeapSize()).isEqualTo(estimate.getHeapSize() + tbl.estimate().getHeapSize());
+        assertThat(GSizeEstimate.ofContent(pkg.getMainDocumentPart().getContent()).getXmlSize())
+            .isEqualTo(tbl.estimate().getXmlSize());
+    }
+
+    private static GTbl table(final int iRows) {
+        final GTbl tbl = GTbl.create().widthAuto().grid(2000L, 3000L).borders(4L, STBorder.SINGLE, "000000", 0L);
+        for (int i = 0; i < iRows; i++) {
+            tbl.add(GTr.create()
+                .add(GTc.create().width(2000L, "dxa").add(GP.create().text("Cell " + i)))
+                .add(GTc.create().width(3000L, "dxa").add(GP.create().text("Value " + i * 17).italic())));
+        }
+        return tbl;
+    }
+
+    /**
+     * @return length of the XML written without indentation and namespace declarations
+     */
+    private static long compactLength(final Object obj) throws Exception {
+        final StringWriter sw = new StringWriter();
+        GSerializer.write(obj, sw);
+        return sw.toString().replaceAll(" xmlns:\\w+=\"[^\"]*\"", "").length();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.JcEnumeration;
+import org.docx4j.wml.R;
+import org.docx4j.wml.Style;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GStyleExtractorTest {
+
+    private WordprocessingMLPackage pkg;
+    private MainDocumentPart mdp;
+
+    @Before
+    public void setUp() throws Exception {
+        pkg = WordprocessingMLPackage.createPackage();
+        mdp = pkg.getMainDocumentPart();
+    }
+
+    @Test
+    public void repeatedParagraphFormattingBecomesParagraphStyle() {
+        // given
+        final GP p1 = GP.create().text("one").font("Arial", 10L).bold().align(JcEnumeration.CENTER);
+        final GP p2 = GP.create().text("two").font("Arial", 10L).bold().align(JcEnumeration.CENTER);
+        final GP single = GP.create().text("three").italic();
+        mdp.getContent().add(p1);
+        mdp.getContent().add(GTbl.create().add(GTr.create().add(GTc.create().add(p2))));
+        mdp.getContent().add(single);
+        // when
+        GStyleExtractor.create(pkg).extract(mdp.getContent());
+        // then
+        final String styleId = p1.getPPr().getPStyle().getVal();
+        assertThat(p2.getPPr().getPStyle().getVal()).isEqualTo(styleId);
+        assertThat(p1.getPPr().getJc()).isNull();
+        assertThat(((R) p1.getContent().get(0)).getRPr()).isNull();
+        assertThat(p1.xml()).contains("<w:pStyle w:val=\"" + styleId + "\"/>").doesNotContain("w:rFonts");
+        assertThat(single.getPPr().getPStyle()).isNull();
+        assertThat(((R) single.getContent().get(0)).getRPr()).isNotNull();
+
+        final Style style = mdp.getStyleDefinitionsPart().getStyleById(styleId);
+        assertThat(style.getType()).isEqualTo("paragraph");
+        assertThat(style.getBasedOn().getVal()).isEqualTo("Normal");
+        assertThat(style.getPPr().getJc().getVal()).isEqualTo(JcEnumeration.CENTER);
+        assertThat(style.getRPr().getRFonts().getAscii()).isEqualTo("Arial");
+        assertThat(style.getRPr().getB().isVal()).isTrue();
+    }
+
+    @Test
+    public void mixedRunsGetCharacterStyle() {
+        // given
+        final GP p1 = GP.create().text("one").color("FF0000");
+        final GP p2 = GP.create().text("two").color("FF0000");
+        p1.getContent().addAll(GP.create().text("plain").bold().getContent());
+        p2.getContent().addAll(GP.create().text("plain").italic().getContent());
+        mdp.getContent().add(p1);
+        mdp.getContent().add(p2);
+        // when
+        GStyleExtractor.create(pkg).extract(mdp.getContent());
+        // then
+        final R r1 = (R) p1.getContent().get(0);
+        final R r2 = (R) p2.getContent().get(0);
+        assertThat(p1.getPPr().getPStyle()).isNull();
+        assertThat(r1.getRPr().getRStyle().getVal()).isEqualTo(r2.getRPr().getRStyle().getVal());
+        assertThat(r1.getRPr().getColor()).isNull();
+        assertThat(((R) p1.getContent().get(1)).getRPr().getRStyle()).isNull();
+        assertThat(p1.xml()).contains("<w:rStyle w:val=\"" + r1.getRPr().getRStyle().getVal() + "\"/>");
+
+        final Style style = mdp.getStyleDefinitionsPart().getStyleById(r1.getRPr().getRStyle().getVal());
+        assertThat(style.getType()).isEqualTo("character");
+        assertThat(style.getRPr().getColor().getVal()).isEqualTo("FF0000");
+    }
+
+    @Test
+    public void minOccurrences() {
+        // given
+        final GP p1 = GP.create().text("one").bold();
+        final GP p2 = GP.create().text("two").bold();
+        mdp.getContent().add(p1);
+        mdp.getContent().add(p2);
+        // when
+        GStyleExtractor.create(pkg).minOccurrences(3L).extract(mdp.getContent());
+        // then
+        assertThat(p1.getPPr().getPStyle()).isNull();
+        assertThat(((R) p1.getContent().get(0)).getRPr().getB()).isNotNull();
+    }
+}
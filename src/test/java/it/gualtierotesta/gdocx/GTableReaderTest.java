@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.wml.Tc;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GTableReader
+ *
+ * @author gualtiero
+ */
+public class GTableReaderTest {
+
+    @Test
+    public void readRows() throws Exception {
+        // given
+        final File docx = File.createTempFile("tables", ".docx");
+        docx.deleteOnExit();
+        final GDocxWriter writer = GDocxWriter.create(new FileOutputStream(docx));
+        writer.add(GP.create().text("Before"));
+        writer.startTable(GTbl.create().grid(100L, 100L, 100L));
+        writer.addRow(GTr.create()
+            .add(GTc.create().gridspan(2L).shd("auto", "FF0000").add(GP.create().text("A", "B")))
+            .add(GTc.create().vmerge("restart").add(GP.create().text("C")).add(GP.create().text("D"))));
+        writer.addRow(GTr.create()
+            .add(GTc.create().add(GP.create().text("E")).add(GTbl.create()
+                .add(GTr.create().add(GTc.create().gridspan(3L).add(GP.create().text("Nested"))))))
+            .add(GTc.create().add(GP.create()))
+            .add(GTc.create().vmerge(null).add(GP.create())));
+        writer.endTable();
+        writer.startTable(GTbl.create().grid(100L));
+        for (int i = 0; i < 1000; i++) {
+            writer.addRow(GTr.create().add(GTc.create().add(GP.create().text("R" + i))));
+        }
+        writer.endTable();
+        writer.close();
+        // when
+        final GTableReader iut = GTableReader.open(docx);
+        try {
+            // then
+            assertThat(iut.next()).isTrue();
+            final GRowView row = iut.row();
+            assertThat(row.getTable()).isZero();
+            assertThat(row.getRow()).isZero();
+            assertThat(row.size()).isEqualTo(2);
+            assertThat(row.text(0)).isEqualTo("A\nB");
+            assertThat(row.gridSpan(0)).isEqualTo(2L);
+            assertThat(row.shadingFill(0)).isEqualTo("FF0000");
+            assertThat(row.shadingColor(0)).isEqualTo("auto");
+            assertThat(row.vMerge(0)).isNull();
+            assertThat(row.text(1)).isEqualTo("C\nD");
+            assertThat(row.vMerge(1)).isEqualTo("restart");
+
+            final Tc tc = (Tc) row.toGTr().getContent().get(0);
+            assertThat(tc.getTcPr().getGridSpan().getVal().longValue()).isEqualTo(2L);
+            assertThat(tc.getTcPr().getShd().getFill()).isEqualTo("FF0000");
+
+            assertThat(iut.next()).isTrue();
+            assertThat(iut.row()).isSameAs(row);
+            assertThat(row.getRow()).isEqualTo(1L);
+            assertThat(row.size()).isEqualTo(3);
+            assertThat(row.text(0)).isEqualTo("E\nNested");
+            assertThat(row.gridSpan(0)).isEqualTo(1L);
+            assertThat(row.text(1)).isEmpty();
+            assertThat(row.vMerge(2)).isEqualTo("continue");
+
+            long rows = 0L;
+            while (iut.next()) {
+                assertThat(row.getTable()).isEqualTo(1);
+                assertThat(row.text(0)).isEqualTo("R" + rows++);
+            }
+            assertThat(rows).isEqualTo(1000L);
+            assertThat(iut.next()).isFalse();
+        } finally {
+            iut.close();
+        }
+    }
+
+    @Test
+    public void toGTrSkipsPropertiesNotValid() {
+        // given
+        final GRowView iut = new GRowView();
+        iut.startTable();
+        iut.startRow();
+        iut.startCell();
+        iut.gridSpan(0L);
+        iut.shading("", "");
+        iut.startCell();
+        iut.shading("", "00FF00");
+        // when
+        final GTr tr = iut.toGTr();
+        // then
+        final Tc first = (Tc) tr.getContent().get(0);
+        assertThat(first.getTcPr().getGridSpan()).isNull();
+        assertThat(first.getTcPr().getShd()).isNull();
+        final Tc second = (Tc) tr.getContent().get(1);
+        assertThat(second.getTcPr().getShd().getColor()).isEqualTo("auto");
+        assertThat(second.getTcPr().getShd().getFill()).isEqualTo("00FF00");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cellOutOfRange() throws Exception {
+        final File docx = File.createTempFile("tables", ".docx");
+        docx.deleteOnExit();
+        final GDocxWriter writer = GDocxWriter.create(new FileOutputStream(docx));
+        writer.startTable(GTbl.create().grid(100L).add(GTr.create().add(GTc.create().add(GP.create()))));
+        writer.endTable();
+        writer.close();
+        final GTableReader iut = GTableReader.open(docx);
+        try {
+            iut.next();
+            iut.row().text(1);
+        } finally {
+            iut.close();
+        }
+    }
+}
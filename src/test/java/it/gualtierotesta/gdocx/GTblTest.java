@@ -18,11 +18,23 @@
 
 package it.gualtierotesta.gdocx;
 
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.JcEnumeration;
 import org.docx4j.wml.STBorder;
 import org.docx4j.wml.STTblLayoutType;
+import org.docx4j.wml.Tc;
+import org.docx4j.wml.Tr;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -161,4 +173,190 @@ public class GTblTest {
         assertThat(iut).isNotNull().isInstanceOf(GTbl.class);
         assertThat(iut.xml()).isNotEmpty().contains(exp1).contains(exp2);
     }
+
+    @Test
+    public void testFromRows() {
+        final GColumn[] columns = {
+            GColumn.create(GTc.create().width(1000L, "dxa").shd("auto", "EEEEEE"), GP.create().font("Arial", 8L)),
+            GColumn.create(GTc.create().width(2000L, "dxa"))
+        };
+        final GTbl iut = GTbl.fromRows(columns,
+                Arrays.asList(new Object[]{HELLO_WORLD, 12}, new Object[]{null}));
+
+        final Tr first = (Tr) iut.getContent().get(0);
+        final Tr second = (Tr) iut.getContent().get(1);
+        assertThat(iut.getContent()).hasSize(2);
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(second.getContent()).hasSize(2);
+        assertThat(((Tc) first.getContent().get(0)).getTcPr()).isSameAs(((Tc) second.getContent().get(0)).getTcPr());
+        assertThat(iut.getTblGrid().getGridCol()).hasSize(2);
+
+        final String xml = iut.xml();
+        assertThat(xml).contains("<w:gridCol w:w=\"2000\"/>")
+                .contains("<w:rFonts w:ascii=\"Arial\" w:hAnsi=\"Arial\" w:cs=\"Arial\"/>")
+                .contains(String.format("<w:t>%s</w:t>", HELLO_WORLD)).contains("<w:t>12</w:t>")
+                .contains("<w:p/>");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromRowsTooManyValues() {
+        GTbl.fromRows(new GColumn[]{GColumn.create(GTc.create())},
+                Arrays.<Object[]>asList(new Object[]{"a", "b"}));
+    }
+
+    @Test
+    public void testCopy() {
+        final GTbl iut = GTbl.fromRows(new GColumn[]{GColumn.create(GTc.create().width(500L, "dxa"))},
+                Arrays.asList(new Object[]{"a"}, new Object[]{"b"})).borders(4L, STBorder.SINGLE, "000000", null);
+
+        final GTbl copy = iut.copy();
+
+        final Tc first = (Tc) ((Tr) copy.getContent().get(0)).getContent().get(0);
+        final Tc second = (Tc) ((Tr) copy.getContent().get(1)).getContent().get(0);
+        assertThat(copy.xml()).isEqualTo(iut.xml());
+        assertThat(first.getTcPr()).isSameAs(second.getTcPr())
+                .isNotSameAs(((Tc) ((Tr) iut.getContent().get(0)).getContent().get(0)).getTcPr());
+    }
+
+    @Test
+    public void testXmlCacheChildChange() {
+        final GP first = GP.create().text(HELLO_WORLD);
+        final GTr firstRow = GTr.create().add(GTc.create().add(first));
+        final GTr secondRow = GTr.create().add(GTc.create().add(GP.create().text("second")));
+        final GTbl iut = GTbl.create().add(firstRow).add(secondRow);
+        final String secondXml = secondRow.xml();
+        final String xml = iut.xml();
+        firstRow.xml();
+
+        first.italic();
+
+        assertThat(firstRow.xmlCache().isCached()).isFalse();
+        assertThat(secondRow.xml()).isSameAs(secondXml);
+        assertThat(iut.xml()).isNotEqualTo(xml).contains("<w:i/>");
+    }
+
+    @Test
+    public void testXmlCacheCopy() {
+        final GTbl iut = GTbl.create().add(GTr.create().add(GTc.create().add(GP.create().text(HELLO_WORLD))));
+        final GTbl copy = iut.copy();
+        final String xml = copy.xml();
+        final GP p = (GP) ((GTc) ((GTr) copy.getContent().get(0)).getContent().get(0)).getContent().get(0);
+
+        p.bold();
+
+        assertThat(copy.xml()).isNotEqualTo(xml).contains("<w:b/>");
+        assertThat(iut.xml()).isEqualTo(xml);
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        final GTbl iut = GTbl.create().borders(4L, STBorder.SINGLE, "000000", null).spill(10);
+        final GTbl expected = GTbl.create().borders(4L, STBorder.SINGLE, "000000", null);
+        for (int i = 0; i < 100; i++) {
+            iut.add(spillRow(i));
+            expected.add(spillRow(i));
+        }
+
+        assertThat(iut.getContent()).hasSize(100);
+        assertThat(((GSpillList) iut.getContent()).inMemory().size()).isLessThanOrEqualTo(10);
+        assertThat(write(iut)).isEqualTo(write(expected));
+        assertThat(iut.xml()).isEqualTo(expected.xml());
+
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(iut);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pkg.save(baos);
+        final String saved = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()))
+                .getMainDocumentPart().getXML();
+        assertThat(saved).contains(">row 0</w:t>").contains(">row 99</w:t>");
+
+        iut.getContent().clear();
+        assertThat(iut.getContent()).isEmpty();
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        final File directory = File.createTempFile("spill", "");
+        assertThat(directory.delete() && directory.mkdir()).isTrue();
+        final GTbl iut = GTbl.create().spill(10, directory);
+        for (int i = 0; i < 30; i++) {
+            iut.add(spillRow(i));
+        }
+        assertThat(directory.list()).hasSize(1);
+
+        iut.dispose();
+
+        assertThat(directory.list()).isEmpty();
+        assertThat(iut.getContent()).hasSize(((GSpillList) iut.getContent()).inMemory().size());
+        assertThat(directory.delete()).isTrue();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSpilledRowNotChangeable() {
+        final GTbl iut = GTbl.create().spill(1);
+        iut.add(spillRow(0)).add(spillRow(1));
+        try {
+            iut.getContent().remove(0);
+        } finally {
+            iut.getContent().clear();
+        }
+    }
+
+    private static GTr spillRow(final int i) {
+        return GTr.create().add(GTc.create().add(GP.create().text("row " + i).bold()))
+                .add(GTc.create().add(GP.create().text("Città & <more>")));
+    }
+
+    private static String write(final Object obj) throws Exception {
+        final StringWriter sw = new StringWriter();
+        GSerializer.write(obj, sw);
+        return sw.toString();
+    }
+
+    @Test
+    public void testFromSource() throws Exception {
+        final List<Integer> source = new ArrayList<Integer>();
+        final GTbl expected = GTbl.create();
+        for (int i = 0; i < 50; i++) {
+            source.add(i);
+            expected.add(spillRow(i));
+        }
+        final AtomicInteger mapped = new AtomicInteger();
+        final GTbl iut = GTbl.fromSource(source, new GRowMapper<Integer>() {
+            @Override
+            public Object row(final Integer value) {
+                mapped.incrementAndGet();
+                return spillRow(value);
+            }
+        });
+
+        assertThat(mapped.get()).isZero();
+        assertThat(write(iut)).isEqualTo(write(expected));
+        assertThat(mapped.get()).isEqualTo(50);
+        assertThat(iut.getContent()).hasSize(50);
+        assertThat(iut.xml()).doesNotContain(">row 50<");
+        source.add(50);
+        assertThat(iut.xml()).contains(">row 50</w:t>");
+        source.remove(50);
+
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(iut);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pkg.save(baos);
+        assertThat(WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray())).getMainDocumentPart()
+                .getXML()).contains(">row 49</w:t>");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFromIteratorReadOnce() throws Exception {
+        final GTbl iut = GTbl.fromSource(Arrays.asList("a", "b").iterator(), new GRowMapper<String>() {
+            @Override
+            public Object row(final String value) {
+                return GTr.create().add(GTc.create().add(GP.create().text(value)));
+            }
+        });
+
+        assertThat(write(iut)).contains("<w:t>b</w:t>");
+        write(iut);
+    }
 }
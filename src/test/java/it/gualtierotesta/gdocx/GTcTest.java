@@ -18,8 +18,11 @@
 
 package it.gualtierotesta.gdocx;
 
+import org.docx4j.wml.CTBorder;
+import org.docx4j.wml.CTShd;
 import org.docx4j.wml.STBorder;
 import org.docx4j.wml.STVerticalJc;
+import org.docx4j.wml.TcPrInner;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -150,4 +153,39 @@ public class GTcTest {
         assertThat(iut.xml()).isNotEmpty().contains(exp1).contains(exp2);
     }
 
+    @Test
+    public void testCopy() {
+        final GTc iut = GTc.create().width(1000L, "dxa").shd("auto", "FFFF00").borderTop(4L, STBorder.SINGLE, "000000",
+                null).add(GP.create().text(HELLO_WORLD));
+
+        final GTc copy = iut.copy().valign(STVerticalJc.BOTTOM);
+
+        assertThat(copy.getTcPr().getShd()).isSameAs(iut.getTcPr().getShd());
+        assertThat(copy.getTcPr().getTcBorders()).isNotSameAs(iut.getTcPr().getTcBorders());
+        assertThat(iut.xml()).doesNotContain("w:vAlign");
+        assertThat(copy.xml()).isEqualTo(iut.valign(STVerticalJc.BOTTOM).xml());
+    }
+
+    @Test
+    public void testCopyModifiableValues() {
+        final GTc iut = GTc.create().gridspan(2L).add(GP.create().text(HELLO_WORLD));
+        final CTShd shd = new CTShd();
+        shd.setFill("FF0000");
+        iut.getTcPr().setShd(shd);
+        final CTBorder border = new CTBorder();
+        border.setVal(STBorder.DOUBLE);
+        iut.getTcPr().setTcBorders(new TcPrInner.TcBorders());
+        iut.getTcPr().getTcBorders().setTop(border);
+        iut.getTcPr().getTcBorders().setBottom(border);
+
+        final GTc copy = iut.copy();
+        copy.getTcPr().getShd().setFill("00FF00");
+        copy.getTcPr().getTcBorders().getTop().setColor("0000FF");
+
+        assertThat(copy.getTcPr().getGridSpan()).isSameAs(iut.getTcPr().getGridSpan());
+        assertThat(shd.getFill()).isEqualTo("FF0000");
+        assertThat(border.getColor()).isNull();
+        assertThat(copy.getTcPr().getTcBorders().getBottom()).isSameAs(copy.getTcPr().getTcBorders().getTop());
+        assertThat(copy.getTcPr().getTcBorders().getTop().getVal()).isEqualTo(STBorder.DOUBLE);
+    }
 }
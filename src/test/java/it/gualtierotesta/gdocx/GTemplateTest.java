@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.wml.Tbl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GTemplate
+ *
+ * @author gualtiero
+ */
+public class GTemplateTest {
+
+    private WordprocessingMLPackage template;
+    private Map<String, Object> values;
+
+    @Before
+    public void setUp() throws Exception {
+        template = WordprocessingMLPackage.createPackage();
+        final MainDocumentPart mdp = template.getMainDocumentPart();
+        mdp.getContent().add(GP.create().text("Dear ${name},"));
+        // Placeholder split across runs with different formatting
+        final GP total = GP.create().text("Total: ${am");
+        total.getContent().addAll(GP.create().text("ount} EUR").bold().getContent());
+        mdp.getContent().add(total);
+        mdp.getContent().add(GP.create().text("${orders}"));
+        mdp.getContent().add(GP.create().text("${note}").italic());
+
+        values = new HashMap<String, Object>();
+        values.put("name", "Rossi & Figli <srl>");
+        values.put("amount", Integer.valueOf(12));
+        values.put("orders", GTbl.create().add(GTr.create().add(GTc.create().add(GP.create().text("order 1")))));
+        values.put("note", "Thanks");
+    }
+
+    @Test
+    public void merge() throws Exception {
+        final GTemplate iut = GTemplate.compile(template);
+
+        final String xml = load(iut.merge(values)).getMainDocumentPart().getXML();
+
+        assertThat(iut.placeholders()).containsExactly("name", "amount", "orders", "note");
+        assertThat(xml).contains(">Dear Rossi &amp; Figli &lt;srl&gt;,</w:t>")
+                .contains(">Total: 12</w:t>").contains("> EUR</w:t>").contains("<w:tbl>")
+                .contains("<w:t>order 1</w:t>").contains(">Thanks</w:t>").doesNotContain("${");
+        assertThat(template.getMainDocumentPart().getXML()).contains("${name}");
+    }
+
+    @Test
+    public void mergeIsRepeatable() throws Exception {
+        final GTemplate iut = GTemplate.compile(template);
+        values.put("orders", Arrays.asList(GP.create().text("first"), GP.create().text("second")));
+
+        final WordprocessingMLPackage first = load(iut.merge(values));
+        values.put("name", "Bianchi");
+        final WordprocessingMLPackage second = load(iut.merge(values));
+
+        assertThat(first.getMainDocumentPart().getXML()).contains("Rossi").contains(">first</w:t>")
+                .contains(">second</w:t>");
+        assertThat(second.getMainDocumentPart().getXML()).contains("Bianchi").doesNotContain("Rossi");
+        assertThat(second.getMainDocumentPart().getStyleDefinitionsPart()).isNotNull();
+        assertThat(second.getMainDocumentPart().getContent().get(2)).isNotInstanceOf(Tbl.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingValue() throws Exception {
+        values.remove("amount");
+        GTemplate.compile(template).merge(values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementInInlineSlot() throws Exception {
+        values.put("name", GP.create().text("name"));
+        GTemplate.compile(template).merge(values);
+    }
+
+    private static WordprocessingMLPackage load(final byte[] docx) throws Exception {
+        return WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+    }
+}
@@ -88,4 +88,15 @@ public class GTrTest {
         assertThat(iut).isNotNull().isInstanceOf(GTr.class);
         assertThat(iut.xml()).isNotEmpty().contains(exp1).contains(exp2);
     }
+
+    @Test
+    public void testCopy() {
+        final GTr iut = GTr.create().height(300L).cansplit().add(GTc.create().add(GP.create().text(HELLO_WORLD)));
+
+        final GTr copy = iut.copy();
+
+        assertThat(copy.xml()).isEqualTo(iut.xml());
+        assertThat(copy.getContent().get(0)).isInstanceOf(GTc.class).isNotSameAs(iut.getContent().get(0));
+        assertThat(copy.getTrPr()).isNotSameAs(iut.getTrPr());
+    }
 }
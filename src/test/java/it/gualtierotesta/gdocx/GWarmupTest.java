@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2013. Gualtiero Testa
+ *
+ *     http://www.gualtierotesta.it
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.gualtierotesta.gdocx;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Test unit for class GWarmup
+ *
+ * @author gualtiero
+ */
+public class GWarmupTest {
+
+    @Test
+    public void warmupTwice() throws Exception {
+        GWarmup.warmup();
+        final long start = System.nanoTime();
+        GWarmup.warmup();
+        assertThat(System.nanoTime() - start).isLessThan(50000000L);
+
+        final WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+        pkg.getMainDocumentPart().getContent().add(GP.create().text("After warm-up"));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pkg.save(baos);
+        assertThat(baos.size()).isPositive();
+    }
+}